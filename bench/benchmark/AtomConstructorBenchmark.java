@@ -0,0 +1,42 @@
+package benchmark;
+
+import atom.Atom;
+import atom.AtomConstructor;
+import atom.AtomKind;
+import atom.Hybridization;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of AtomConstructor.buildAtom
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AtomConstructorBenchmark {
+
+    @Param({ "SP3", "SP2", "SP" })
+    private Hybridization hybridization;
+
+    @Benchmark
+    public Atom buildAtom() {
+        return AtomConstructor.buildAtom(AtomKind.CARBON, hybridization);
+    }
+
+}
@@ -0,0 +1,69 @@
+package benchmark;
+
+import atom.AtomsPipeLine;
+import atom.ProjectedAtoms;
+import engine3d.Vec4df;
+import engine3d.matrix.MatrixMath;
+import molecule.Molecule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the stages of the AtomsPipeLine: the transform and
+ * projection of the atoms (serial and parallel) and the depth sort
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class AtomsPipeLineBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int numAtoms;
+
+    @Param({ "false", "true" })
+    private boolean isParallel;
+
+    private AtomsPipeLine pipeLine;
+
+    private Molecule molecule;
+
+    @Setup
+    public void setup() {
+        molecule = SyntheticMolecules.build(numAtoms);
+        pipeLine = SyntheticMolecules.buildPipeLine();
+        pipeLine.setParallel(isParallel);
+        pipeLine.setTransform(MatrixMath.matrixMakeRotationY(0.5f));
+        pipeLine.setCameraOrigin(new Vec4df(0.0f, 0.0f, -100.0f));
+        pipeLine.projectMolecule(molecule);
+    }
+
+    @Benchmark
+    public ProjectedAtoms transformAndProject() {
+        pipeLine.projectMolecule(molecule);
+        return pipeLine.getProjectedAtoms();
+    }
+
+    @Benchmark
+    public ProjectedAtoms depthSort() {
+        pipeLine.sortProjectedAtoms();
+        return pipeLine.getProjectedAtoms();
+    }
+
+}
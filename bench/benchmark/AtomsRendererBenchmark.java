@@ -0,0 +1,78 @@
+package benchmark;
+
+import atom.AtomsPipeLine;
+import atom.AtomsRasterizer;
+import atom.AtomsRenderer;
+import engine3d.Vec4df;
+import molecule.Molecule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of AtomsRenderer.renderAtoms over the projected
+ * and sorted atoms of a molecule, and of the same drawing by
+ * the AtomsRasterizer on an off-screen canvas
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class AtomsRendererBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int numAtoms;
+
+    private AtomsPipeLine pipeLine;
+
+    private AtomsRenderer renderer;
+
+    private AtomsPipeLine offscreenPipeLine;
+
+    private AtomsRasterizer rasterizer;
+
+    @Setup
+    public void setup() {
+        Molecule molecule = SyntheticMolecules.build(numAtoms);
+        pipeLine = new AtomsPipeLine(SyntheticMolecules.buildGameContainer());
+        pipeLine.setReusingBuffers(true);
+        pipeLine.setCameraOrigin(new Vec4df(0.0f, 0.0f, -100.0f));
+        pipeLine.projectMolecule(molecule);
+        pipeLine.sortProjectedAtoms();
+        renderer = pipeLine.getRenderer();
+
+        offscreenPipeLine = SyntheticMolecules.buildPipeLine();
+        offscreenPipeLine.setCameraOrigin(new Vec4df(0.0f, 0.0f, -100.0f));
+        offscreenPipeLine.projectMolecule(molecule);
+        offscreenPipeLine.sortProjectedAtoms();
+        rasterizer = offscreenPipeLine.getRasterizer();
+    }
+
+    @Benchmark
+    public AtomsRenderer renderAtoms() {
+        renderer.renderAtoms(pipeLine.getProjectedAtoms());
+        return renderer;
+    }
+
+    @Benchmark
+    public AtomsRasterizer rasterizeAtoms() {
+        rasterizer.renderAtoms(offscreenPipeLine.getProjectedAtoms());
+        return rasterizer;
+    }
+
+}
@@ -0,0 +1,32 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks of the engine
+ *
+ * The GC profiler is added, so for each benchmark is reported
+ * the throughput and the allocation rate (gc.alloc.rate and
+ * gc.alloc.rate.norm, the bytes allocated per operation)
+ *
+ * The first argument, if any, is a regular expression to select
+ * the benchmarks to run, for example "AtomsPipeLine"
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "benchmark\\..*Benchmark")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,65 @@
+package benchmark;
+
+import atom.Atom;
+import engine3d.matrix.Mat4x4;
+import engine3d.matrix.MatrixMath;
+import molecule.Bone;
+import molecule.MatrixMathAtom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of MatrixMathAtom.matrixMultiplyBones over
+ * the bones of all the atoms of a molecule
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class MatrixMathAtomBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int numAtoms;
+
+    private Bone[][] bones;
+
+    private Mat4x4 matrix;
+
+    @Setup
+    public void setup() {
+        bones = new Bone[numAtoms][];
+        int i = 0;
+        for ( Atom atom : SyntheticMolecules.build(numAtoms).getAtoms() ) {
+            bones[i++] = atom.getBones();
+        }
+        matrix = MatrixMath.matrixMultiplyMatrix(
+                MatrixMath.matrixMakeRotationX(0.5f),
+                MatrixMath.matrixMakeRotationY(0.25f)
+        );
+    }
+
+    @Benchmark
+    public void matrixMultiplyBones(Blackhole blackhole) {
+        for ( Bone[] atomBones : bones ) {
+            blackhole.consume(MatrixMathAtom.matrixMultiplyBones(matrix, atomBones));
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package benchmark;
+
+import atom.AtomConstructor;
+import atom.AtomKind;
+import atom.Hybridization;
+import molecule.Molecule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Molecule.addAtom(int, Atom, int)
+ *
+ * Each invocation joins a new atom to a molecule which starts
+ * with the number of atoms of the parameter in each iteration
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g" })
+public class MoleculeBenchmark {
+
+    @Param({ "10", "1000", "100000", "1000000" })
+    private int numAtoms;
+
+    private Molecule molecule;
+
+    private int present;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        molecule = SyntheticMolecules.build(numAtoms);
+        present = 0;
+    }
+
+    @Benchmark
+    public Molecule addAtom() {
+        molecule.addAtom(present, AtomConstructor.buildAtom(AtomKind.CARBON, Hybridization.SP3), 1 + present % 4);
+        present = (present + 1) % numAtoms;
+        return molecule;
+    }
+
+}
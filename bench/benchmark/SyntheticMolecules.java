@@ -0,0 +1,97 @@
+package benchmark;
+
+import atom.AtomConstructor;
+import atom.AtomKind;
+import atom.AtomsPipeLine;
+import atom.Hybridization;
+import atom.OffscreenCanvas;
+import engine.AbstractGame;
+import engine.GameContainer;
+import engine.gfx.Renderer;
+import molecule.Molecule;
+
+import java.util.Random;
+
+/**
+ * This class builds the synthetic molecules used by the benchmarks
+ *
+ * The molecules are built with a fixed seed, so all the benchmarks
+ * work over the same molecule for the same number of atoms
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class SyntheticMolecules {
+
+    /**
+     * The seed of the random generator
+     */
+    private static final long SEED = 97L;
+
+    /**
+     * The size of the off-screen canvas
+     */
+    private static final int WIDTH = 1920;
+
+    private static final int HEIGHT = 1080;
+
+    /**
+     * The atom kinds used to build the molecules
+     */
+    private static final AtomKind[] KINDS = {
+            AtomKind.CARBON, AtomKind.CARBON, AtomKind.CARBON,
+            AtomKind.HYDROGEN, AtomKind.HYDROGEN, AtomKind.OXYGEN,
+            AtomKind.NITROGEN, AtomKind.SULFUR
+    };
+
+    /**
+     * This method builds a molecule of sp3 atoms joined to the
+     * recent atoms by a random orbital, as a branched chain
+     *
+     * @param numAtoms the number of atoms of the molecule
+     * @return the molecule
+     */
+    public static Molecule build(int numAtoms) {
+        Random random = new Random(SEED);
+        Molecule molecule = new Molecule(AtomConstructor.buildAtom(AtomKind.CARBON, Hybridization.SP3));
+        for ( int i = 1; i < numAtoms; i++ ) {
+            int present = Math.max(0, i - 1 - random.nextInt(3));
+            molecule.addAtom(
+                    present,
+                    AtomConstructor.buildAtom(KINDS[random.nextInt(KINDS.length)], Hybridization.SP3),
+                    1 + random.nextInt(4)
+            );
+        }
+        return molecule;
+    }
+
+    /**
+     * This method builds a GameContainer for the pipeline and the
+     * renderer. The game is never started, so no window is opened
+     *
+     * @return the game container
+     */
+    public static GameContainer buildGameContainer() {
+        return new GameContainer(new AbstractGame("Benchmark") {
+            @Override
+            public void initialize(GameContainer gc) { }
+
+            @Override
+            public void update(GameContainer gc, float dt) { }
+
+            @Override
+            public void render(GameContainer gc, Renderer r) { }
+        });
+    }
+
+    /**
+     * This method builds an off-screen pipeline, so the benchmarks
+     * run without window
+     *
+     * @return the pipeline
+     */
+    public static AtomsPipeLine buildPipeLine() {
+        return new AtomsPipeLine(new OffscreenCanvas(WIDTH, HEIGHT));
+    }
+
+}
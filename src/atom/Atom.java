@@ -2,6 +2,7 @@ package atom;
 
 import engine.gfx.images.Image;
 import engine3d.Vec4df;
+import molecule.AtomsStorage;
 import molecule.Bone;
 
 /**
@@ -12,6 +13,14 @@ import molecule.Bone;
  *
  * In this approach, an atom is represented by a set of bones (class @bone)
  *
+ * The atoms built by AtomConstructor share an AtomTemplate with the
+ * data of its kind, hybridization and radius, and its bones are only
+ * built if they are requested before the atom is stored
+ *
+ * When the atom is added to a molecule, its data is moved to the
+ * AtomsStorage of the molecule and the atom works as a view over it:
+ * the getters and setters read and write the storage arrays
+ *
  * @author Sergio Martí Torregrosa. sMartiTo97
  * @date 08/09/2020
  */
@@ -34,6 +43,7 @@ public class Atom {
 
     /**
      * An image what represents the atom kind
+     * When the atom is stored, the image is the image of its atom kind
      */
     private Image image;
 
@@ -52,6 +62,23 @@ public class Atom {
      */
     private float rotation = 0.0f;
 
+    /**
+     * The shared template of the atom, null if the atom
+     * was not built from a template
+     */
+    private AtomTemplate template = null;
+
+    /**
+     * The storage which holds the data of the atom,
+     * null if the atom is not stored in a molecule
+     */
+    private AtomsStorage storage = null;
+
+    /**
+     * The index of the atom inside the storage
+     */
+    private int index = -1;
+
     /**
      * The Atom constructor
      * @param id the identify code
@@ -86,6 +113,34 @@ public class Atom {
         this.color = color;
     }
 
+    /**
+     * The template constructor. The bones are not built
+     * until they are requested
+     *
+     * @param id the identify code
+     * @param template the shared template of the atom
+     */
+    public Atom(int id, AtomTemplate template) {
+        this.id = id;
+        this.radius = template.getRadius();
+        this.image = template.getImage();
+        this.atomKind = template.getAtomKind();
+        this.color = template.getColor();
+        this.template = template;
+    }
+
+    /**
+     * The view constructor
+     *
+     * @param storage the storage which holds the data of the atom
+     * @param index the index of the atom inside the storage
+     */
+    public Atom(AtomsStorage storage, int index) {
+        this.id = index;
+        this.storage = storage;
+        this.index = index;
+    }
+
     /**
      * The copy constructor
      * @param atom the atom to copy
@@ -93,7 +148,11 @@ public class Atom {
     public Atom(Atom atom) {
         this.id = atom.getId();
         this.radius = atom.getRadius();
-        this.bones = atom.getBones();
+        if ( atom.isUsingTemplate() ) {
+            this.template = atom.getTemplate();
+        } else {
+            this.bones = atom.getBones();
+        }
         this.image = atom.getImage();
         this.atomKind = atom.getAtomKind();
         this.rotation = atom.getRotation();
@@ -134,32 +193,89 @@ public class Atom {
 
     /////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * This method moves the data of the atom to the storage, and
+     * since this moment the atom works as a view over the storage
+     *
+     * @param storage the storage which holds the data of the atom
+     * @param index the index of the atom inside the storage
+     */
+    public void attach(AtomsStorage storage, int index) {
+        this.storage = storage;
+        this.index = index;
+        bones = null;
+        image = null;
+    }
+
+    public boolean isStored() {
+        return storage != null;
+    }
+
+    /**
+     * The orbitals of the atom are the orbitals of its template while
+     * the atom is not stored and its bones have not been built
+     *
+     * @return true if the orbitals of the atom are the orbitals of its template
+     */
+    public boolean isUsingTemplate() {
+        return storage == null && bones == null && template != null;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
     public int getId() {
         return id;
     }
 
     public float getRadius() {
-        return radius;
+        return storage == null ? radius : storage.getRadius(index);
     }
 
     public Image getImage() {
-        return image;
+        return storage == null ? image : AtomConstructor.getAtomImage(getAtomKind());
     }
 
     public float getRotation() {
-        return rotation;
+        return storage == null ? rotation : storage.getRotation(index);
     }
 
+    /**
+     * When the atom is stored, the bones are a copy of the stored
+     * data. For modify them, is needed to call setBones
+     *
+     * When the atom is not stored and it has a template, the bones
+     * are built the first time they are requested
+     *
+     * @return the bones of the atom
+     */
     public Bone[] getBones() {
+        if ( storage != null ) {
+            return storage.getBones(index);
+        }
+        if ( bones == null && template != null ) {
+            bones = template.buildBones();
+        }
         return bones;
     }
 
     public AtomKind getAtomKind() {
-        return atomKind;
+        return storage == null ? atomKind : storage.getAtomKind(index);
+    }
+
+    public AtomTemplate getTemplate() {
+        return template;
     }
 
     public int getColor() {
-        return color;
+        return storage == null ? color : storage.getColor(index);
+    }
+
+    public AtomsStorage getStorage() {
+        return storage;
+    }
+
+    public int getIndex() {
+        return index;
     }
 
     public void setId(int id) {
@@ -167,7 +283,11 @@ public class Atom {
     }
 
     public void setRadius(float radius) {
-        this.radius = radius;
+        if ( storage == null ) {
+            this.radius = radius;
+        } else {
+            storage.setRadius(index, radius);
+        }
     }
 
     public void setImage(Image image) {
@@ -175,19 +295,35 @@ public class Atom {
     }
 
     public void setRotation(float rotation) {
-        this.rotation = rotation;
+        if ( storage == null ) {
+            this.rotation = rotation;
+        } else {
+            storage.setRotation(index, rotation);
+        }
     }
 
     public void setBones(Bone[] bones) {
-        this.bones = bones;
+        if ( storage == null ) {
+            this.bones = bones;
+        } else {
+            storage.setBones(index, bones);
+        }
     }
 
     public void setAtomKind(AtomKind atomKind) {
-        this.atomKind = atomKind;
+        if ( storage == null ) {
+            this.atomKind = atomKind;
+        } else {
+            storage.setAtomKind(index, atomKind);
+        }
     }
 
     public void setColor(int color) {
-        this.color = color;
+        if ( storage == null ) {
+            this.color = color;
+        } else {
+            storage.setColor(index, color);
+        }
     }
 
     /////////////////////////////////////////////////////////////////////////////////////////
@@ -195,7 +331,7 @@ public class Atom {
 
     @Override
     public String toString() {
-        return atomKind.toString() + " " + id;
+        return getAtomKind().toString() + " " + id;
     }
 
 }
@@ -7,6 +7,8 @@ import engine3d.Vec4df;
 import engine3d.matrix.Mat4x4;
 import engine3d.matrix.MatrixMath;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Thi class is an @Atom object constructor what
  * contains all methods to build atoms.
@@ -18,6 +20,26 @@ public class AtomConstructor {
 
     private static ImageTile atomTiles = new ImageTile("/atoms_tiles.png", 64, 64);
 
+    /**
+     * The images of each atom kind. The tile images are cut
+     * only once, the atoms of the same kind share the image
+     */
+    private static final Image[] atomImages = new Image[AtomKind.values().length];
+
+    /**
+     * The templates with the default radius of each atom kind, by
+     * atom kind and hybridization. They are built the first time
+     * they are requested. If two threads build the same template at
+     * once, any of them is kept, because they are equal and immutable
+     */
+    private static final AtomTemplate[][] defaultTemplates =
+            new AtomTemplate[AtomKind.values().length][Hybridization.values().length];
+
+    /**
+     * The templates with other radius, by the key of templateKey
+     */
+    private static final ConcurrentHashMap<Long, AtomTemplate> templates = new ConcurrentHashMap<>();
+
     private static Vec4df[] scalePoints(Vec4df[] points, float radius) {
         Mat4x4 matScale = MatrixMath.matrixMakeScale(radius, radius, radius);
         for ( int i = 0; i < points.length; i++ ) {
@@ -64,7 +86,14 @@ public class AtomConstructor {
         }
     }
 
-    private static Image getAtomImage(AtomKind atomKind) {
+    static Image getAtomImage(AtomKind atomKind) {
+        if ( atomImages[atomKind.ordinal()] == null ) {
+            atomImages[atomKind.ordinal()] = cutAtomImage(atomKind);
+        }
+        return atomImages[atomKind.ordinal()];
+    }
+
+    private static Image cutAtomImage(AtomKind atomKind) {
         switch ( atomKind ) {
             case CARBON: default:
                 return atomTiles.getTileImage(0, 0);
@@ -81,7 +110,7 @@ public class AtomConstructor {
         }
     }
 
-    private static float getAtomRadius(AtomKind atomKind) {
+    public static float getAtomRadius(AtomKind atomKind) {
         switch ( atomKind ) {
             case CARBON: case OXYGEN: case NITROGEN: default:
                 return 1.0f;
@@ -92,7 +121,7 @@ public class AtomConstructor {
         }
     }
 
-    private static int getColor(AtomKind atomKind) {
+    public static int getColor(AtomKind atomKind) {
         switch ( atomKind ) {
             case CARBON: default:
                 return HexColors.GREY;
@@ -109,8 +138,42 @@ public class AtomConstructor {
         }
     }
 
+    /**
+     * This method returns the shared template of the atoms with the
+     * atom kind, hybridization and radius passed by parameter. The
+     * template is built only the first time it is requested
+     *
+     * @param atomKind the type of chemical element
+     * @param hybridization the hybridization of the orbitals
+     * @param radius the radius
+     * @return the template
+     */
+    public static AtomTemplate getTemplate(AtomKind atomKind, Hybridization hybridization, float radius) {
+        if ( radius == getAtomRadius(atomKind) ) {
+            AtomTemplate template = defaultTemplates[atomKind.ordinal()][hybridization.ordinal()];
+            if ( template == null ) {
+                template = buildTemplate(atomKind, hybridization, radius);
+                defaultTemplates[atomKind.ordinal()][hybridization.ordinal()] = template;
+            }
+            return template;
+        }
+        return templates.computeIfAbsent(templateKey(atomKind, hybridization, radius), key -> buildTemplate(atomKind, hybridization, radius));
+    }
+
+    public static AtomTemplate getTemplate(AtomKind atomKind, Hybridization hybridization) {
+        return getTemplate(atomKind, hybridization, getAtomRadius(atomKind));
+    }
+
+    private static AtomTemplate buildTemplate(AtomKind atomKind, Hybridization hybridization, float radius) {
+        return new AtomTemplate(atomKind, hybridization, radius, getPoints(hybridization, radius), getAtomImage(atomKind), getColor(atomKind));
+    }
+
+    private static long templateKey(AtomKind atomKind, Hybridization hybridization, float radius) {
+        return ((long) atomKind.ordinal() << 40) | ((long) hybridization.ordinal() << 32) | (Float.floatToIntBits(radius) & 0xffffffffL);
+    }
+
     public static Atom buildAtom(int id, float radius, AtomKind atomKind, Hybridization hybridization) {
-        return new Atom(id, radius, getPoints(hybridization, radius), getAtomImage(atomKind), atomKind, getColor(atomKind));
+        return new Atom(id, getTemplate(atomKind, hybridization, radius));
     }
 
     public static Atom buildAtom(int id, AtomKind atomKind, Hybridization hybridization) {
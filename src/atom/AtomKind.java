@@ -6,5 +6,20 @@ public enum AtomKind {
     OXYGEN,
     NITROGEN,
     PHOSPHOR,
-    SULFUR
+    SULFUR;
+
+    /**
+     * The values are cached because values() builds a new array each call
+     */
+    private static final AtomKind[] VALUES = values();
+
+    /**
+     * This method returns the atom kind with the ordinal passed by parameter
+     *
+     * @param ordinal the ordinal of the atom kind
+     * @return the atom kind
+     */
+    public static AtomKind get(int ordinal) {
+        return VALUES[ordinal];
+    }
 }
@@ -0,0 +1,264 @@
+package atom;
+
+import engine.gfx.images.Image;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps the images of the atoms already scaled to the
+ * size they have on screen, so draw an atom is a plain copy of
+ * pixels instead of resample the image for each atom
+ *
+ * The sprites are identified by the AtomKind and the width on screen.
+ * The width is quantized in buckets: the widths smaller than
+ * EXACT_WIDTHS pixels have its own bucket, and the bigger ones are
+ * rounded down to 16 steps for each power of two, so the error of
+ * the size is at most a 6%. The atoms of the same element usually
+ * are at similar depths, so almost all the atoms reuse a sprite
+ *
+ * The sprites are stored until the number of pixels of all of them
+ * is bigger than the maximum, then the least recently used ones
+ * are removed
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class AtomSpritesCache {
+
+    /**
+     * The widths smaller than this value have its own bucket
+     */
+    private static final int EXACT_WIDTHS = 32;
+
+    /**
+     * The number of buckets for each power of two
+     */
+    private static final int STEPS_BITS = 4;
+
+    /**
+     * The biggest width which is cached. The bigger atoms are drawn
+     * without cache, because they are few and its sprites are huge
+     */
+    public static final int MAX_WIDTH = 4096;
+
+    /**
+     * The number of buckets of each AtomKind
+     */
+    private static final int NUM_BUCKETS = bucketOf(MAX_WIDTH) + 1;
+
+    /**
+     * The default maximum number of pixels of all the sprites (16 MB)
+     */
+    private static final long DEFAULT_MAX_PIXELS = 4L * 1024 * 1024;
+
+    /**
+     * This class is one scaled image
+     */
+    public static class Sprite {
+
+        private final int w;
+
+        private final int h;
+
+        private final int[] p;
+
+        /**
+         * The tick of the last time the sprite was used
+         */
+        private long lastUsed;
+
+        private Sprite(int w, int h, int[] p) {
+            this.w = w;
+            this.h = h;
+            this.p = p;
+        }
+
+        public int getW() {
+            return w;
+        }
+
+        public int getH() {
+            return h;
+        }
+
+        public int[] getP() {
+            return p;
+        }
+
+    }
+
+    /**
+     * The sprites, for each AtomKind and bucket
+     */
+    private final Sprite[][] sprites = new Sprite[AtomKind.values().length][NUM_BUCKETS];
+
+    /**
+     * The maximum number of pixels of all the sprites
+     */
+    private long maxPixels = DEFAULT_MAX_PIXELS;
+
+    /**
+     * The number of pixels of all the sprites
+     */
+    private long usedPixels = 0;
+
+    /**
+     * The clock for know which sprite is the least recently used
+     */
+    private long tick = 0;
+
+    /**
+     * The number of times a sprite was found in the cache
+     */
+    private long hits = 0;
+
+    /**
+     * The number of times a sprite was built
+     */
+    private long misses = 0;
+
+    /**
+     * This method calculates the bucket of the width
+     *
+     * @param width the width in pixels
+     * @return the bucket
+     */
+    private static int bucketOf(int width) {
+        if ( width < EXACT_WIDTHS ) {
+            return width;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(width);
+        int shift = exponent - STEPS_BITS;
+        int firstExponent = 31 - Integer.numberOfLeadingZeros(EXACT_WIDTHS);
+        return EXACT_WIDTHS + ((exponent - firstExponent) << STEPS_BITS) + ((width >> shift) - (1 << STEPS_BITS));
+    }
+
+    /**
+     * This method rounds the width down to the width of its bucket
+     *
+     * @param width the width in pixels
+     * @return the width of the bucket
+     */
+    private static int quantize(int width) {
+        if ( width < EXACT_WIDTHS ) {
+            return width;
+        }
+        int shift = 31 - Integer.numberOfLeadingZeros(width) - STEPS_BITS;
+        return (width >> shift) << shift;
+    }
+
+    /**
+     * This method returns the sprite of the AtomKind with the width
+     * passed by parameter, rounded to its bucket. If it is not in the
+     * cache, it's built from the image by nearest neighbour
+     *
+     * @param atomKind the AtomKind of the atom
+     * @param image the image of the AtomKind
+     * @param width the width on screen in pixels
+     * @return the sprite, or null if the width is not between 1 and MAX_WIDTH
+     */
+    public Sprite getSprite(AtomKind atomKind, Image image, int width) {
+        if ( width < 1 || width > MAX_WIDTH ) {
+            return null;
+        }
+        int bucket = bucketOf(width);
+        Sprite sprite = sprites[atomKind.ordinal()][bucket];
+        if ( sprite == null ) {
+            misses++;
+            sprite = buildSprite(image, quantize(width));
+            evict(sprite.p.length);
+            sprites[atomKind.ordinal()][bucket] = sprite;
+            usedPixels += sprite.p.length;
+        } else {
+            hits++;
+        }
+        sprite.lastUsed = ++tick;
+        return sprite;
+    }
+
+    /**
+     * This method scales the image to the width passed by parameter,
+     * keeping the aspect ratio
+     *
+     * @param image the image to scale
+     * @param width the width of the sprite
+     * @return the new sprite
+     */
+    private static Sprite buildSprite(Image image, int width) {
+        int height = Math.max(Math.round((float) image.getH() * width / image.getW()), 1);
+        int[] p = new int[width * height];
+        float scaleX = (float) image.getW() / width;
+        float scaleY = (float) image.getH() / height;
+        int[] src = image.getP();
+        for ( int y = 0; y < height; y++ ) {
+            int imageY = Math.min((int) (y * scaleY), image.getH() - 1);
+            for ( int x = 0; x < width; x++ ) {
+                int imageX = Math.min((int) (x * scaleX), image.getW() - 1);
+                p[x + y * width] = src[imageX + imageY * image.getW()];
+            }
+        }
+        return new Sprite(width, height, p);
+    }
+
+    /**
+     * This method removes the least recently used sprites until there
+     * is room for the number of pixels passed by parameter
+     *
+     * @param pixels the number of pixels of the new sprite
+     */
+    private void evict(long pixels) {
+        while ( usedPixels > 0 && usedPixels + pixels > maxPixels ) {
+            int oldestKind = -1;
+            int oldestBucket = -1;
+            long oldest = Long.MAX_VALUE;
+            for ( int k = 0; k < sprites.length; k++ ) {
+                for ( int b = 0; b < NUM_BUCKETS; b++ ) {
+                    Sprite sprite = sprites[k][b];
+                    if ( sprite != null && sprite.lastUsed < oldest ) {
+                        oldest = sprite.lastUsed;
+                        oldestKind = k;
+                        oldestBucket = b;
+                    }
+                }
+            }
+            usedPixels -= sprites[oldestKind][oldestBucket].p.length;
+            sprites[oldestKind][oldestBucket] = null;
+        }
+    }
+
+    /**
+     * This method removes all the sprites
+     */
+    public void clear() {
+        for ( Sprite[] kindSprites : sprites ) {
+            Arrays.fill(kindSprites, null);
+        }
+        usedPixels = 0;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public long getMaxPixels() {
+        return maxPixels;
+    }
+
+    public long getUsedPixels() {
+        return usedPixels;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMaxPixels(long maxPixels) {
+        this.maxPixels = maxPixels;
+        evict(0);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,141 @@
+package atom;
+
+import engine.gfx.images.Image;
+import engine3d.Vec4df;
+import molecule.AtomsStorage;
+import molecule.Bone;
+
+/**
+ * This class holds the data which is shared by all the atoms
+ * of the same AtomKind, Hybridization and radius: the image,
+ * the color and the orbitals around the centre of the atom
+ *
+ * The templates are immutable and they are built only once by
+ * AtomConstructor, so the atoms built from a template only need
+ * its own pose, id and connections. The orbitals are stored as
+ * offsets from the centre, in the same layout as AtomsStorage,
+ * so they are copied to the storage without build any bone
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public final class AtomTemplate {
+
+    private final AtomKind atomKind;
+
+    private final Hybridization hybridization;
+
+    private final float radius;
+
+    private final Image image;
+
+    private final int color;
+
+    /**
+     * The orbitals as offsets from the centre: x, y, z for each orbital
+     */
+    private final float[] orbitals;
+
+    /**
+     * The radius of the sphere which bounds the atom, with its orbitals
+     */
+    private final float boundingRadius;
+
+    /**
+     * The constructor
+     *
+     * @param atomKind the type of chemical element
+     * @param hybridization the hybridization of the orbitals
+     * @param radius the radius
+     * @param points the centre and the ends of the orbitals, as built by AtomConstructor
+     * @param image the image of the atom
+     * @param color the color of the atom
+     */
+    AtomTemplate(AtomKind atomKind, Hybridization hybridization, float radius, Vec4df[] points, Image image, int color) {
+        if ( points.length - 1 > AtomsStorage.MAX_ORBITALS ) {
+            throw new IllegalArgumentException("An atom can not have more than " + AtomsStorage.MAX_ORBITALS + " orbitals");
+        }
+        this.atomKind = atomKind;
+        this.hybridization = hybridization;
+        this.radius = radius;
+        this.image = image;
+        this.color = color;
+
+        Vec4df centre = points[0];
+        orbitals = new float[(points.length - 1) * 3];
+        float max = radius * radius;
+        for ( int i = 1; i < points.length; i++ ) {
+            float x = points[i].getX() - centre.getX();
+            float y = points[i].getY() - centre.getY();
+            float z = points[i].getZ() - centre.getZ();
+            orbitals[(i - 1) * 3] = x;
+            orbitals[(i - 1) * 3 + 1] = y;
+            orbitals[(i - 1) * 3 + 2] = z;
+            max = Math.max(max, x * x + y * y + z * z);
+        }
+        boundingRadius = (float) Math.sqrt(max);
+    }
+
+    /**
+     * This method copies the orbitals of the template into an
+     * array with the layout of the orbitals of AtomsStorage
+     *
+     * @param dest the array where the orbitals are copied
+     * @param offset the position of the first orbital in the array
+     */
+    public void copyOrbitals(float[] dest, int offset) {
+        System.arraycopy(orbitals, 0, dest, offset, orbitals.length);
+    }
+
+    /**
+     * This method builds a new set of bones with the orbitals of the
+     * template, centred on the origin. The first one is the radius bone
+     *
+     * @return a new set of bones
+     */
+    Bone[] buildBones() {
+        Bone[] bones = new Bone[getOrbitalsCount() + 1];
+        Vec4df centre = new Vec4df();
+        bones[0] = new Bone(centre, new Vec4df(radius, 0.0f, 0.0f));
+        for ( int i = 1; i < bones.length; i++ ) {
+            bones[i] = new Bone(
+                    centre,
+                    new Vec4df(orbitals[(i - 1) * 3], orbitals[(i - 1) * 3 + 1], orbitals[(i - 1) * 3 + 2])
+            );
+        }
+        return bones;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public AtomKind getAtomKind() {
+        return atomKind;
+    }
+
+    public Hybridization getHybridization() {
+        return hybridization;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    public Image getImage() {
+        return image;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public int getOrbitalsCount() {
+        return orbitals.length / 3;
+    }
+
+    public float getBoundingRadius() {
+        return boundingRadius;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,56 @@
+package atom;
+
+/**
+ * This interface represents the surface where the atoms are drawn
+ *
+ * It has only the drawing primitives that the AtomsRasterizer needs,
+ * so the atoms can be drawn on the screen (AtomsRenderer) or in
+ * an in-memory pixel buffer (OffscreenCanvas)
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public interface AtomsCanvas {
+
+    /**
+     * @return the width of the canvas in pixels
+     */
+    int getScreenWidth();
+
+    /**
+     * @return the height of the canvas in pixels
+     */
+    int getScreenHeight();
+
+    /**
+     * This method sets the color of one pixel, blending it
+     * with the previous color by its alpha channel
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param value the color
+     */
+    void setPixel(int x, int y, int value);
+
+    /**
+     * This method draws a line between two points
+     *
+     * @param x1 the x coordinate of the first point
+     * @param y1 the y coordinate of the first point
+     * @param x2 the x coordinate of the second point
+     * @param y2 the y coordinate of the second point
+     * @param color the color of the line
+     */
+    void drawLine(int x1, int y1, int x2, int y2, int color);
+
+    /**
+     * This method draws a text
+     *
+     * @param text the text
+     * @param offX the x coordinate
+     * @param offY the y coordinate
+     * @param color the color of the text
+     */
+    void drawText(String text, int offX, int offY, int color);
+
+}
@@ -0,0 +1,140 @@
+package atom;
+
+/**
+ * This class sorts the atoms from back to front by its depth keys
+ *
+ * The depth keys are computed once per atom during the projection,
+ * and here they are sorted by a radix sort over the bits of the floats.
+ * The radix sort is linear in the number of atoms, and it's stable,
+ * so the atoms with the same depth keep the order of its indices
+ *
+ * The auxiliary arrays are kept between frames, so sort the atoms
+ * of the same molecule frame after frame allocates nothing
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class AtomsDepthSorter {
+
+    /**
+     * The number of bits sorted in each pass
+     */
+    private static final int RADIX_BITS = 8;
+
+    /**
+     * The number of buckets of each pass
+     */
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    /**
+     * The sortable keys of the atoms
+     */
+    private int[] keys = new int[0];
+
+    /**
+     * The auxiliary keys for each pass
+     */
+    private int[] auxKeys = new int[0];
+
+    /**
+     * The auxiliary order for each pass
+     */
+    private int[] auxOrder = new int[0];
+
+    /**
+     * The counts of each bucket
+     */
+    private final int[] counts = new int[RADIX];
+
+    /**
+     * This method converts the depth to an int key whose unsigned
+     * ascending order is the descending order of the depths, so
+     * the farthest atom (the biggest depth) goes first
+     *
+     * The negative floats have the sign bit set and its bits are
+     * ordered backwards, so they are all flipped. The positive
+     * floats only need the sign bit flipped
+     *
+     * @param depth the depth of the atom
+     * @return the key
+     */
+    private static int toKey(float depth) {
+        int bits = Float.floatToIntBits(depth);
+        int ascending = bits < 0 ? ~bits : bits ^ 0x80000000;
+        return ~ascending;
+    }
+
+    /**
+     * This method grows the auxiliary arrays if it is needed
+     *
+     * @param size the number of atoms to sort
+     */
+    private void ensureCapacity(int size) {
+        if ( keys.length < size ) {
+            int capacity = Math.max(size, keys.length * 2);
+            keys = new int[capacity];
+            auxKeys = new int[capacity];
+            auxOrder = new int[capacity];
+        }
+    }
+
+    /**
+     * This method writes in the order array the indices of the
+     * atoms sorted from back to front
+     *
+     * @param depths the depth keys of the atoms
+     * @param size the number of atoms
+     * @param order the array where write the indices of the atoms
+     */
+    public void sortBackToFront(float[] depths, int size, int[] order) {
+        ensureCapacity(size);
+
+        int[] srcKeys = keys;
+        int[] srcOrder = order;
+        int[] dstKeys = auxKeys;
+        int[] dstOrder = auxOrder;
+
+        for ( int i = 0; i < size; i++ ) {
+            srcKeys[i] = toKey(depths[i]);
+            srcOrder[i] = i;
+        }
+
+        for ( int shift = 0; shift < 32; shift += RADIX_BITS ) {
+            for ( int b = 0; b < RADIX; b++ ) {
+                counts[b] = 0;
+            }
+            for ( int i = 0; i < size; i++ ) {
+                counts[(srcKeys[i] >>> shift) & (RADIX - 1)]++;
+            }
+
+            // if all keys are in the same bucket, this pass doesn't change the order
+            if ( size == 0 || counts[(srcKeys[0] >>> shift) & (RADIX - 1)] == size ) {
+                continue;
+            }
+
+            int sum = 0;
+            for ( int b = 0; b < RADIX; b++ ) {
+                int count = counts[b];
+                counts[b] = sum;
+                sum += count;
+            }
+            for ( int i = 0; i < size; i++ ) {
+                int position = counts[(srcKeys[i] >>> shift) & (RADIX - 1)]++;
+                dstKeys[position] = srcKeys[i];
+                dstOrder[position] = srcOrder[i];
+            }
+
+            int[] aux = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = aux;
+            aux = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = aux;
+        }
+
+        if ( srcOrder != order ) {
+            System.arraycopy(srcOrder, 0, order, 0, size);
+        }
+    }
+
+}
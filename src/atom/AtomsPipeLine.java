@@ -5,11 +5,21 @@ import engine3d.Camera;
 import engine3d.Vec4df;
 import engine3d.matrix.Mat4x4;
 import engine3d.matrix.MatrixMath;
+import molecule.AtomsStorage;
 import molecule.Bone;
 import molecule.MatrixMathAtom;
 import molecule.Molecule;
+import molecule.MoleculeInstances;
+import molecule.MoleculeScene;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class encapsulates all the methods
@@ -29,6 +39,7 @@ public class AtomsPipeLine {
 
     /**
      * We need this for the triangleClipAgainstPlane
+     * It's the point of the near plane for cull the atoms
      */
     private final Vec4df PLANE_POINT = new Vec4df(0.0f, 0.0f, 0.1f);
 
@@ -59,9 +70,16 @@ public class AtomsPipeLine {
 
     /**
      * The specific renderer for atoms
+     * It's null when the pipeline renders off-screen
      */
     private AtomsRenderer r;
 
+    /**
+     * The rasterizer which draws the projected atoms, on the
+     * screen or on an off-screen canvas
+     */
+    private AtomsRasterizer rasterizer;
+
     /**
      * The screen width
      */
@@ -72,24 +90,272 @@ public class AtomsPipeLine {
      */
     private int screenHeight;
 
+    /**
+     * The flag to render with the reusable buffers of projected atoms
+     * In this mode, the steady state rendering allocates nothing.
+     * It's the default mode; without it the molecule is rendered
+     * by the Atom objects of the renderer
+     */
+    private boolean isReusingBuffers = true;
+
+    /**
+     * The projected atoms of the last frame, reused frame after frame
+     */
+    private ProjectedAtoms projectedAtoms = new ProjectedAtoms();
+
+    /**
+     * The flag to prepare the next frame while the current one is drawn
+     *
+     * In this mode renderMolecule draws the frame prepared in the previous
+     * call, while a worker thread transforms, projects and sorts the next
+     * frame into a second buffer of projected atoms. The camera and the
+     * world matrix are handed off to the worker when the frame is
+     * submitted, and the worker ends before renderMolecule returns, so the
+     * camera, the transform and the molecule can be modified between calls.
+     * The frame drawn is one call behind: it shows the molecule, the camera
+     * and the world matrix of the previous call
+     */
+    private boolean isPipelined = false;
+
+    /**
+     * The projected atoms of the frame which is prepared by the worker
+     */
+    private ProjectedAtoms preparedAtoms = new ProjectedAtoms();
+
+    /**
+     * The picking grid of the frame which is prepared by the worker
+     */
+    private PickingGrid preparedPickingGrid = new PickingGrid();
+
+    /**
+     * The number of atoms culled in the frame which is prepared by the worker
+     */
+    private int numCulledPrepared = 0;
+
+    /**
+     * If there is a frame prepared to be drawn in the next call
+     */
+    private boolean isFramePrepared = false;
+
+    /**
+     * The worker thread which prepares the frames. It's
+     * built the first time a frame is pipelined
+     */
+    private ExecutorService preparer;
+
+    /**
+     * The number of chunks for each thread of the pool, more than one
+     * so the threads which finish first can steal the remaining work
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The flag to project the atoms in parallel. The atoms are only
+     * projected in parallel into the projected atoms buffers, so when
+     * it's set renderMolecule renders reusing the buffers, even if
+     * isReusingBuffers is not set. The result is the same as the serial one
+     */
+    private boolean isParallel = false;
+
+    /**
+     * The minimum number of atoms to project them in parallel.
+     * With less atoms, split the work costs more than it saves
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * The pool of threads which projects the atoms in parallel
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The sorter of the atoms by its depth keys
+     */
+    private final AtomsDepthSorter depthSorter = new AtomsDepthSorter();
+
+    /**
+     * The world matrix as an array (see MatrixMathAtom.matrixToArray)
+     */
+    private final float[] world = new float[16];
+
+    /**
+     * The view matrix as an array
+     */
+    private final float[] view = new float[16];
+
+    /**
+     * The projection matrix as an array
+     */
+    private final float[] projection = new float[16];
+
+    /**
+     * The view and projection matrices combined: projection x view
+     */
+    private final float[] viewProjection = new float[16];
+
+    /**
+     * The world, view and projection matrices combined:
+     * projection x view x world. It transforms the points from
+     * model space straight to clip space
+     */
+    private final float[] worldViewProjection = new float[16];
+
+    /**
+     * The world and view matrices combined: view x world
+     */
+    private final float[] worldView = new float[16];
+
+    /**
+     * The number of planes of the view frustum which are tested
+     */
+    private static final int NUM_PLANES = 5;
+
+    /**
+     * The planes of the view frustum in model space (a, b, c, d for each
+     * plane): left, right, bottom, top and near
+     */
+    private final float[] frustumPlanes = new float[NUM_PLANES * 4];
+
+    /**
+     * The flag to cull the atoms out of the view frustum
+     */
+    private boolean isCulling = true;
+
+    /**
+     * The number of atoms culled in the last frame
+     */
+    private int numCulledAtoms = 0;
+
+    /**
+     * If the world matrix has been set and the combined matrix is not updated
+     */
+    private boolean isWorldChanged = true;
+
+    /**
+     * If the view matrix has been set and the combined matrices are not updated
+     */
+    private boolean isViewChanged = true;
+
+    /**
+     * The flag to build the picking grid of the projected atoms
+     * each frame, for find the atom under a point of the screen
+     */
+    private boolean isPicking = false;
+
+    /**
+     * The screen-space index of the projected atoms
+     */
+    private PickingGrid pickingGrid = new PickingGrid();
+
+    /**
+     * When many molecules (or many instances of a molecule) are
+     * projected in one batch, the visible atoms of each one are a
+     * range of the projected atoms. For each range is kept its
+     * storage, its world view projection matrix and its first atom
+     */
+    private AtomsStorage[] batchStorages = new AtomsStorage[0];
+
+    private float[][] batchMatrices = new float[0][];
+
+    private int[] batchStarts = new int[1];
+
+    /**
+     * The number of ranges of the batch
+     */
+    private int numBatchRanges = 0;
+
+    /**
+     * The number of molecules or instances culled by its bounding sphere
+     */
+    private int numCulledInstances = 0;
+
+    /**
+     * The arrays for the matrices and the planes of the
+     * molecule which is added to the batch
+     */
+    private final float[] batchTransform = new float[16];
+
+    private final float[] batchWorldView = new float[16];
+
+    private final float[] batchPlanes = new float[NUM_PLANES * 4];
+
+    /**
+     * The indices of the visible atoms of the frame rendered by the
+     * Atom objects (see cullMoleculeAtoms), reused frame after frame
+     */
+    private int[] visibleAtoms = new int[0];
+
+    /**
+     * The flag to record the metrics of each frame rendered: the time of
+     * each stage, the atoms drawn and culled, the sprites scaled and the
+     * bytes allocated. In the pipelined mode, the times of the transform,
+     * cull, project and sort stages are the ones of the frame prepared in
+     * the call, and the counts are the ones of the frame drawn
+     *
+     * The bytes allocated are counted in the calling thread and in the
+     * worker of the pipelined frames. The threads of the fork join pool
+     * which project in parallel (see isParallel) are shared with the rest
+     * of the application, so they are not counted: with the parallel
+     * projection, the bytes allocated are a lower bound
+     */
+    private boolean isMeasuring = false;
+
+    /**
+     * The metrics of the last frames rendered
+     */
+    private FrameMetrics metrics = new FrameMetrics();
+
+    /**
+     * The sprites scaled by the rasterizer before the frame which is measured
+     */
+    private long spritesScaledStart = 0;
+
     /**
      * The constructor
      *
      * @param gc the GameContainerObject
      */
     public AtomsPipeLine(GameContainer gc) {
-        screenWidth = gc.getWidth();
-        screenHeight = gc.getHeight();
-
+        this(gc.getWidth(), gc.getHeight());
         r = new AtomsRenderer(gc);
+        rasterizer = r.getRasterizer();
+    }
+
+    /**
+     * The off-screen constructor
+     *
+     * The molecules are drawn on the canvas passed by parameter,
+     * without window, input or game loop. As there is no renderer,
+     * the pipeline always reuses the projected atoms buffers.
+     * The canvas is not cleared between frames
+     *
+     * @param canvas the canvas where the molecules are drawn
+     */
+    public AtomsPipeLine(OffscreenCanvas canvas) {
+        this(canvas.getScreenWidth(), canvas.getScreenHeight());
+        rasterizer = new AtomsRasterizer(canvas);
+        isReusingBuffers = true;
+    }
+
+    /**
+     * This constructor builds the camera and the matrices
+     *
+     * @param width the screen width
+     * @param height the screen height
+     */
+    private AtomsPipeLine(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
 
         cameraObj = new Camera();
         cameraObj.setOrigin(new Vec4df(0.0f, 0.0f, -10.0f));
         matView = cameraObj.getMatView();
 
-        matProjection = buildNormalProjectionMatrix(gc.getWidth(), gc.getHeight());
+        matProjection = buildNormalProjectionMatrix(width, height);
 
         worldMatrix = MatrixMath.matrixMakeIdentity();
+
+        MatrixMathAtom.matrixToArray(matProjection, projection);
     }
 
     /**
@@ -108,146 +374,954 @@ public class AtomsPipeLine {
     }
 
     /**
-     * This method transform the molecule by the worldMatrix
-     * of the AtomsPipeLine
+     * This method tests the atoms of the molecule against the view
+     * frustum, as cullAtoms, and writes the indices of the visible ones
+     * in visibleAtoms, for projectMoleculeAtoms. The matrices have to
+     * be updated before
      *
-     * In this approach the radius bone of the atom is need to
-     * treat in different way of the others. The origin
-     * of this bone needs to be transformed (the point A),
-     * but the point B has to be fixed always to the side
-     * of the point A
+     * @param storage the atoms to test
+     * @return the number of visible atoms
+     */
+    private int cullMoleculeAtoms(AtomsStorage storage) {
+        float[] boundingRadii = storage.getBoundingRadii();
+        float[] positions = storage.getPositions();
+        if ( visibleAtoms.length < storage.getSize() ) {
+            visibleAtoms = new int[storage.getSize()];
+        }
+
+        int numVisible = 0;
+        for ( int i = 0; i < storage.getSize(); i++ ) {
+            if ( isCulling && !isInFrustum(frustumPlanes, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], boundingRadii[i]) ) {
+                continue;
+            }
+            visibleAtoms[numVisible++] = i;
+        }
+        numCulledAtoms = storage.getSize() - numVisible;
+        return numVisible;
+    }
+
+    /**
+     * This method transforms and projects the visible atoms of the
+     * molecule (see cullMoleculeAtoms) into Atom objects, for the renderer
      *
-     * For this reason, all bones are transformed, and after,
-     * the point B of the bone with index 0 (radius bone)
-     * is recalculated
+     * The atoms are read directly from the arrays of the storage of
+     * the molecule, and its points are taken to the screen in one pass
+     * by the combined world view projection matrix, as in projectAtoms.
+     * The radius bone is treated in different way of the others: its
+     * point B is the centre plus the radius along the X axis of the
+     * world space, so its direction is the first column of the view
+     * projection matrix
      *
-     * @param molecule the molecule to transform
+     * @param molecule the molecule to project
+     * @param numVisible the number of visible atoms
+     * @return the projected atoms
      */
-    private ArrayList<Atom> transformMolecule(Molecule molecule) {
-        ArrayList<Atom> atomsTransformed = new ArrayList<>();
-        Atom atomTransformed;
+    private ArrayList<Atom> projectMoleculeAtoms(Molecule molecule, int numVisible) {
+        AtomsStorage storage = molecule.getStorage();
+        float[] positions = storage.getPositions();
+        float[] orbitals = storage.getOrbitals();
+        byte[] orbitalsCounts = storage.getOrbitalsCounts();
+        float[] radii = storage.getRadii();
+        byte[] kinds = storage.getKinds();
+        int[] colors = storage.getColors();
+
+        float[] m = worldViewProjection;
+        float[] vp = viewProjection;
+        float[] point = new float[3];
+
+        ArrayList<Atom> atomsProjected = new ArrayList<>(numVisible);
 
-        for ( Atom atom : molecule.getAtoms() ) {
-            atomTransformed = new Atom(atom);
+        for ( int k = 0; k < numVisible; k++ ) {
+            int i = visibleAtoms[k];
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
 
-            Bone[] bones = new Bone[atom.getBones().length];
+            Bone[] bones = new Bone[orbitalsCounts[i] + 1];
 
-            for ( int i = 0; i < atom.getBones().length; i++ ) {
-                bones[i] = MatrixMathAtom.matrixMultiplyBone(worldMatrix, atom.getBones()[i]);
+            float cx = m[0] * x + m[1] * y + m[2] * z + m[3];
+            float cy = m[4] * x + m[5] * y + m[6] * z + m[7];
+            float cz = m[8] * x + m[9] * y + m[10] * z + m[11];
+            float cw = m[12] * x + m[13] * y + m[14] * z + m[15];
+            clipToScreen(cx, cy, cz, cw, point, 0);
+            Vec4df centre = new Vec4df(point[0], point[1], point[2]);
+
+            float r = radii[i];
+            clipToScreen(cx + vp[0] * r, cy + vp[4] * r, cz + vp[8] * r, cw + vp[12] * r, point, 0);
+            bones[0] = new Bone(centre, new Vec4df(point[0], point[1], point[2]));
+
+            int offset = i * AtomsStorage.ORBITALS_STRIDE;
+            for ( int j = 1; j < bones.length; j++ ) {
+                float ox = orbitals[offset];
+                float oy = orbitals[offset + 1];
+                float oz = orbitals[offset + 2];
+                clipToScreen(
+                        cx + m[0] * ox + m[1] * oy + m[2] * oz,
+                        cy + m[4] * ox + m[5] * oy + m[6] * oz,
+                        cz + m[8] * ox + m[9] * oy + m[10] * oz,
+                        cw + m[12] * ox + m[13] * oy + m[14] * oz,
+                        point,
+                        0
+                );
+                bones[j] = new Bone(new Vec4df(centre), new Vec4df(point[0], point[1], point[2]), true, storage.isConnected(i, j));
+                offset += 3;
             }
 
-            Vec4df pointRadius = new Vec4df(bones[0].getPointA());
-            pointRadius.addToX(atom.getRadius());
-            bones[0].setPointB(pointRadius);
+            AtomKind atomKind = AtomKind.get(kinds[i]);
+            atomsProjected.add(new Atom(i, radii[i], bones, AtomConstructor.getAtomImage(atomKind), atomKind, colors[i]));
+        }
 
-            atomTransformed.setBones(bones);
+        return atomsProjected;
+    }
 
-            atomsTransformed.add(atomTransformed);
+    /**
+     * This method updates the combined matrices, only if the world
+     * or the view matrices have been set since the last frame
+     */
+    private void updateMatrices() {
+        if ( isViewChanged ) {
+            MatrixMathAtom.matrixToArray(matView, view);
+            MatrixMathAtom.matrixMultiplyArrays(projection, view, viewProjection);
+        }
+        if ( isWorldChanged ) {
+            MatrixMathAtom.matrixToArray(worldMatrix, world);
         }
+        if ( isViewChanged || isWorldChanged ) {
+            MatrixMathAtom.matrixMultiplyArrays(viewProjection, world, worldViewProjection);
+            MatrixMathAtom.matrixMultiplyArrays(view, world, worldView);
+            updateFrustumPlanes();
+        }
+        isViewChanged = false;
+        isWorldChanged = false;
+    }
 
-        return atomsTransformed;
+    /**
+     * This method calculates the planes of the view frustum in model
+     * space, so the atoms can be tested before transform them
+     *
+     * The left, right, bottom and top planes are taken from the rows
+     * of the world view projection matrix: a point is visible if
+     * -w <= x <= w and -w <= y <= w in clip space. The near plane is
+     * the plane of PLANE_POINT and PLANE_NORMAL in view space, brought
+     * to model space by the world view matrix
+     *
+     * The planes are normalized, so the result of evaluate a plane
+     * on a point is the distance from the point to the plane
+     */
+    private void updateFrustumPlanes() {
+        computeFrustumPlanes(worldViewProjection, worldView, frustumPlanes);
     }
 
     /**
-     * This method offsets and scales the atom's bones to get something
-     * visible on the screen
+     * This method calculates the planes of the view frustum in the
+     * space of the model transformed by the matrices passed by parameter
+     * (see updateFrustumPlanes)
      *
-     * @param atom the atom to offset
-     * @param width the screen width
-     * @param height the screen height
+     * @param m the world view projection matrix of the model
+     * @param wv the world view matrix of the model
+     * @param planes the array where write the planes, NUM_PLANES * 4 floats
      */
-    private void offSetProjectedAtom(Atom atom, int width, int height) {
-        for ( Bone bone : atom.getBones() ) {
-            bone.setPointA(MatrixMathAtom.vectorDiv(bone.getPointA(), bone.getPointA().getW()));
-            bone.setPointB(MatrixMathAtom.vectorDiv(bone.getPointB(), bone.getPointB().getW()));
+    private void computeFrustumPlanes(float[] m, float[] wv, float[] planes) {
+        for ( int i = 0; i < 4; i++ ) {
+            planes[i] = m[12 + i] + m[i];
+            planes[4 + i] = m[12 + i] - m[i];
+            planes[8 + i] = m[12 + i] + m[4 + i];
+            planes[12 + i] = m[12 + i] - m[4 + i];
+            planes[16 + i] =
+                    PLANE_NORMAL.getX() * wv[i] +
+                    PLANE_NORMAL.getY() * wv[4 + i] +
+                    PLANE_NORMAL.getZ() * wv[8 + i];
+        }
+        planes[19] -=
+                PLANE_NORMAL.getX() * PLANE_POINT.getX() +
+                PLANE_NORMAL.getY() * PLANE_POINT.getY() +
+                PLANE_NORMAL.getZ() * PLANE_POINT.getZ();
 
-            bone.getPointA().multiplyXBy(-1.0f);
-            bone.getPointA().multiplyYBy(-1.0f);
+        for ( int p = 0; p < NUM_PLANES; p++ ) {
+            float a = planes[p * 4];
+            float b = planes[p * 4 + 1];
+            float c = planes[p * 4 + 2];
+            float length = (float) Math.sqrt(a * a + b * b + c * c);
+            for ( int i = 0; i < 4; i++ ) {
+                planes[p * 4 + i] /= length;
+            }
+        }
+    }
 
-            bone.getPointB().multiplyXBy(-1.0f);
-            bone.getPointB().multiplyYBy(-1.0f);
+    /**
+     * This method tests the atoms against the view frustum, and writes
+     * the indices of the visible atoms in the ids of the projected atoms
+     *
+     * An atom is culled when its bounding sphere is out of one of the
+     * side planes, or when its centre is behind the near plane: the
+     * image is drawn on the centre, so it can't be drawn right if the
+     * centre is behind the camera
+     *
+     * @param storage the atoms to test
+     * @param projected the projected atoms, its size is set to the number of visible atoms
+     */
+    private void cullAtoms(AtomsStorage storage, ProjectedAtoms projected) {
+        projected.setSize(storage.getSize());
+        int numVisible = cullAtoms(storage, frustumPlanes, isCulling, projected, 0, 0);
+        numCulledAtoms = storage.getSize() - numVisible;
+        projected.setSize(numVisible);
+    }
 
-            bone.setPointA(MatrixMathAtom.vectorAdd(bone.getPointA(), OFFSET_VIEW));
+    /**
+     * This method tests the atoms against the view frustum passed by
+     * parameter, and writes the indices of the visible atoms in the ids
+     * of the projected atoms from the position start. The projected
+     * atoms need capacity for all the atoms of the storage after start
+     *
+     * @param storage the atoms to test
+     * @param f the planes of the view frustum in the space of the atoms
+     * @param isTesting false for take all the atoms as visible
+     * @param projected the projected atoms
+     * @param start the position of the first visible atom in the projected atoms
+     * @param instance the instance of the atoms, written in the projected atoms
+     * @return the number of visible atoms
+     */
+    private int cullAtoms(AtomsStorage storage, float[] f, boolean isTesting, ProjectedAtoms projected, int start, int instance) {
+        int[] ids = projected.getIds();
+        int[] instances = projected.getInstances();
 
-            bone.setPointB(MatrixMathAtom.vectorAdd(bone.getPointB(), OFFSET_VIEW));
+        if ( !isTesting ) {
+            for ( int i = 0; i < storage.getSize(); i++ ) {
+                ids[start + i] = i;
+                instances[start + i] = instance;
+            }
+            return storage.getSize();
+        }
 
-            bone.getPointA().multiplyXBy(0.5f * width);
-            bone.getPointA().multiplyYBy(0.5f * height);
+        float[] positions = storage.getPositions();
+        float[] boundingRadii = storage.getBoundingRadii();
+        int numVisible = 0;
 
-            bone.getPointB().multiplyXBy(0.5f * width);
-            bone.getPointB().multiplyYBy(0.5f * height);
+        for ( int i = 0; i < storage.getSize(); i++ ) {
+            if ( !isInFrustum(f, positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2], boundingRadii[i]) ) {
+                continue;
+            }
+            ids[start + numVisible] = i;
+            instances[start + numVisible] = instance;
+            numVisible++;
         }
+        return numVisible;
     }
 
     /**
-     * This method projects the atoms
+     * This method tests an atom against the view frustum: it's visible
+     * if its bounding sphere is not out of one of the side planes and
+     * its centre is not behind the near plane
      *
-     * @param atoms the atoms to project
-     * @param width the screen width
-     * @param height the screen height
-     * @return the projected atoms
+     * @param f the planes of the view frustum in the space of the atom
+     * @param x the x of the centre of the atom
+     * @param y the y of the centre of the atom
+     * @param z the z of the centre of the atom
+     * @param radius the radius of the sphere which bounds the atom
+     * @return true if the atom is visible
      */
-    private ArrayList<Atom> projectAtoms(ArrayList<Atom> atoms, int width, int height) {
-        ArrayList<Atom> atomsProjected = new ArrayList<>();
-        Atom atomViewed, atomProjected;
+    private static boolean isInFrustum(float[] f, float x, float y, float z, float radius) {
+        float r = -radius;
+        return f[0] * x + f[1] * y + f[2] * z + f[3] >= r &&
+                f[4] * x + f[5] * y + f[6] * z + f[7] >= r &&
+                f[8] * x + f[9] * y + f[10] * z + f[11] >= r &&
+                f[12] * x + f[13] * y + f[14] * z + f[15] >= r &&
+                f[16] * x + f[17] * y + f[18] * z + f[19] >= 0.0f;
+    }
 
-        for ( Atom atom : atoms ) {
+    /**
+     * This method does the perspective divide of a point in clip space
+     * and offsets and scales it to the screen: the X and Y are
+     * inverted and moved by OFFSET_VIEW to the range [0, 2], and
+     * scaled by the half of the screen size
+     *
+     * @param x the x of the point in clip space
+     * @param y the y of the point in clip space
+     * @param z the z of the point in clip space
+     * @param w the w of the point in clip space
+     * @param out the array where write the x, y, z on screen
+     * @param offset the position of out where write
+     */
+    private void clipToScreen(float x, float y, float z, float w, float[] out, int offset) {
+        out[offset] = (-x / w + OFFSET_VIEW.getX()) * 0.5f * screenWidth;
+        out[offset + 1] = (-y / w + OFFSET_VIEW.getY()) * 0.5f * screenHeight;
+        out[offset + 2] = z / w + OFFSET_VIEW.getZ();
+    }
 
-            atomViewed = new Atom(
-                    atom.getId(),
-                    atom.getRadius(),
-                    MatrixMathAtom.matrixMultiplyBones(matView, atom.getBones()),
-                    atom.getImage(),
-                    atom.getAtomKind(),
-                    atom.getColor()
-            );
+    /**
+     * This method culls the atoms of the storage and transforms and
+     * projects the visible ones into the projected atoms buffers.
+     * Nothing is allocated while the buffers have enough capacity
+     *
+     * All is done in one pass by the combined world view projection
+     * matrix. As the orbitals are offsets from the centre, the clip
+     * position of its end points is the clip position of the centre
+     * plus the offset transformed as a direction. The radius point is
+     * the centre plus the radius along the X axis of the world space,
+     * so its direction is the first column of the view projection matrix
+     *
+     * @param storage the atoms to project
+     * @param projected the buffers where write the projected atoms
+     */
+    private void projectAtoms(AtomsStorage storage, ProjectedAtoms projected) {
+        long time = startTime();
+        cullAtoms(storage, projected);
+        time = addTime(FrameMetrics.Metric.CULL_TIME, time);
+        int size = projected.getSize();
 
-            atomProjected = new Atom(
-                    atomViewed.getId(),
-                    atomViewed.getRadius(),
-                    MatrixMathAtom.matrixMultiplyBones(matProjection, atomViewed.getBones()),
-                    atom.getImage(),
-                    atom.getAtomKind(),
-                    atom.getColor()
+        if ( isParallel && size >= parallelThreshold ) {
+            int chunk = Math.max(
+                    parallelThreshold / 2,
+                    size / (pool.getParallelism() * CHUNKS_PER_THREAD)
             );
+            pool.invoke(new ProjectionTask(storage, projected, worldViewProjection, 0, size, Math.max(chunk, 1)));
+        } else {
+            projectAtoms(storage, projected, worldViewProjection, 0, size);
+        }
+        addTime(FrameMetrics.Metric.PROJECT_TIME, time);
+    }
 
-            offSetProjectedAtom(atomProjected, width, height);
+    /**
+     * This method projects the visible atoms which are in the range
+     * [from, to) of the projected atoms. The index of each atom in the
+     * storage is read from the ids written by cullAtoms. The atoms are
+     * independent, so different ranges can be projected at the same
+     * time by different threads
+     *
+     * @param storage the atoms to project
+     * @param projected the buffers where write the projected atoms
+     * @param m the world view projection matrix of the atoms
+     * @param from the first projected atom of the range
+     * @param to the end of the range (exclusive)
+     */
+    private void projectAtoms(AtomsStorage storage, ProjectedAtoms projected, float[] m, int from, int to) {
+        float[] positions = storage.getPositions();
+        float[] orbitals = storage.getOrbitals();
+        byte[] orbitalsCounts = storage.getOrbitalsCounts();
+        float[] radii = storage.getRadii();
+
+        float[] centres = projected.getCentres();
+        float[] projectedOrbitals = projected.getOrbitals();
+        float[] projectedRadii = projected.getRadii();
+        float[] depths = projected.getDepths();
+        int[] ids = projected.getIds();
+        byte[] projectedOrbitalsCounts = projected.getOrbitalsCounts();
+        byte[] kinds = storage.getKinds();
+        int[] colors = storage.getColors();
+        byte[] projectedKinds = projected.getKinds();
+        int[] projectedColors = projected.getColors();
+
+        float[] vp = viewProjection;
+
+        for ( int k = from; k < to; k++ ) {
+            int i = ids[k];
+            projectedOrbitalsCounts[k] = orbitalsCounts[i];
+            projectedKinds[k] = kinds[i];
+            projectedColors[k] = colors[i];
+
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
 
-            atomsProjected.add(atomProjected);
+            float cx = m[0] * x + m[1] * y + m[2] * z + m[3];
+            float cy = m[4] * x + m[5] * y + m[6] * z + m[7];
+            float cz = m[8] * x + m[9] * y + m[10] * z + m[11];
+            float cw = m[12] * x + m[13] * y + m[14] * z + m[15];
+            clipToScreen(cx, cy, cz, cw, centres, k * 3);
+
+            float r = radii[i];
+            float rw = cw + vp[12] * r;
+            float dx = centres[k * 3] - (-(cx + vp[0] * r) / rw + OFFSET_VIEW.getX()) * 0.5f * screenWidth;
+            float dy = centres[k * 3 + 1] - (-(cy + vp[4] * r) / rw + OFFSET_VIEW.getY()) * 0.5f * screenHeight;
+            projectedRadii[k] = (float) Math.sqrt(dx * dx + dy * dy);
+
+            int offset = i * AtomsStorage.ORBITALS_STRIDE;
+            int projectedOffset = k * AtomsStorage.ORBITALS_STRIDE;
+            float depth = 0;
+            for ( int j = 0; j < orbitalsCounts[i]; j++ ) {
+                float ox = orbitals[offset];
+                float oy = orbitals[offset + 1];
+                float oz = orbitals[offset + 2];
+                clipToScreen(
+                        cx + m[0] * ox + m[1] * oy + m[2] * oz,
+                        cy + m[4] * ox + m[5] * oy + m[6] * oz,
+                        cz + m[8] * ox + m[9] * oy + m[10] * oz,
+                        cw + m[12] * ox + m[13] * oy + m[14] * oz,
+                        projectedOrbitals,
+                        projectedOffset
+                );
+                depth += projectedOrbitals[projectedOffset + 2];
+                offset += 3;
+                projectedOffset += 3;
+            }
+            depths[k] = orbitalsCounts[i] > 0 ? depth / orbitalsCounts[i] : centres[k * 3 + 2];
+        }
+    }
+
+    /**
+     * This class projects a range of atoms. If the range is bigger
+     * than the chunk size, it's split in two halves which are
+     * projected in parallel by the fork join pool
+     */
+    private class ProjectionTask extends RecursiveAction {
+
+        private final AtomsStorage storage;
+
+        private final ProjectedAtoms projected;
+
+        private final float[] m;
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunk;
+
+        ProjectionTask(AtomsStorage storage, ProjectedAtoms projected, float[] m, int from, int to, int chunk) {
+            this.storage = storage;
+            this.projected = projected;
+            this.m = m;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from <= chunk ) {
+                projectAtoms(storage, projected, m, from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ProjectionTask(storage, projected, m, from, middle, chunk),
+                        new ProjectionTask(storage, projected, m, middle, to, chunk)
+                );
+            }
         }
 
-        return atomsProjected;
+    }
+
+    /**
+     * This method transforms and projects the molecule into the
+     * projected atoms buffers, without sort or draw them
+     *
+     * @param molecule the molecule to project
+     */
+    public void projectMolecule(Molecule molecule) {
+        long time = startTime();
+        updateMatrices();
+        addTime(FrameMetrics.Metric.TRANSFORM_TIME, time);
+        projectAtoms(molecule.getStorage(), projectedAtoms);
+        updatePickingGrid(pickingGrid, projectedAtoms);
+    }
+
+    /**
+     * This method builds the picking grid with the projected atoms
+     * passed by parameter if the picking is enabled, or else empties
+     * it, so the grid never holds the atoms of an older frame
+     *
+     * @param grid the picking grid
+     * @param atoms the projected atoms of the frame
+     */
+    private void updatePickingGrid(PickingGrid grid, ProjectedAtoms atoms) {
+        if ( isPicking ) {
+            grid.build(atoms, rasterizer, screenWidth, screenHeight);
+        } else {
+            grid.clear();
+        }
+    }
+
+    /**
+     * This method looks for the nearest atom drawn at a point of the
+     * screen, in the last frame rendered reusing the buffers. The
+     * picking has to be enabled before render the frame. If the last
+     * frame was rendered by the Atom objects, nothing is picked
+     *
+     * @param x the x coordinate on screen
+     * @param y the y coordinate on screen
+     * @return the index of the atom in the storage of the molecule, or -1 if there is none
+     */
+    public int pickAtom(int x, int y) {
+        if ( !isPicking ) {
+            return -1;
+        }
+        int picked = pickingGrid.pick(x, y);
+        return picked >= 0 ? projectedAtoms.getId(picked) : -1;
+    }
+
+    /**
+     * This method looks for the instance of the nearest atom drawn at
+     * a point of the screen, in the last frame of instances rendered.
+     * When a scene is rendered, the instance is the molecule of the scene
+     *
+     * @param x the x coordinate on screen
+     * @param y the y coordinate on screen
+     * @return the index of the instance, or -1 if there is none
+     */
+    public int pickInstance(int x, int y) {
+        if ( !isPicking ) {
+            return -1;
+        }
+        int picked = pickingGrid.pick(x, y);
+        return picked >= 0 ? projectedAtoms.getInstance(picked) : -1;
+    }
+
+    /**
+     * This method starts a batch of molecules, which are culled and
+     * projected together into the projected atoms buffers
+     */
+    private void beginBatch() {
+        long time = startTime();
+        updateMatrices();
+        addTime(FrameMetrics.Metric.TRANSFORM_TIME, time);
+        projectedAtoms.setSize(0);
+        numBatchRanges = 0;
+        numCulledAtoms = 0;
+        numCulledInstances = 0;
+    }
+
+    /**
+     * This method culls the atoms of a molecule transformed by the
+     * matrix passed by parameter, and adds the visible ones to the batch
+     *
+     * The molecule is transformed by the world matrix of the pipeline
+     * and after by its own matrix. It's culled first by the sphere which
+     * bounds it: if the sphere is out of the frustum the molecule is
+     * skipped, and if it's completely inside the frustum, its atoms
+     * are not tested one by one
+     *
+     * @param storage the atoms of the molecule
+     * @param transforms the array with the matrix of the molecule
+     * @param transformOffset the position of the matrix in the array
+     * @param bounds the array with the bounding sphere of the molecule (x, y, z and radius)
+     * @param boundsOffset the position of the sphere in the array
+     * @param instance the number of the molecule, written in the projected atoms
+     */
+    private void addToBatch(AtomsStorage storage, float[] transforms, int transformOffset, float[] bounds, int boundsOffset, int instance) {
+        if ( batchMatrices.length <= numBatchRanges ) {
+            int capacity = Math.max(numBatchRanges + 1, batchMatrices.length * 2);
+            float[][] matrices = Arrays.copyOf(batchMatrices, capacity);
+            for ( int i = batchMatrices.length; i < capacity; i++ ) {
+                matrices[i] = new float[16];
+            }
+            batchMatrices = matrices;
+            batchStorages = Arrays.copyOf(batchStorages, capacity);
+            batchStarts = Arrays.copyOf(batchStarts, capacity + 1);
+        }
+
+        System.arraycopy(transforms, transformOffset, batchTransform, 0, 16);
+        float[] m = batchMatrices[numBatchRanges];
+        MatrixMathAtom.matrixMultiplyArrays(worldViewProjection, batchTransform, m);
+        MatrixMathAtom.matrixMultiplyArrays(worldView, batchTransform, batchWorldView);
+        computeFrustumPlanes(m, batchWorldView, batchPlanes);
+
+        boolean isInside = true;
+        boolean isOutside = false;
+        if ( isCulling ) {
+            float[] f = batchPlanes;
+            float x = bounds[boundsOffset];
+            float y = bounds[boundsOffset + 1];
+            float z = bounds[boundsOffset + 2];
+            float radius = bounds[boundsOffset + 3];
+            for ( int p = 0; p < NUM_PLANES && !isOutside; p++ ) {
+                float distance = f[p * 4] * x + f[p * 4 + 1] * y + f[p * 4 + 2] * z + f[p * 4 + 3];
+                isOutside = distance < -radius;
+                isInside &= distance >= radius;
+            }
+        }
+        if ( isOutside ) {
+            numCulledInstances++;
+            numCulledAtoms += storage.getSize();
+            return;
+        }
+
+        int start = projectedAtoms.getSize();
+        projectedAtoms.ensureCapacity(start + storage.getSize());
+        int count = cullAtoms(storage, batchPlanes, !isInside, projectedAtoms, start, instance);
+        numCulledAtoms += storage.getSize() - count;
+        if ( count > 0 ) {
+            batchStorages[numBatchRanges] = storage;
+            batchStarts[numBatchRanges] = start;
+            numBatchRanges++;
+            projectedAtoms.setSize(start + count);
+        }
+    }
+
+    /**
+     * This method projects the visible atoms of all the molecules
+     * added to the batch, in parallel if there are enough
+     */
+    private void projectBatch() {
+        long time = startTime();
+        batchStarts[numBatchRanges] = projectedAtoms.getSize();
+        if ( isParallel && projectedAtoms.getSize() >= parallelThreshold ) {
+            pool.invoke(new BatchProjectionTask(0, numBatchRanges));
+        } else {
+            for ( int v = 0; v < numBatchRanges; v++ ) {
+                projectAtoms(batchStorages[v], projectedAtoms, batchMatrices[v], batchStarts[v], batchStarts[v + 1]);
+            }
+        }
+        Arrays.fill(batchStorages, 0, numBatchRanges, null);
+        addTime(FrameMetrics.Metric.PROJECT_TIME, time);
+        updatePickingGrid(pickingGrid, projectedAtoms);
+    }
+
+    /**
+     * This class projects the atoms of a range of the batch. If the
+     * range has more than one molecule, it's split in two halves, and
+     * the atoms of one molecule are split by a ProjectionTask
+     */
+    private class BatchProjectionTask extends RecursiveAction {
+
+        private final int from;
+
+        private final int to;
+
+        BatchProjectionTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from == 1 ) {
+                int size = batchStarts[to] - batchStarts[from];
+                int chunk = Math.max(parallelThreshold / 2, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+                new ProjectionTask(batchStorages[from], projectedAtoms, batchMatrices[from], batchStarts[from], batchStarts[to], Math.max(chunk, 1)).compute();
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new BatchProjectionTask(from, middle),
+                        new BatchProjectionTask(middle, to)
+                );
+            }
+        }
+
+    }
+
+    /**
+     * This method transforms and projects all the instances of a
+     * molecule into the projected atoms buffers, without sort or
+     * draw them. The atoms of all the instances are sorted together.
+     * Each instance is culled by the sphere which bounds the molecule
+     * (see addToBatch)
+     *
+     * @param instances the instances to project
+     */
+    public void projectInstances(MoleculeInstances instances) {
+        beginBatch();
+        AtomsStorage storage = instances.getMolecule().getStorage();
+        long time = startTime();
+        for ( int j = 0; j < instances.getNumInstances(); j++ ) {
+            addToBatch(storage, instances.getTransforms(), j * 16, instances.getBounds(), 0, j);
+        }
+        addTime(FrameMetrics.Metric.CULL_TIME, time);
+        projectBatch();
+    }
+
+    /**
+     * This method transforms and projects all the molecules of the
+     * scene into the projected atoms buffers, without sort or draw
+     * them. The atoms of all the molecules are sorted together, so
+     * the molecules which overlap are drawn right. Each molecule is
+     * culled by its bounding sphere (see addToBatch)
+     *
+     * @param scene the scene to project
+     */
+    public void projectScene(MoleculeScene scene) {
+        beginBatch();
+        long time = startTime();
+        for ( int i = 0; i < scene.getNumMolecules(); i++ ) {
+            addToBatch(scene.getMolecule(i).getStorage(), scene.getTransforms(), i * 16, scene.getBounds(), i * 4, i);
+        }
+        addTime(FrameMetrics.Metric.CULL_TIME, time);
+        projectBatch();
+    }
+
+    /**
+     * This method renders all the molecules of the scene in one pass,
+     * reusing the projected atoms buffers
+     *
+     * @param scene the scene to render
+     */
+    public void renderScene(MoleculeScene scene) {
+        beginFrame();
+        projectScene(scene);
+        sortProjectedAtoms();
+        drawProjectedAtoms();
+        endFrame(projectedAtoms.getSize(), numCulledAtoms);
+    }
+
+    /**
+     * This method renders all the instances of a molecule,
+     * reusing the projected atoms buffers
+     *
+     * @param instances the instances to render
+     */
+    public void renderInstances(MoleculeInstances instances) {
+        beginFrame();
+        projectInstances(instances);
+        sortProjectedAtoms();
+        drawProjectedAtoms();
+        endFrame(projectedAtoms.getSize(), numCulledAtoms);
+    }
+
+    /**
+     * This method sorts from back to front the projected atoms
+     */
+    public void sortProjectedAtoms() {
+        long time = startTime();
+        depthSorter.sortBackToFront(projectedAtoms.getDepths(), projectedAtoms.getSize(), projectedAtoms.getOrder());
+        addTime(FrameMetrics.Metric.SORT_TIME, time);
+    }
+
+    /**
+     * This method draws the projected atoms by the rasterizer
+     */
+    private void drawProjectedAtoms() {
+        long time = startTime();
+        rasterizer.renderAtoms(projectedAtoms);
+        addTime(FrameMetrics.Metric.DRAW_TIME, time);
+    }
+
+    /**
+     * This method returns the time now if the frame is measured
+     *
+     * @return the time by System.nanoTime, or 0 if the frame is not measured
+     */
+    private long startTime() {
+        return isMeasuring ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * This method adds the time from start until now to the
+     * stage, if the frame is measured (see FrameMetrics.addTime)
+     *
+     * @param stage the time of the stage
+     * @param start the time when the stage started
+     * @return the time now, or 0 if the frame is not measured
+     */
+    private long addTime(FrameMetrics.Metric stage, long start) {
+        return isMeasuring ? metrics.addTime(stage, start) : 0L;
+    }
+
+    /**
+     * This method starts to measure a frame, if the metrics are recorded
+     */
+    private void beginFrame() {
+        if ( isMeasuring ) {
+            metrics.beginFrame();
+            spritesScaledStart = rasterizer.getSpritesCache().getMisses();
+        }
+    }
+
+    /**
+     * This method ends to measure the frame, if the metrics are recorded,
+     * and draws the metrics on the renderer if it's drawing them. The
+     * metrics are drawn after the frame is measured, so they don't
+     * count in the time of the frame
+     *
+     * @param numDrawn the number of atoms drawn in the frame
+     * @param numCulled the number of atoms culled in the frame
+     */
+    private void endFrame(int numDrawn, int numCulled) {
+        if ( !isMeasuring ) {
+            return;
+        }
+        metrics.add(FrameMetrics.Metric.ATOMS_DRAWN, numDrawn);
+        metrics.add(FrameMetrics.Metric.ATOMS_CULLED, numCulled);
+        metrics.add(FrameMetrics.Metric.SPRITES_SCALED, rasterizer.getSpritesCache().getMisses() - spritesScaledStart);
+        metrics.endFrame();
+        if ( r != null && r.isDrawingMetrics() ) {
+            r.drawMetrics(metrics);
+        }
+    }
+
+    /**
+     * This method renders the molecule reusing the projected atoms buffers
+     *
+     * @param molecule the molecule to render
+     */
+    private void renderMoleculeReusingBuffers(Molecule molecule) {
+        projectMolecule(molecule);
+        sortProjectedAtoms();
+        drawProjectedAtoms();
+    }
+
+    /**
+     * This method renders the molecule in the pipelined mode: the frame
+     * prepared in the previous call is drawn while the worker prepares
+     * the next one, so the time of the frame is the longest of both
+     * instead of its sum. The first frame is prepared before it's drawn
+     *
+     * @param molecule the molecule to render
+     */
+    private void renderMoleculePipelined(Molecule molecule) {
+        if ( !isFramePrepared ) {
+            waitFrame(submitFrame(molecule));
+        }
+        swapFrames();
+        int numCulled = numCulledAtoms;
+        Future<?> next = submitFrame(molecule);
+        try {
+            drawProjectedAtoms();
+        } finally {
+            waitFrame(next);
+            numCulledAtoms = numCulled;
+        }
+        isFramePrepared = true;
+    }
+
+    /**
+     * This method hands off the state of the frame to the worker, and
+     * starts to prepare the frame into the prepared buffers. The camera
+     * and the world matrix are copied into the matrix arrays here, in
+     * the calling thread, and they are not modified until the worker ends
+     *
+     * @param molecule the molecule to prepare
+     * @return the future of the frame, to wait for it
+     */
+    private Future<?> submitFrame(Molecule molecule) {
+        long time = startTime();
+        updateMatrices();
+        addTime(FrameMetrics.Metric.TRANSFORM_TIME, time);
+        AtomsStorage storage = molecule.getStorage();
+        ProjectedAtoms prepared = preparedAtoms;
+        PickingGrid grid = preparedPickingGrid;
+        if ( preparer == null ) {
+            preparer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "atoms-frame-preparer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return preparer.submit(() -> {
+            long allocated = isMeasuring ? FrameMetrics.getThreadAllocatedBytes() : -1;
+            projectAtoms(storage, prepared);
+            numCulledPrepared = numCulledAtoms;
+            long sortTime = startTime();
+            depthSorter.sortBackToFront(prepared.getDepths(), prepared.getSize(), prepared.getOrder());
+            addTime(FrameMetrics.Metric.SORT_TIME, sortTime);
+            updatePickingGrid(grid, prepared);
+            // The bytes allocated by the worker count in the frame too
+            if ( allocated >= 0 ) {
+                metrics.add(FrameMetrics.Metric.BYTES_ALLOCATED, FrameMetrics.getThreadAllocatedBytes() - allocated);
+            }
+        });
+    }
+
+    /**
+     * This method waits until the worker ends to prepare the frame.
+     * The errors of the worker are thrown in the calling thread
+     *
+     * @param frame the future of the frame
+     */
+    private void waitFrame(Future<?> frame) {
+        try {
+            frame.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            isFramePrepared = false;
+            throw new IllegalStateException("Interrupted while the frame was prepared", e);
+        } catch ( ExecutionException e ) {
+            isFramePrepared = false;
+            Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * This method swaps the buffers of the frame which is drawn
+     * and the buffers of the frame which is prepared
+     */
+    private void swapFrames() {
+        ProjectedAtoms atoms = projectedAtoms;
+        projectedAtoms = preparedAtoms;
+        preparedAtoms = atoms;
+        PickingGrid grid = pickingGrid;
+        pickingGrid = preparedPickingGrid;
+        preparedPickingGrid = grid;
+        numCulledAtoms = numCulledPrepared;
+    }
+
+    /**
+     * This method calculates the depth key of the projected atom:
+     * the mean Z of the point B of its bones, without the radius bone.
+     * The atoms without orbitals use the Z of its centre
+     *
+     * @param atom the projected atom
+     * @return the depth key
+     */
+    private static float meanZ(Atom atom) {
+        if ( atom.getBones().length == 1 ) {
+            return atom.getBones()[0].getPointA().getZ();
+        }
+        float medZ = 0;
+        for ( int i = 1; i < atom.getBones().length; i++ ) {
+            medZ += atom.getBones()[i].getPointB().getZ();
+        }
+        return medZ / (atom.getBones().length - 1);
     }
 
     /**
      * This method renders in screen the molecule
      * passed by parameter
      *
+     * If the pipeline is reusing buffers, the frame is
+     * rendered without allocate new objects. If it's pipelined,
+     * the frame prepared in the previous call is drawn while the
+     * next one is prepared (see isPipelined). If it's measuring,
+     * the metrics of the frame are recorded (see isMeasuring)
+     *
      * @param molecule the
      */
     public void renderMolecule(Molecule molecule) {
-        ArrayList<Atom> atomsTransformed = transformMolecule(molecule);
+        beginFrame();
+        if ( isPipelined ) {
+            renderMoleculePipelined(molecule);
+            endFrame(projectedAtoms.getSize(), numCulledAtoms);
+            return;
+        }
+        if ( isReusingBuffers || isParallel || r == null ) {
+            renderMoleculeReusingBuffers(molecule);
+            endFrame(projectedAtoms.getSize(), numCulledAtoms);
+            return;
+        }
 
-        ArrayList<Atom> atomsProjected = projectAtoms(atomsTransformed, screenWidth, screenHeight);
+        long time = startTime();
+        updateMatrices();
+        time = addTime(FrameMetrics.Metric.TRANSFORM_TIME, time);
 
-        atomsProjected.sort(
-                (o1, o2) -> {
-                    float medZ1 = 0;
-                    for ( int i = 1; i < o1.getBones().length; i++ ) { // todo esto da igual
-                        medZ1 += o1.getBones()[i].getPointB().getZ();
-                    }
-                    medZ1 /= (o1.getBones().length - 1);
+        int numVisible = cullMoleculeAtoms(molecule.getStorage());
+        time = addTime(FrameMetrics.Metric.CULL_TIME, time);
 
-                    float medZ2 = 0;
-                    for ( int i = 1; i < o2.getBones().length; i++ ) {
-                        medZ2 += o2.getBones()[i].getPointB().getZ();
-                    }
-                    medZ2 /= (o2.getBones().length - 1);
-                    return Float.compare(medZ2, medZ1);
-                }
-        );
+        ArrayList<Atom> atomsProjected = projectMoleculeAtoms(molecule, numVisible);
+        time = addTime(FrameMetrics.Metric.PROJECT_TIME, time);
 
-        r.renderAtoms(atomsProjected);
+        float[] depths = new float[atomsProjected.size()];
+        for ( int i = 0; i < depths.length; i++ ) {
+            depths[i] = meanZ(atomsProjected.get(i));
+        }
+        int[] order = new int[depths.length];
+        depthSorter.sortBackToFront(depths, depths.length, order);
+
+        ArrayList<Atom> atomsSorted = new ArrayList<>(order.length);
+        for ( int i : order ) {
+            atomsSorted.add(atomsProjected.get(i));
+        }
+        time = addTime(FrameMetrics.Metric.SORT_TIME, time);
+
+        r.renderAtoms(atomsSorted);
+        addTime(FrameMetrics.Metric.DRAW_TIME, time);
+        // The Atom objects are not indexed, so the atoms of an older frame can't be picked
+        pickingGrid.clear();
+        endFrame(atomsSorted.size(), numCulledAtoms);
     }
 
     //////////////////////////////////////////////////////////////////////////////////////////////////////////
@@ -264,20 +1338,136 @@ public class AtomsPipeLine {
         return r;
     }
 
+    public AtomsRasterizer getRasterizer() {
+        return rasterizer;
+    }
+
+    public ProjectedAtoms getProjectedAtoms() {
+        return projectedAtoms;
+    }
+
+    public boolean isReusingBuffers() {
+        return isReusingBuffers;
+    }
+
+    /**
+     * The buffers are reused by default. When they are not reused, the
+     * molecule is projected by the same world view projection matrix into
+     * Atom objects, which are drawn by the renderer. The parallel
+     * projection only works reusing the buffers (see isParallel)
+     */
+    public void setReusingBuffers(boolean reusingBuffers) {
+        isReusingBuffers = reusingBuffers;
+    }
+
+    public boolean isPipelined() {
+        return isPipelined;
+    }
+
+    /**
+     * When the pipelined mode is disabled, the prepared frame
+     * is discarded and the worker thread is stopped
+     */
+    public void setPipelined(boolean pipelined) {
+        isPipelined = pipelined;
+        if ( !pipelined ) {
+            isFramePrepared = false;
+            if ( preparer != null ) {
+                preparer.shutdown();
+                preparer = null;
+            }
+        }
+    }
+
+    public boolean isMeasuring() {
+        return isMeasuring;
+    }
+
+    public FrameMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMeasuring(boolean measuring) {
+        isMeasuring = measuring;
+    }
+
+    public void setMetrics(FrameMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public boolean isPicking() {
+        return isPicking;
+    }
+
+    public PickingGrid getPickingGrid() {
+        return pickingGrid;
+    }
+
+    public void setPicking(boolean picking) {
+        isPicking = picking;
+    }
+
+    public boolean isCulling() {
+        return isCulling;
+    }
+
+    public int getNumCulledAtoms() {
+        return numCulledAtoms;
+    }
+
+    public int getNumCulledInstances() {
+        return numCulledInstances;
+    }
+
+    public void setCulling(boolean culling) {
+        isCulling = culling;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * When the parallel projection is enabled, renderMolecule renders
+     * reusing the buffers, because only that path projects in parallel
+     */
+    public void setParallel(boolean parallel) {
+        isParallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
     public void setCamera(Camera camera) {
         this.cameraObj = camera;
     }
 
     public void setMatView(Mat4x4 matView) {
         this.matView = matView;
+        isViewChanged = true;
     }
 
     public void setTransform(Mat4x4 transform) {
         worldMatrix = transform;
+        isWorldChanged = true;
     }
 
     public void setRenderer(AtomsRenderer r) {
         this.r = r;
+        rasterizer = r.getRasterizer();
     }
 
     /**
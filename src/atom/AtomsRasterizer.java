@@ -0,0 +1,679 @@
+package atom;
+
+import engine.gfx.HexColors;
+import engine.gfx.images.Image;
+import molecule.AtomsStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class draws the projected atoms on a canvas
+ *
+ * The canvas can be the screen (AtomsRenderer) or an in-memory
+ * pixel buffer (OffscreenCanvas), so the same code draws the
+ * atoms with or without window
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class AtomsRasterizer {
+
+    /**
+     * The flag for draw the atom images
+     */
+    private boolean isDrawingAtomImages = true;
+
+    /**
+     * The flag for draw the bones
+     */
+    private boolean isDrawingBones = false;
+
+    /**
+     * The flag for draw the radius bones
+     */
+    private boolean isDrawingRadius = false;
+
+    /**
+     * The flag to draw the text bones
+     *
+     * For each bone is drawn its index of the
+     * bone array of the atom. It's useful
+     * for identify the bones which is wanted
+     * to join a new atom when it's building
+     * a molecule
+     */
+    private boolean isDrawingBonesTexts = false;
+
+    /**
+     * The flag to draw the atoms index
+     */
+    private boolean isDrawingAtomsIndex = false;
+
+    /**
+     * The level of detail thresholds, in pixels of projected radius
+     *
+     * The atoms with a projected radius smaller than pointLodRadius
+     * are drawn as a single point, and the atoms smaller than
+     * discLodRadius as a filled disc of its color, instead of the image.
+     * Set both to zero to draw always the images
+     */
+    private float pointLodRadius = 1.0f;
+
+    private float discLodRadius = 3.0f;
+
+    /**
+     * The flag to draw the atom images from the cache of scaled sprites,
+     * instead of resample the image for each atom
+     */
+    private boolean isUsingSpritesCache = true;
+
+    /**
+     * The flag to blend the sprites with the canvas by its alpha channel.
+     * If it's false, the pixels of the sprites are opaque or transparent
+     */
+    private boolean isAlphaBlending = true;
+
+    /**
+     * The cache of scaled sprites
+     */
+    private final AtomSpritesCache spritesCache = new AtomSpritesCache();
+
+    /**
+     * The flag to draw the atoms by screen tiles in parallel
+     *
+     * The atoms are binned in the tiles which they overlap, keeping the
+     * order of drawing, and each tile is drawn by a thread of the pool
+     * clipped to its rectangle, so the result is the same as draw the
+     * atoms one by one. The bones and the texts can't be clipped, so
+     * the atoms are drawn one by one if they are drawn. The canvas has
+     * to allow to set different pixels from different threads
+     */
+    private boolean isTileParallel = false;
+
+    /**
+     * The size of the side of the tiles in pixels
+     */
+    private int tileSize = 64;
+
+    /**
+     * The pool of threads which draws the tiles
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The sprite of the atom at each position of the drawing order, taken
+     * from the cache before the tiles are drawn because the cache is not
+     * thread safe. It's null if the atom is not drawn from a sprite
+     */
+    private AtomSpritesCache.Sprite[] orderSprites = new AtomSpritesCache.Sprite[0];
+
+    /**
+     * The tiles overlapped by the atom at each position of the drawing
+     * order: first column, first row, last column and last row
+     */
+    private int[] orderTiles = new int[0];
+
+    /**
+     * The first entry of each tile in tilesEntries, and the end of the last tile
+     */
+    private int[] tilesStarts = new int[1];
+
+    /**
+     * The positions in the drawing order of the atoms of each tile, in order
+     */
+    private int[] tilesEntries = new int[0];
+
+    /**
+     * The texts of the orbitals number, built only once
+     */
+    private static final String[] ORBITALS_TEXTS = { "0", "1", "2", "3", "4" };
+
+    /**
+     * The canvas where the atoms are drawn
+     */
+    private final AtomsCanvas canvas;
+
+    /**
+     * The constructor
+     *
+     * @param canvas the canvas where the atoms are drawn
+     */
+    public AtomsRasterizer(AtomsCanvas canvas) {
+        this.canvas = canvas;
+    }
+
+    /**
+     * This method draws the image scaled by the factor passed by parameter
+     * and centred on the point (x, y). The pixels are sampled by the
+     * nearest neighbour, and nothing is allocated
+     *
+     * @param image the image to draw
+     * @param x the x coordinate of the centre on screen
+     * @param y the y coordinate of the centre on screen
+     * @param scale the scale factor of the image
+     * @param clipX0 the first column which can be drawn
+     * @param clipY0 the first row which can be drawn
+     * @param clipX1 the end of the columns which can be drawn (exclusive)
+     * @param clipY1 the end of the rows which can be drawn (exclusive)
+     */
+    private void drawScaledImage(Image image, float x, float y, float scale, int clipX0, int clipY0, int clipX1, int clipY1) {
+        if ( scale <= 0.0f ) {
+            return;
+        }
+        float halfW = image.getW() * scale / 2.0f;
+        float halfH = image.getH() * scale / 2.0f;
+        float left = x - halfW;
+        float top = y - halfH;
+
+        int startX = Math.max((int) Math.ceil(left), clipX0);
+        int startY = Math.max((int) Math.ceil(top), clipY0);
+        int endX = Math.min((int) (x + halfW), clipX1);
+        int endY = Math.min((int) (y + halfH), clipY1);
+
+        float invScale = 1.0f / scale;
+        int[] p = image.getP();
+        for ( int py = startY; py < endY; py++ ) {
+            int imageY = Math.min((int) ((py - top) * invScale), image.getH() - 1);
+            for ( int px = startX; px < endX; px++ ) {
+                int imageX = Math.min((int) ((px - left) * invScale), image.getW() - 1);
+                canvas.setPixel(px, py, p[imageX + imageY * image.getW()]);
+            }
+        }
+    }
+
+    /**
+     * This method copies the sprite centred on the point (x, y)
+     *
+     * @param sprite the sprite to draw
+     * @param x the x coordinate of the centre on screen
+     * @param y the y coordinate of the centre on screen
+     * @param clipX0 the first column which can be drawn
+     * @param clipY0 the first row which can be drawn
+     * @param clipX1 the end of the columns which can be drawn (exclusive)
+     * @param clipY1 the end of the rows which can be drawn (exclusive)
+     */
+    private void drawSprite(AtomSpritesCache.Sprite sprite, float x, float y, int clipX0, int clipY0, int clipX1, int clipY1) {
+        int left = Math.round(x - sprite.getW() / 2.0f);
+        int top = Math.round(y - sprite.getH() / 2.0f);
+
+        int startX = Math.max(left, clipX0);
+        int startY = Math.max(top, clipY0);
+        int endX = Math.min(left + sprite.getW(), clipX1);
+        int endY = Math.min(top + sprite.getH(), clipY1);
+
+        int[] p = sprite.getP();
+        for ( int py = startY; py < endY; py++ ) {
+            int row = (py - top) * sprite.getW() - left;
+            for ( int px = startX; px < endX; px++ ) {
+                int value = p[row + px];
+                if ( isAlphaBlending ) {
+                    canvas.setPixel(px, py, value);
+                } else if ( (value >>> 24) != 0 ) {
+                    canvas.setPixel(px, py, value | 0xff000000);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method draws the image of the AtomKind scaled by the factor
+     * passed by parameter and centred on the point (x, y). The scaled
+     * image is taken from the sprites cache if it is used
+     *
+     * @param atomKind the AtomKind of the atom
+     * @param x the x coordinate of the centre on screen
+     * @param y the y coordinate of the centre on screen
+     * @param scale the scale factor of the image
+     */
+    void drawAtomImage(AtomKind atomKind, float x, float y, float scale) {
+        Image image = AtomConstructor.getAtomImage(atomKind);
+        if ( isUsingSpritesCache ) {
+            AtomSpritesCache.Sprite sprite = spritesCache.getSprite(atomKind, image, Math.round(image.getW() * scale));
+            if ( sprite != null ) {
+                drawSprite(sprite, x, y, 0, 0, canvas.getScreenWidth(), canvas.getScreenHeight());
+                return;
+            }
+        }
+        drawScaledImage(image, x, y, scale, 0, 0, canvas.getScreenWidth(), canvas.getScreenHeight());
+    }
+
+    /**
+     * This method draws a filled disc, row by row
+     *
+     * @param x the x coordinate of the centre on screen
+     * @param y the y coordinate of the centre on screen
+     * @param radius the radius of the disc
+     * @param color the color of the disc
+     */
+    void fillDisc(float x, float y, float radius, int color) {
+        fillDisc(x, y, radius, color, 0, 0, canvas.getScreenWidth(), canvas.getScreenHeight());
+    }
+
+    /**
+     * This method draws a filled disc, row by row, only inside the clip rectangle
+     *
+     * @param x the x coordinate of the centre on screen
+     * @param y the y coordinate of the centre on screen
+     * @param radius the radius of the disc
+     * @param color the color of the disc
+     * @param clipX0 the first column which can be drawn
+     * @param clipY0 the first row which can be drawn
+     * @param clipX1 the end of the columns which can be drawn (exclusive)
+     * @param clipY1 the end of the rows which can be drawn (exclusive)
+     */
+    private void fillDisc(float x, float y, float radius, int color, int clipX0, int clipY0, int clipX1, int clipY1) {
+        int startY = Math.max((int) Math.ceil(y - radius), clipY0);
+        int endY = Math.min((int) (y + radius), clipY1 - 1);
+        for ( int py = startY; py <= endY; py++ ) {
+            float dy = py - y;
+            float halfWidth = (float) Math.sqrt(Math.max(radius * radius - dy * dy, 0.0f));
+            int startX = Math.max((int) Math.ceil(x - halfWidth), clipX0);
+            int endX = Math.min((int) (x + halfWidth), clipX1 - 1);
+            for ( int px = startX; px <= endX; px++ ) {
+                canvas.setPixel(px, py, color);
+            }
+        }
+    }
+
+    /**
+     * This method calculates the radius on screen of the disc which
+     * is drawn for the projected atom, as it's drawn by renderAtom
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     * @return the radius of the disc in pixels
+     */
+    float getDrawnRadius(ProjectedAtoms atoms, int i) {
+        float radius = atoms.getRadius(i);
+        if ( radius < pointLodRadius ) {
+            return 0.5f;
+        }
+        float scale = (1.0f / atoms.getZ(i)) * (radius / 50);
+        return AtomConstructor.getAtomImage(atoms.getAtomKind(i)).getW() * scale / 2.0f;
+    }
+
+    /**
+     * This method draws the bones of the projected atom
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     */
+    private void renderBones(ProjectedAtoms atoms, int i) {
+        float[] centres = atoms.getCentres();
+        float[] orbitals = atoms.getOrbitals();
+        int x = (int) centres[i * 3];
+        int y = (int) centres[i * 3 + 1];
+
+        if ( isDrawingRadius ) {
+            canvas.drawLine(x, y, (int) (x + atoms.getRadius(i)), y, atoms.getColor(i));
+        }
+
+        int offset = i * AtomsStorage.ORBITALS_STRIDE;
+        for ( int j = 1; j <= atoms.getOrbitalsCount(i); j++ ) {
+            int endX = (int) orbitals[offset];
+            int endY = (int) orbitals[offset + 1];
+            canvas.drawLine(x, y, endX, endY, atoms.getColor(i));
+
+            if ( isDrawingBonesTexts ) {
+                canvas.drawText(ORBITALS_TEXTS[j], endX, endY, atoms.getId(i) % 2 == 0 ? HexColors.MINT : HexColors.DARK_MINT);
+            }
+            offset += 3;
+        }
+    }
+
+    /**
+     * This method returns the sprite from which the projected atom
+     * is drawn, or null if it's drawn as a point, a disc or an image
+     * scaled without the cache
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     * @return the sprite of the atom or null
+     */
+    private AtomSpritesCache.Sprite getSprite(ProjectedAtoms atoms, int i) {
+        float radius = atoms.getRadius(i);
+        if ( !isUsingSpritesCache || radius < pointLodRadius || radius < discLodRadius ) {
+            return null;
+        }
+        float scale = (1.0f / atoms.getZ(i)) * (radius / 50);
+        Image image = AtomConstructor.getAtomImage(atoms.getAtomKind(i));
+        return spritesCache.getSprite(atoms.getAtomKind(i), image, Math.round(image.getW() * scale));
+    }
+
+    /**
+     * This method draws the image, disc or point of the projected
+     * atom, only inside the clip rectangle
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     * @param sprite the sprite of the atom, as returned by getSprite
+     * @param clipX0 the first column which can be drawn
+     * @param clipY0 the first row which can be drawn
+     * @param clipX1 the end of the columns which can be drawn (exclusive)
+     * @param clipY1 the end of the rows which can be drawn (exclusive)
+     */
+    private void drawAtom(ProjectedAtoms atoms, int i, AtomSpritesCache.Sprite sprite, int clipX0, int clipY0, int clipX1, int clipY1) {
+        float radius = atoms.getRadius(i);
+        if ( radius < pointLodRadius ) {
+            int px = (int) atoms.getX(i);
+            int py = (int) atoms.getY(i);
+            if ( px >= clipX0 && px < clipX1 && py >= clipY0 && py < clipY1 ) {
+                canvas.setPixel(px, py, atoms.getColor(i));
+            }
+            return;
+        }
+        float scale = (1.0f / atoms.getZ(i)) * (radius / 50);
+        Image image = AtomConstructor.getAtomImage(atoms.getAtomKind(i));
+        if ( radius < discLodRadius ) {
+            fillDisc(atoms.getX(i), atoms.getY(i), image.getW() * scale / 2.0f, atoms.getColor(i), clipX0, clipY0, clipX1, clipY1);
+        } else if ( sprite != null ) {
+            drawSprite(sprite, atoms.getX(i), atoms.getY(i), clipX0, clipY0, clipX1, clipY1);
+        } else {
+            drawScaledImage(image, atoms.getX(i), atoms.getY(i), scale, clipX0, clipY0, clipX1, clipY1);
+        }
+    }
+
+    /**
+     * This method draws the projected atom with index i
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     */
+    private void renderAtom(ProjectedAtoms atoms, int i) {
+        if ( isDrawingAtomImages ) {
+            drawAtom(atoms, i, getSprite(atoms, i), 0, 0, canvas.getScreenWidth(), canvas.getScreenHeight());
+        }
+        if ( isDrawingBones ) {
+            renderBones(atoms, i);
+        }
+        if ( isDrawingAtomsIndex ) {
+            canvas.drawText(
+                    String.format("@%d", atoms.getId(i)),
+                    (int) atoms.getX(i),
+                    (int) atoms.getY(i),
+                    HexColors.LIGHT_BLUE);
+        }
+    }
+
+    /**
+     * This method draws the projected atoms in the order of its order
+     * array. Nothing is allocated, except the texts of the atoms index
+     * if they are drawn
+     *
+     * @param atoms the projected atoms
+     */
+    public void renderAtoms(ProjectedAtoms atoms) {
+        if ( isTileParallel && isDrawingAtomImages && !isDrawingBones && !isDrawingAtomsIndex ) {
+            renderAtomsByTiles(atoms);
+            return;
+        }
+        int[] order = atoms.getOrder();
+        for ( int i = 0; i < atoms.getSize(); i++ ) {
+            renderAtom(atoms, order[i]);
+        }
+    }
+
+    /**
+     * This method draws the projected atoms by screen tiles in parallel.
+     * The atoms are binned in the tiles which they overlap in the order
+     * of drawing, then each tile draws its atoms in that order clipped to
+     * its rectangle, so each pixel is written in the same order as when
+     * the atoms are drawn one by one
+     *
+     * @param atoms the projected atoms
+     */
+    private void renderAtomsByTiles(ProjectedAtoms atoms) {
+        int size = atoms.getSize();
+        int[] order = atoms.getOrder();
+        int tilesX = (canvas.getScreenWidth() + tileSize - 1) / tileSize;
+        int tilesY = (canvas.getScreenHeight() + tileSize - 1) / tileSize;
+        int numTiles = tilesX * tilesY;
+        if ( size == 0 || numTiles == 0 ) {
+            return;
+        }
+        if ( orderSprites.length < size ) {
+            orderSprites = new AtomSpritesCache.Sprite[size];
+            orderTiles = new int[size * 4];
+        }
+        if ( tilesStarts.length < numTiles + 1 ) {
+            tilesStarts = new int[numTiles + 1];
+        }
+        Arrays.fill(tilesStarts, 0, numTiles + 1, 0);
+
+        int numEntries = 0;
+        for ( int k = 0; k < size; k++ ) {
+            int i = order[k];
+            orderSprites[k] = getSprite(atoms, i);
+            // The bounds are a bit bigger than the drawn radius because the
+            // sprites are rounded to whole pixels
+            float radius = getBinningRadius(atoms, i);
+            float x = atoms.getX(i);
+            float y = atoms.getY(i);
+            int firstX = Math.max((int) Math.floor((x - radius) / tileSize), 0);
+            int firstY = Math.max((int) Math.floor((y - radius) / tileSize), 0);
+            int lastX = Math.min((int) Math.floor((x + radius) / tileSize), tilesX - 1);
+            int lastY = Math.min((int) Math.floor((y + radius) / tileSize), tilesY - 1);
+            if ( firstX > lastX || firstY > lastY ) {
+                firstY = 0;
+                lastY = -1;
+            }
+            orderTiles[k * 4] = firstX;
+            orderTiles[k * 4 + 1] = firstY;
+            orderTiles[k * 4 + 2] = lastX;
+            orderTiles[k * 4 + 3] = lastY;
+            for ( int ty = firstY; ty <= lastY; ty++ ) {
+                for ( int tx = firstX; tx <= lastX; tx++ ) {
+                    tilesStarts[tx + ty * tilesX + 1]++;
+                    numEntries++;
+                }
+            }
+        }
+        for ( int t = 0; t < numTiles; t++ ) {
+            tilesStarts[t + 1] += tilesStarts[t];
+        }
+        if ( tilesEntries.length < numEntries ) {
+            tilesEntries = new int[Math.max(numEntries, tilesEntries.length * 2)];
+        }
+        for ( int k = 0; k < size; k++ ) {
+            for ( int ty = orderTiles[k * 4 + 1]; ty <= orderTiles[k * 4 + 3]; ty++ ) {
+                for ( int tx = orderTiles[k * 4]; tx <= orderTiles[k * 4 + 2]; tx++ ) {
+                    tilesEntries[tilesStarts[tx + ty * tilesX]++] = k;
+                }
+            }
+        }
+        for ( int t = numTiles; t > 0; t-- ) {
+            tilesStarts[t] = tilesStarts[t - 1];
+        }
+        tilesStarts[0] = 0;
+
+        pool.invoke(new TilesTask(atoms, tilesX, 0, numTiles));
+        Arrays.fill(orderSprites, 0, size, null);
+    }
+
+    /**
+     * This method calculates the radius of the square around the
+     * centre of the projected atom which holds all the pixels that
+     * drawAtom can write
+     *
+     * @param atoms the projected atoms
+     * @param i the index of the atom
+     * @return the radius of the square in pixels
+     */
+    private float getBinningRadius(ProjectedAtoms atoms, int i) {
+        float radius = atoms.getRadius(i);
+        if ( radius < pointLodRadius ) {
+            return 1.0f;
+        }
+        float scale = (1.0f / atoms.getZ(i)) * (radius / 50);
+        Image image = AtomConstructor.getAtomImage(atoms.getAtomKind(i));
+        return Math.max(image.getW(), image.getH()) * scale / 2.0f + 2.0f;
+    }
+
+    /**
+     * This method draws the atoms of the tile passed by parameter,
+     * in the order of drawing, clipped to the rectangle of the tile
+     *
+     * @param atoms the projected atoms
+     * @param tilesX the number of columns of tiles
+     * @param tile the index of the tile
+     */
+    private void renderTile(ProjectedAtoms atoms, int tilesX, int tile) {
+        int[] order = atoms.getOrder();
+        int clipX0 = (tile % tilesX) * tileSize;
+        int clipY0 = (tile / tilesX) * tileSize;
+        int clipX1 = Math.min(clipX0 + tileSize, canvas.getScreenWidth());
+        int clipY1 = Math.min(clipY0 + tileSize, canvas.getScreenHeight());
+        for ( int e = tilesStarts[tile]; e < tilesStarts[tile + 1]; e++ ) {
+            int k = tilesEntries[e];
+            drawAtom(atoms, order[k], orderSprites[k], clipX0, clipY0, clipX1, clipY1);
+        }
+    }
+
+    /**
+     * This class draws a range of tiles. If the range has more than
+     * one tile, it's split in two halves which are drawn in parallel
+     * by the fork join pool
+     */
+    private class TilesTask extends RecursiveAction {
+
+        private final ProjectedAtoms atoms;
+
+        private final int tilesX;
+
+        private final int fromTile;
+
+        private final int toTile;
+
+        TilesTask(ProjectedAtoms atoms, int tilesX, int fromTile, int toTile) {
+            this.atoms = atoms;
+            this.tilesX = tilesX;
+            this.fromTile = fromTile;
+            this.toTile = toTile;
+        }
+
+        @Override
+        protected void compute() {
+            if ( toTile - fromTile == 1 ) {
+                renderTile(atoms, tilesX, fromTile);
+            } else {
+                int middle = (fromTile + toTile) >>> 1;
+                invokeAll(
+                        new TilesTask(atoms, tilesX, fromTile, middle),
+                        new TilesTask(atoms, tilesX, middle, toTile)
+                );
+            }
+        }
+
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public AtomsCanvas getCanvas() {
+        return canvas;
+    }
+
+    public AtomSpritesCache getSpritesCache() {
+        return spritesCache;
+    }
+
+    public boolean isTileParallel() {
+        return isTileParallel;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setTileParallel(boolean tileParallel) {
+        isTileParallel = tileParallel;
+    }
+
+    public void setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public boolean isUsingSpritesCache() {
+        return isUsingSpritesCache;
+    }
+
+    public boolean isAlphaBlending() {
+        return isAlphaBlending;
+    }
+
+    public void setUsingSpritesCache(boolean usingSpritesCache) {
+        isUsingSpritesCache = usingSpritesCache;
+    }
+
+    public void setAlphaBlending(boolean alphaBlending) {
+        isAlphaBlending = alphaBlending;
+    }
+
+    public float getPointLodRadius() {
+        return pointLodRadius;
+    }
+
+    public float getDiscLodRadius() {
+        return discLodRadius;
+    }
+
+    public void setPointLodRadius(float pointLodRadius) {
+        this.pointLodRadius = pointLodRadius;
+    }
+
+    public void setDiscLodRadius(float discLodRadius) {
+        this.discLodRadius = discLodRadius;
+    }
+
+    public boolean isDrawingAtomImages() {
+        return isDrawingAtomImages;
+    }
+
+    public boolean isDrawingBones() {
+        return isDrawingBones;
+    }
+
+    public boolean isDrawingRadius() {
+        return isDrawingRadius;
+    }
+
+    public boolean isDrawingBonesTexts() {
+        return isDrawingBonesTexts;
+    }
+
+    public boolean isDrawingAtomsIndex() {
+        return isDrawingAtomsIndex;
+    }
+
+    public void setDrawingAtomImages(boolean drawingAtomImages) {
+        isDrawingAtomImages = drawingAtomImages;
+    }
+
+    public void setDrawingBones(boolean drawingBones) {
+        isDrawingBones = drawingBones;
+    }
+
+    public void setDrawingRadius(boolean drawingRadius) {
+        isDrawingRadius = drawingRadius;
+    }
+
+    public void setDrawingBonesTexts(boolean drawingBonesTexts) {
+        isDrawingBonesTexts = drawingBonesTexts;
+    }
+
+    public void setDrawingAtomsIndex(boolean drawingAtomsIndex) {
+        isDrawingAtomsIndex = drawingAtomsIndex;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
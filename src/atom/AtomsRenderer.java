@@ -17,38 +17,54 @@ import java.util.Arrays;
  * @author Sergio Martí Torregrosa
  * @date 08/09/2020
  */
-public class AtomsRenderer extends Renderer2D {
+public class AtomsRenderer extends Renderer2D implements AtomsCanvas {
 
     /**
-     * The flag for draw the atom images
+     * The rasterizer which draws the projected atoms on this renderer.
+     * It holds the drawing flags
      */
-    private boolean isDrawingAtomImages = true;
+    private final AtomsRasterizer rasterizer = new AtomsRasterizer(this);
 
     /**
-     * The flag for draw the bones
+     * The screen width
      */
-    private boolean isDrawingBones = false;
+    private int screenWidth;
 
     /**
-     * The flag for draw the radius bones
+     * The screen height
      */
-    private boolean isDrawingRadius = false;
+    private int screenHeight;
 
     /**
-     * The flag to draw the text bones
-     *
-     * For each bone is drawn its index of the
-     * bone array of the atom. It's useful
-     * for identify the bones which is wanted
-     * to join a new atom when it's building
-     * a molecule
+     * The flag to draw the metrics of the frames over the molecules
+     * (see drawMetrics). The pipeline draws them when it's measuring
+     */
+    private boolean isDrawingMetrics = false;
+
+    /**
+     * The stages whose times are drawn in the metrics overlay, and its names
      */
-    private boolean isDrawingBonesTexts = false;
+    private static final FrameMetrics.Metric[] METRICS_STAGES = {
+            FrameMetrics.Metric.FRAME_TIME,
+            FrameMetrics.Metric.TRANSFORM_TIME,
+            FrameMetrics.Metric.CULL_TIME,
+            FrameMetrics.Metric.PROJECT_TIME,
+            FrameMetrics.Metric.SORT_TIME,
+            FrameMetrics.Metric.DRAW_TIME
+    };
+
+    private static final String[] METRICS_STAGES_NAMES = {
+            "frame", "transform", "cull", "project", "sort", "draw"
+    };
 
     /**
-     * The flag to draw the atoms index
+     * The position and the height of the lines of the metrics overlay
      */
-    private boolean isDrawingAtomsIndex = false;
+    private static final int METRICS_X = 4;
+
+    private static final int METRICS_Y = 4;
+
+    private static final int METRICS_LINE_HEIGHT = 12;
 
     /**
      * The Constructor
@@ -56,6 +72,8 @@ public class AtomsRenderer extends Renderer2D {
      */
     public AtomsRenderer(GameContainer gc) {
         super(gc);
+        screenWidth = gc.getWidth();
+        screenHeight = gc.getHeight();
     }
 
     /**
@@ -112,32 +130,41 @@ public class AtomsRenderer extends Renderer2D {
 
         bones.sort(((o1, o2) -> Float.compare(o2.getPointB().getZ(), o1.getPointB().getZ())));
 
-        if ( isDrawingRadius ) {
+        if ( isDrawingRadius() ) {
             renderRadiusBone(atom);
         }
 
-        renderAtomBones(atom, isDrawingBonesTexts);
+        renderAtomBones(atom, isDrawingBonesTexts());
     }
 
     private void renderAtom(Atom atom) {
-        if ( isDrawingAtomImages ) {
-            Vec4df point = atom.getBones()[1].getPointA();
-            Transform2D transform = new Transform2D();
+        if ( isDrawingAtomImages() ) {
+            Vec4df point = atom.getBones()[0].getPointA();
+            float radius = atom.getBones()[0].distance2d();
             float z = 1.0f / point.getZ();
-            transform.scale(z, z);
-            transform.scale(atom.getBones()[0].distance2d() / 50, atom.getBones()[0].distance2d() / 50);
-            transform.translate(- atom.getImage().getW() / 2.0f, - atom.getImage().getH() / 2.0f);
-            transform.translate(point.getX(), point.getY());
-            drawImage(atom.getImage(), transform);
+            if ( radius < rasterizer.getPointLodRadius() ) {
+                setPixel((int) point.getX(), (int) point.getY(), atom.getColor());
+            } else if ( radius < rasterizer.getDiscLodRadius() ) {
+                rasterizer.fillDisc(point.getX(), point.getY(), atom.getImage().getW() * z * (radius / 50) / 2.0f, atom.getColor());
+            } else if ( rasterizer.isUsingSpritesCache() ) {
+                rasterizer.drawAtomImage(atom.getAtomKind(), point.getX(), point.getY(), z * (radius / 50));
+            } else {
+                Transform2D transform = new Transform2D();
+                transform.scale(z, z);
+                transform.scale(radius / 50, radius / 50);
+                transform.translate(- atom.getImage().getW() / 2.0f, - atom.getImage().getH() / 2.0f);
+                transform.translate(point.getX(), point.getY());
+                drawImage(atom.getImage(), transform);
+            }
         }
-        if ( isDrawingBones ) {
+        if ( isDrawingBones() ) {
             renderBones(atom);
         }
-        if ( isDrawingAtomsIndex ) {
+        if ( isDrawingAtomsIndex() ) {
             drawText(
                     String.format("@%d", atom.getId()),
-                    (int)atom.getBones()[1].getPointA().getX(),
-                    (int)atom.getBones()[1].getPointA().getY(),
+                    (int)atom.getBones()[0].getPointA().getX(),
+                    (int)atom.getBones()[0].getPointA().getY(),
                     HexColors.LIGHT_BLUE);
         }
     }
@@ -153,46 +180,113 @@ public class AtomsRenderer extends Renderer2D {
         }
     }
 
+    /**
+     * This method draws the projected atoms in the order of its order
+     * array, by the rasterizer of this renderer
+     *
+     * @param atoms the projected atoms
+     */
+    public void renderAtoms(ProjectedAtoms atoms) {
+        rasterizer.renderAtoms(atoms);
+    }
+
+    /**
+     * This method draws the metrics of the last frames in the top left
+     * corner of the screen: the percentiles 50, 95 and 99 of the time
+     * of each stage in milliseconds, the atoms drawn and culled and the
+     * sprites scaled in the last frame, and the median of the bytes
+     * allocated. The texts are allocated each time
+     *
+     * @param metrics the metrics of the frames
+     */
+    public void drawMetrics(FrameMetrics metrics) {
+        int y = METRICS_Y;
+        for ( int i = 0; i < METRICS_STAGES.length; i++ ) {
+            drawText(
+                    String.format("%-9s p50 %6.2f  p95 %6.2f  p99 %6.2f ms",
+                            METRICS_STAGES_NAMES[i],
+                            metrics.getPercentile(METRICS_STAGES[i], 50) / 1e6,
+                            metrics.getPercentile(METRICS_STAGES[i], 95) / 1e6,
+                            metrics.getPercentile(METRICS_STAGES[i], 99) / 1e6),
+                    METRICS_X, y, HexColors.LEMON);
+            y += METRICS_LINE_HEIGHT;
+        }
+        drawText(
+                String.format("atoms %d  culled %d  sprites %d",
+                        metrics.getLast(FrameMetrics.Metric.ATOMS_DRAWN),
+                        metrics.getLast(FrameMetrics.Metric.ATOMS_CULLED),
+                        metrics.getLast(FrameMetrics.Metric.SPRITES_SCALED)),
+                METRICS_X, y, HexColors.LEMON);
+        y += METRICS_LINE_HEIGHT;
+        drawText(
+                FrameMetrics.isCountingAllocatedBytes() ?
+                        String.format("allocated p50 %d bytes", metrics.getPercentile(FrameMetrics.Metric.BYTES_ALLOCATED, 50)) :
+                        "allocated n/a",
+                METRICS_X, y, HexColors.LEMON);
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    @Override
+    public int getScreenWidth() {
+        return screenWidth;
+    }
+
+    @Override
+    public int getScreenHeight() {
+        return screenHeight;
+    }
+
+    public AtomsRasterizer getRasterizer() {
+        return rasterizer;
+    }
+
     public boolean isDrawingAtomImages() {
-        return isDrawingAtomImages;
+        return rasterizer.isDrawingAtomImages();
     }
 
     public boolean isDrawingBones() {
-        return isDrawingBones;
+        return rasterizer.isDrawingBones();
     }
 
     public boolean isDrawingRadius() {
-        return isDrawingRadius;
+        return rasterizer.isDrawingRadius();
     }
 
     public boolean isDrawingBonesTexts() {
-        return isDrawingBonesTexts;
+        return rasterizer.isDrawingBonesTexts();
     }
 
     public boolean isDrawingAtomsIndex() {
-        return isDrawingAtomsIndex;
+        return rasterizer.isDrawingAtomsIndex();
+    }
+
+    public boolean isDrawingMetrics() {
+        return isDrawingMetrics;
     }
 
     public void setDrawingAtomImages(boolean drawingAtomImages) {
-        isDrawingAtomImages = drawingAtomImages;
+        rasterizer.setDrawingAtomImages(drawingAtomImages);
     }
 
     public void setDrawingBones(boolean drawingBones) {
-        isDrawingBones = drawingBones;
+        rasterizer.setDrawingBones(drawingBones);
     }
 
     public void setDrawingRadius(boolean drawingRadius) {
-        isDrawingRadius = drawingRadius;
+        rasterizer.setDrawingRadius(drawingRadius);
     }
 
     public void setDrawingBonesTexts(boolean drawingBonesTexts) {
-        isDrawingBonesTexts = drawingBonesTexts;
+        rasterizer.setDrawingBonesTexts(drawingBonesTexts);
     }
 
     public void setDrawingAtomsIndex(boolean drawingAtomsIndex) {
-        isDrawingAtomsIndex = drawingAtomsIndex;
+        rasterizer.setDrawingAtomsIndex(drawingAtomsIndex);
+    }
+
+    public void setDrawingMetrics(boolean drawingMetrics) {
+        isDrawingMetrics = drawingMetrics;
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
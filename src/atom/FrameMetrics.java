@@ -0,0 +1,302 @@
+package atom;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * This class records the metrics of the frames rendered by the
+ * AtomsPipeLine: the time of each stage, the number of atoms drawn
+ * and culled, the sprites scaled and the bytes allocated
+ *
+ * The values of the current frame are added between beginFrame and
+ * endFrame, and endFrame keeps them in a ring with the last frames,
+ * so the percentiles, the mean and the max of each metric are taken
+ * over a rolling window. Recording a frame allocates nothing; the
+ * percentiles sort a copy of the window in an array which is reused
+ *
+ * The stages can be added from other thread (the worker of the pipelined
+ * frames) while the frame is recorded, as long as that thread ends before
+ * endFrame. The rest of methods are synchronized, so the metrics can be
+ * read from other thread
+ *
+ * The bytes allocated are the ones of the thread which calls beginFrame
+ * and endFrame, plus the ones added by other threads. The allocations
+ * of the threads which don't add them (as the fork join pool) are missed
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class FrameMetrics {
+
+    /**
+     * The metrics of each frame. The times are in nanoseconds
+     */
+    public enum Metric {
+        TRANSFORM_TIME,
+        CULL_TIME,
+        PROJECT_TIME,
+        SORT_TIME,
+        DRAW_TIME,
+        FRAME_TIME,
+        ATOMS_DRAWN,
+        ATOMS_CULLED,
+        SPRITES_SCALED,
+        BYTES_ALLOCATED
+    }
+
+    private static final Metric[] METRICS = Metric.values();
+
+    /**
+     * The default number of frames of the window
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 120;
+
+    /**
+     * The bean which counts the bytes allocated by each thread,
+     * or null if the virtual machine doesn't support it
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = getAllocationBean();
+
+    /**
+     * The values of the frame which is recorded
+     */
+    private final long[] current = new long[METRICS.length];
+
+    /**
+     * The values of the last frames, a ring for each metric
+     */
+    private final long[][] history;
+
+    /**
+     * The array where the window is sorted for the percentiles
+     */
+    private final long[] sorted;
+
+    /**
+     * The position of the ring where the next frame is written
+     */
+    private int next = 0;
+
+    /**
+     * The number of frames in the window
+     */
+    private int numFrames = 0;
+
+    /**
+     * The total number of frames recorded
+     */
+    private long totalFrames = 0;
+
+    /**
+     * The time and the bytes allocated by the thread at the beginning of the frame
+     */
+    private long frameStart = 0;
+
+    private long allocatedStart = 0;
+
+    /**
+     * The constructor, with the default window size
+     */
+    public FrameMetrics() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param windowSize the number of frames of the window
+     */
+    public FrameMetrics(int windowSize) {
+        if ( windowSize < 1 ) {
+            throw new IllegalArgumentException("The window size has to be positive: " + windowSize);
+        }
+        history = new long[METRICS.length][windowSize];
+        sorted = new long[windowSize];
+    }
+
+    /**
+     * This method gets the bean of the threads if it can count the
+     * bytes allocated by each thread, and enables the count
+     *
+     * @return the bean, or null if it's not supported
+     */
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if ( bean instanceof com.sun.management.ThreadMXBean ) {
+                com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if ( allocationBean.isThreadAllocatedMemorySupported() ) {
+                    allocationBean.setThreadAllocatedMemoryEnabled(true);
+                    return allocationBean;
+                }
+            }
+        } catch ( LinkageError | UnsupportedOperationException | SecurityException e ) {
+            // The bytes allocated are not recorded
+        }
+        return null;
+    }
+
+    /**
+     * This method returns the bytes allocated by the calling thread
+     * since it started
+     *
+     * @return the bytes allocated, or -1 if they can't be counted
+     */
+    public static long getThreadAllocatedBytes() {
+        if ( ALLOCATION_BEAN == null ) {
+            return -1;
+        }
+        return ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * This method starts to record a frame. The time and the bytes allocated
+     * of the frame are counted from here to endFrame in the calling thread
+     */
+    public synchronized void beginFrame() {
+        Arrays.fill(current, 0);
+        allocatedStart = getThreadAllocatedBytes();
+        frameStart = System.nanoTime();
+    }
+
+    /**
+     * This method adds a value to a metric of the frame which is recorded
+     *
+     * @param metric the metric
+     * @param value the value to add
+     */
+    public void add(Metric metric, long value) {
+        current[metric.ordinal()] += value;
+    }
+
+    /**
+     * This method adds the time from start until now to a
+     * stage of the frame which is recorded
+     *
+     * @param metric the time of the stage
+     * @param start the time when the stage started, by System.nanoTime
+     * @return the time now, to be the start of the next stage
+     */
+    public long addTime(Metric metric, long start) {
+        long now = System.nanoTime();
+        current[metric.ordinal()] += now - start;
+        return now;
+    }
+
+    /**
+     * This method ends the frame which is recorded, and writes it in
+     * the window. If the bytes allocated can't be counted, they are -1
+     */
+    public synchronized void endFrame() {
+        current[Metric.FRAME_TIME.ordinal()] = System.nanoTime() - frameStart;
+        if ( allocatedStart >= 0 ) {
+            current[Metric.BYTES_ALLOCATED.ordinal()] += getThreadAllocatedBytes() - allocatedStart;
+        } else {
+            current[Metric.BYTES_ALLOCATED.ordinal()] = -1;
+        }
+        for ( int m = 0; m < METRICS.length; m++ ) {
+            history[m][next] = current[m];
+        }
+        next = (next + 1) % sorted.length;
+        numFrames = Math.min(numFrames + 1, sorted.length);
+        totalFrames++;
+    }
+
+    /**
+     * This method discards the frames of the window
+     */
+    public synchronized void clear() {
+        next = 0;
+        numFrames = 0;
+    }
+
+    /**
+     * This method returns the value of the metric in the last frame recorded
+     *
+     * @param metric the metric
+     * @return the value, or 0 if there are no frames
+     */
+    public synchronized long getLast(Metric metric) {
+        if ( numFrames == 0 ) {
+            return 0;
+        }
+        return history[metric.ordinal()][(next + sorted.length - 1) % sorted.length];
+    }
+
+    /**
+     * This method returns a percentile of the metric over the frames of
+     * the window, by the nearest rank: the smallest value which is greater
+     * than or equal to the percentage of the values
+     *
+     * @param metric the metric
+     * @param percentile the percentile, between 0 and 100
+     * @return the value, or 0 if there are no frames
+     */
+    public synchronized long getPercentile(Metric metric, double percentile) {
+        if ( numFrames == 0 ) {
+            return 0;
+        }
+        System.arraycopy(history[metric.ordinal()], 0, sorted, 0, numFrames);
+        Arrays.sort(sorted, 0, numFrames);
+        int rank = (int) Math.ceil(percentile / 100.0 * numFrames) - 1;
+        return sorted[Math.min(Math.max(rank, 0), numFrames - 1)];
+    }
+
+    /**
+     * This method returns the mean of the metric over the frames of the window
+     *
+     * @param metric the metric
+     * @return the mean, or 0 if there are no frames
+     */
+    public synchronized double getMean(Metric metric) {
+        if ( numFrames == 0 ) {
+            return 0;
+        }
+        long[] values = history[metric.ordinal()];
+        double sum = 0;
+        for ( int i = 0; i < numFrames; i++ ) {
+            sum += values[i];
+        }
+        return sum / numFrames;
+    }
+
+    /**
+     * This method returns the max of the metric over the frames of the window
+     *
+     * @param metric the metric
+     * @return the max, or 0 if there are no frames
+     */
+    public synchronized long getMax(Metric metric) {
+        if ( numFrames == 0 ) {
+            return 0;
+        }
+        long[] values = history[metric.ordinal()];
+        long max = values[0];
+        for ( int i = 1; i < numFrames; i++ ) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getWindowSize() {
+        return sorted.length;
+    }
+
+    public synchronized int getNumFrames() {
+        return numFrames;
+    }
+
+    public synchronized long getTotalFrames() {
+        return totalFrames;
+    }
+
+    public static boolean isCountingAllocatedBytes() {
+        return ALLOCATION_BEAN != null;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
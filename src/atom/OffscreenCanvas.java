@@ -0,0 +1,199 @@
+package atom;
+
+import java.util.Arrays;
+
+/**
+ * This class is a canvas which draws in an in-memory pixel buffer,
+ * without window, input or game loop. It's useful to render
+ * molecules on servers without display
+ *
+ * The pixels are stored as ARGB ints, row by row. The texts are
+ * not drawn, because there is not a font without the game engine
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class OffscreenCanvas implements AtomsCanvas {
+
+    /**
+     * The width of the canvas
+     */
+    private final int width;
+
+    /**
+     * The height of the canvas
+     */
+    private final int height;
+
+    /**
+     * The pixels of the canvas
+     */
+    private final int[] pixels;
+
+    /**
+     * The arrays for the parameters of the Liang-Barsky clipping of the lines
+     */
+    private final double[] clipP = new double[4];
+
+    private final double[] clipQ = new double[4];
+
+    /**
+     * The constructor
+     *
+     * @param width the width in pixels
+     * @param height the height in pixels
+     */
+    public OffscreenCanvas(int width, int height) {
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    /**
+     * This method fills all the canvas with the color
+     *
+     * @param color the color
+     */
+    public void clear(int color) {
+        Arrays.fill(pixels, color);
+    }
+
+    /**
+     * This method returns the color of one pixel
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the color
+     */
+    public int getPixel(int x, int y) {
+        return pixels[x + y * width];
+    }
+
+    @Override
+    public void setPixel(int x, int y, int value) {
+        if ( x < 0 || x >= width || y < 0 || y >= height ) {
+            return;
+        }
+        int alpha = (value >>> 24) & 0xff;
+        if ( alpha == 0 ) {
+            return;
+        }
+        if ( alpha == 0xff ) {
+            pixels[x + y * width] = value;
+            return;
+        }
+        int old = pixels[x + y * width];
+        int red = blend((old >> 16) & 0xff, (value >> 16) & 0xff, alpha);
+        int green = blend((old >> 8) & 0xff, (value >> 8) & 0xff, alpha);
+        int blue = blend(old & 0xff, value & 0xff, alpha);
+        pixels[x + y * width] = 0xff000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    /**
+     * This method blends a color channel
+     *
+     * @param old the old value of the channel
+     * @param value the new value of the channel
+     * @param alpha the alpha of the new value
+     * @return the blended channel
+     */
+    private static int blend(int old, int value, int alpha) {
+        return old + ((value - old) * alpha) / 255;
+    }
+
+    /**
+     * The Bresenham's line algorithm
+     *
+     * The line is clipped to the canvas before it's walked, by the
+     * Liang-Barsky algorithm, so the ends far out of the canvas (as the
+     * orbitals projected near the camera plane) don't cost a pixel
+     * each one. The lines inside the canvas are not modified
+     */
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2, int color) {
+        if ( x1 < 0 || x1 >= width || y1 < 0 || y1 >= height || x2 < 0 || x2 >= width || y2 < 0 || y2 >= height ) {
+            double deltaX = (double) x2 - x1;
+            double deltaY = (double) y2 - y1;
+            double[] p = clipP;
+            double[] q = clipQ;
+            p[0] = -deltaX;
+            p[1] = deltaX;
+            p[2] = -deltaY;
+            p[3] = deltaY;
+            q[0] = x1;
+            q[1] = width - 1.0 - x1;
+            q[2] = y1;
+            q[3] = height - 1.0 - y1;
+            double t0 = 0.0;
+            double t1 = 1.0;
+            for ( int i = 0; i < 4; i++ ) {
+                if ( p[i] == 0.0 ) {
+                    if ( q[i] < 0.0 ) {
+                        return;
+                    }
+                } else {
+                    double t = q[i] / p[i];
+                    if ( p[i] < 0.0 ) {
+                        t0 = Math.max(t0, t);
+                    } else {
+                        t1 = Math.min(t1, t);
+                    }
+                }
+            }
+            if ( t0 > t1 ) {
+                return;
+            }
+            int clippedX1 = (int) Math.round(x1 + t0 * deltaX);
+            int clippedY1 = (int) Math.round(y1 + t0 * deltaY);
+            x2 = (int) Math.round(x1 + t1 * deltaX);
+            y2 = (int) Math.round(y1 + t1 * deltaY);
+            x1 = clippedX1;
+            y1 = clippedY1;
+        }
+
+        long dx = Math.abs((long) x2 - x1);
+        long dy = -Math.abs((long) y2 - y1);
+        int sx = x1 < x2 ? 1 : -1;
+        int sy = y1 < y2 ? 1 : -1;
+        long err = dx + dy;
+        while ( true ) {
+            setPixel(x1, y1, color);
+            if ( x1 == x2 && y1 == y2 ) {
+                break;
+            }
+            long e2 = 2 * err;
+            if ( e2 >= dy ) {
+                err += dy;
+                x1 += sx;
+            }
+            if ( e2 <= dx ) {
+                err += dx;
+                y1 += sy;
+            }
+        }
+    }
+
+    @Override
+    public void drawText(String text, int offX, int offY, int color) {
+        // there is not font without the game engine
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getScreenWidth() {
+        return width;
+    }
+
+    @Override
+    public int getScreenHeight() {
+        return height;
+    }
+
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,192 @@
+package atom;
+
+import java.util.Arrays;
+
+/**
+ * This class is a screen-space index of the discs of the projected
+ * atoms, for find the atom under a point of the screen (for example,
+ * the mouse) without test all the projected atoms
+ *
+ * The screen is divided in square cells, and each cell has the list
+ * of the discs which touch it. The lists are stored in compressed
+ * form (an array of starts and an array of entries), and they are
+ * built in two passes over the projected atoms each frame. A pick
+ * only tests the discs of one cell, and returns the nearest one
+ *
+ * The arrays are kept between frames, so build the grid of the same
+ * molecule frame after frame allocates nothing
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class PickingGrid {
+
+    /**
+     * The size of the cells is 2 ^ CELL_SIZE_BITS pixels
+     */
+    private static final int CELL_SIZE_BITS = 5;
+
+    /**
+     * The number of cells on each axis
+     */
+    private int cellsX = 0;
+
+    private int cellsY = 0;
+
+    /**
+     * The discs of the cell c are in the range [starts[c], starts[c + 1])
+     * of the entries array
+     */
+    private int[] starts = new int[1];
+
+    /**
+     * The index of the projected atom of each entry
+     */
+    private int[] entries = new int[0];
+
+    /**
+     * The radius of the disc of each projected atom, in pixels
+     */
+    private float[] radii = new float[0];
+
+    /**
+     * The range of cells of the disc of each projected atom: the first
+     * and last column and the first and last row
+     */
+    private int[] bounds = new int[0];
+
+    /**
+     * The projected atoms of the last build
+     */
+    private ProjectedAtoms atoms = null;
+
+    /**
+     * This method builds the grid with the discs of the projected atoms
+     *
+     * @param atoms the projected atoms
+     * @param rasterizer the rasterizer which draws the atoms, for know the size of its discs
+     * @param screenWidth the width of the screen
+     * @param screenHeight the height of the screen
+     */
+    public void build(ProjectedAtoms atoms, AtomsRasterizer rasterizer, int screenWidth, int screenHeight) {
+        this.atoms = atoms;
+        int size = atoms.getSize();
+        cellsX = Math.max((screenWidth + (1 << CELL_SIZE_BITS) - 1) >> CELL_SIZE_BITS, 1);
+        cellsY = Math.max((screenHeight + (1 << CELL_SIZE_BITS) - 1) >> CELL_SIZE_BITS, 1);
+        int numCells = cellsX * cellsY;
+        if ( starts.length < numCells + 1 ) {
+            starts = new int[numCells + 1];
+        }
+        if ( radii.length < size ) {
+            radii = new float[Math.max(size, radii.length * 2)];
+            bounds = new int[radii.length * 4];
+        }
+
+        Arrays.fill(starts, 0, numCells + 1, 0);
+        long numEntries = 0;
+        for ( int i = 0; i < size; i++ ) {
+            radii[i] = rasterizer.getDrawnRadius(atoms, i);
+            int x0 = Math.max(cellX(atoms.getX(i) - radii[i]), 0);
+            int x1 = Math.min(cellX(atoms.getX(i) + radii[i]), cellsX - 1);
+            int y0 = Math.max(cellY(atoms.getY(i) - radii[i]), 0);
+            int y1 = Math.min(cellY(atoms.getY(i) + radii[i]), cellsY - 1);
+            if ( x0 > x1 || y0 > y1 ) {
+                y1 = y0 - 1;
+            }
+            bounds[i * 4] = x0;
+            bounds[i * 4 + 1] = x1;
+            bounds[i * 4 + 2] = y0;
+            bounds[i * 4 + 3] = y1;
+            if ( y0 > y1 ) {
+                continue;
+            }
+            for ( int cy = y0; cy <= y1; cy++ ) {
+                for ( int cx = x0; cx <= x1; cx++ ) {
+                    starts[cy * cellsX + cx + 1]++;
+                }
+            }
+            numEntries += (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+        }
+        for ( int c = 0; c < numCells; c++ ) {
+            starts[c + 1] += starts[c];
+        }
+        if ( entries.length < numEntries ) {
+            entries = new int[(int) Math.min(Math.max(numEntries, entries.length * 2L), Integer.MAX_VALUE - 8)];
+        }
+
+        // the starts are used as the fill positions, and moved back at the end
+        for ( int i = 0; i < size; i++ ) {
+            int x0 = bounds[i * 4];
+            int x1 = bounds[i * 4 + 1];
+            int y0 = bounds[i * 4 + 2];
+            int y1 = bounds[i * 4 + 3];
+            for ( int cy = y0; cy <= y1; cy++ ) {
+                for ( int cx = x0; cx <= x1; cx++ ) {
+                    entries[starts[cy * cellsX + cx]++] = i;
+                }
+            }
+        }
+        for ( int c = numCells; c > 0; c-- ) {
+            starts[c] = starts[c - 1];
+        }
+        starts[0] = 0;
+    }
+
+    /**
+     * This method calculates the cell column of a x coordinate. The
+     * coordinates out of the screen give -1 or cellsX, and NaN gives cellsX
+     */
+    private int cellX(float x) {
+        if ( !(x >= 0) ) {
+            return x < 0 ? -1 : cellsX;
+        }
+        return Math.min((int) x >> CELL_SIZE_BITS, cellsX);
+    }
+
+    /**
+     * This method calculates the cell row of a y coordinate. The
+     * coordinates out of the screen give -1 or cellsY, and NaN gives cellsY
+     */
+    private int cellY(float y) {
+        if ( !(y >= 0) ) {
+            return y < 0 ? -1 : cellsY;
+        }
+        return Math.min((int) y >> CELL_SIZE_BITS, cellsY);
+    }
+
+    /**
+     * This method empties the grid, so nothing is picked until it's
+     * built again. It's used when a frame is drawn without the grid
+     */
+    public void clear() {
+        atoms = null;
+    }
+
+    /**
+     * This method looks for the nearest projected atom whose
+     * disc contains the point of the screen
+     *
+     * @param x the x coordinate on screen
+     * @param y the y coordinate on screen
+     * @return the index of the projected atom, or -1 if there is none
+     */
+    public int pick(int x, int y) {
+        if ( atoms == null || x < 0 || y < 0 || (x >> CELL_SIZE_BITS) >= cellsX || (y >> CELL_SIZE_BITS) >= cellsY ) {
+            return -1;
+        }
+        int cell = (y >> CELL_SIZE_BITS) * cellsX + (x >> CELL_SIZE_BITS);
+        int picked = -1;
+        float pickedDepth = Float.MAX_VALUE;
+        for ( int e = starts[cell]; e < starts[cell + 1]; e++ ) {
+            int i = entries[e];
+            float dx = atoms.getX(i) - x;
+            float dy = atoms.getY(i) - y;
+            if ( dx * dx + dy * dy <= radii[i] * radii[i] && atoms.getDepth(i) < pickedDepth ) {
+                pickedDepth = atoms.getDepth(i);
+                picked = i;
+            }
+        }
+        return picked;
+    }
+
+}
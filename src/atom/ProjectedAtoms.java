@@ -0,0 +1,233 @@
+package atom;
+
+import molecule.AtomsStorage;
+
+import java.util.Arrays;
+
+/**
+ * This class holds the projected geometry of the atoms of one frame
+ * in flat arrays
+ *
+ * The arrays are allocated once and reused frame after frame. They
+ * only grow when a molecule with more atoms than the capacity
+ * is projected, so the steady state rendering allocates nothing
+ *
+ * For each atom is stored the centre on screen, the projected radius,
+ * the depth key used for sort the atoms and the end points of the
+ * orbitals on screen
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class ProjectedAtoms {
+
+    /**
+     * The number of projected atoms
+     */
+    private int size = 0;
+
+    /**
+     * The centres on screen: x, y, z for each atom
+     */
+    private float[] centres;
+
+    /**
+     * The projected radius (in pixels) of each atom
+     */
+    private float[] radius;
+
+    /**
+     * The depth key of each atom, the mean Z of its orbitals
+     */
+    private float[] depths;
+
+    /**
+     * The end points of the orbitals on screen: x, y, z for each orbital
+     */
+    private float[] orbitals;
+
+    /**
+     * The number of orbitals of each atom
+     */
+    private byte[] orbitalsCount;
+
+    /**
+     * The id of each atom
+     */
+    private int[] ids;
+
+    /**
+     * The instance of each atom, when the atoms are instances of
+     * a molecule (see MoleculeInstances), or 0 otherwise
+     */
+    private int[] instances;
+
+    /**
+     * The ordinal of the AtomKind of each atom
+     */
+    private byte[] kinds;
+
+    /**
+     * The color of each atom
+     */
+    private int[] colors;
+
+    /**
+     * The order in which the atoms are drawn (back to front)
+     */
+    private int[] order;
+
+    /**
+     * Null constructor
+     */
+    public ProjectedAtoms() {
+        this(16);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param capacity the initial number of atoms
+     */
+    public ProjectedAtoms(int capacity) {
+        capacity = Math.max(capacity, 1);
+        centres = new float[capacity * 3];
+        radius = new float[capacity];
+        depths = new float[capacity];
+        orbitals = new float[capacity * AtomsStorage.ORBITALS_STRIDE];
+        orbitalsCount = new byte[capacity];
+        ids = new int[capacity];
+        instances = new int[capacity];
+        kinds = new byte[capacity];
+        colors = new int[capacity];
+        order = new int[capacity];
+    }
+
+    /**
+     * This method grows the arrays if they can't hold the
+     * number of atoms passed by parameter
+     *
+     * @param capacity the number of atoms
+     */
+    public void ensureCapacity(int capacity) {
+        if ( capacity <= radius.length ) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, radius.length * 2);
+        centres = Arrays.copyOf(centres, newCapacity * 3);
+        radius = Arrays.copyOf(radius, newCapacity);
+        depths = Arrays.copyOf(depths, newCapacity);
+        orbitals = Arrays.copyOf(orbitals, newCapacity * AtomsStorage.ORBITALS_STRIDE);
+        orbitalsCount = Arrays.copyOf(orbitalsCount, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+        instances = Arrays.copyOf(instances, newCapacity);
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        colors = Arrays.copyOf(colors, newCapacity);
+        order = Arrays.copyOf(order, newCapacity);
+    }
+
+    /**
+     * This method sets the number of projected atoms, and
+     * grows the arrays if it is needed
+     *
+     * @param size the number of atoms
+     */
+    public void setSize(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getSize() {
+        return size;
+    }
+
+    public float getX(int i) {
+        return centres[i * 3];
+    }
+
+    public float getY(int i) {
+        return centres[i * 3 + 1];
+    }
+
+    public float getZ(int i) {
+        return centres[i * 3 + 2];
+    }
+
+    public float getRadius(int i) {
+        return radius[i];
+    }
+
+    public float getDepth(int i) {
+        return depths[i];
+    }
+
+    public int getOrbitalsCount(int i) {
+        return orbitalsCount[i];
+    }
+
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    public int getInstance(int i) {
+        return instances[i];
+    }
+
+    public AtomKind getAtomKind(int i) {
+        return AtomKind.get(kinds[i]);
+    }
+
+    public int getColor(int i) {
+        return colors[i];
+    }
+
+    /*
+     * The arrays are returned directly for fill them in the pipeline.
+     * They can be replaced by setSize, so don't keep the reference
+     */
+
+    public float[] getCentres() {
+        return centres;
+    }
+
+    public float[] getRadii() {
+        return radius;
+    }
+
+    public float[] getDepths() {
+        return depths;
+    }
+
+    public float[] getOrbitals() {
+        return orbitals;
+    }
+
+    public byte[] getOrbitalsCounts() {
+        return orbitalsCount;
+    }
+
+    public int[] getIds() {
+        return ids;
+    }
+
+    public int[] getInstances() {
+        return instances;
+    }
+
+    public byte[] getKinds() {
+        return kinds;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public int[] getOrder() {
+        return order;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
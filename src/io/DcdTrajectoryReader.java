@@ -0,0 +1,201 @@
+package io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads the frames of a DCD file (CHARMM, NAMD...)
+ *
+ * The file is a sequence of Fortran records, each one between two
+ * ints with its length in bytes. The header has three records:
+ *
+ *     "CORD" and 20 ints (the number of frames is the first one,
+ *            the flag of the unit cell the 11th and the version of
+ *            CHARMM the 20th)
+ *     the number of title lines and the lines, 80 bytes each one
+ *     the number of atoms
+ *
+ * Then each frame has the unit cell record (6 doubles) if the flag
+ * is set, and the records of the X, Y and Z coordinates (a float for
+ * each atom). All the frames have the same size, so a frame is read
+ * from its offset, and seek doesn't read anything. The byte order
+ * is taken from the length of the first record
+ *
+ * The files with fixed atoms or with a fourth dimension are not supported
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class DcdTrajectoryReader extends TrajectoryReader {
+
+    /**
+     * The length of the first record of the header
+     */
+    private static final int HEADER_LENGTH = 84;
+
+    /**
+     * The length of the unit cell record
+     */
+    private static final int UNIT_CELL_LENGTH = 48;
+
+    private final FileChannel channel;
+
+    private final ByteOrder order;
+
+    private final int numAtoms;
+
+    private final int numFrames;
+
+    /**
+     * The offset in the file of the first frame
+     */
+    private final long firstFrameOffset;
+
+    /**
+     * The size in bytes of each frame, with the lengths of its records
+     */
+    private final int frameSize;
+
+    /**
+     * The offset in the frame of the X record
+     */
+    private final int coordinatesOffset;
+
+    /**
+     * The buffer where each frame is read
+     */
+    private final ByteBuffer frameBuffer;
+
+    /**
+     * The index of the next frame which is read
+     */
+    private int frame = 0;
+
+    /**
+     * The constructor opens the file and reads its header
+     *
+     * @param path the path of the file
+     * @throws IOException if the file can't be read or it is not a DCD file
+     */
+    public DcdTrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(ByteBuffer.allocate(HEADER_LENGTH + 8), 0);
+            // The buffer is read as big-endian
+            if ( header.getInt(0) == HEADER_LENGTH ) {
+                order = ByteOrder.BIG_ENDIAN;
+            } else if ( Integer.reverseBytes(header.getInt(0)) == HEADER_LENGTH ) {
+                order = ByteOrder.LITTLE_ENDIAN;
+            } else {
+                throw new IOException("The file is not a DCD file: " + path);
+            }
+            header.order(order);
+            if ( header.get(4) != 'C' || header.get(5) != 'O' || header.get(6) != 'R' || header.get(7) != 'D' ) {
+                throw new IOException("The file is not a DCD file: " + path);
+            }
+            boolean isCharmm = header.getInt(8 + 19 * 4) != 0;
+            boolean hasUnitCell = isCharmm && header.getInt(8 + 10 * 4) != 0;
+            if ( header.getInt(8 + 8 * 4) != 0 ) {
+                throw new IOException("The DCD files with fixed atoms are not supported: " + path);
+            }
+            if ( isCharmm && header.getInt(8 + 11 * 4) != 0 ) {
+                throw new IOException("The DCD files with four dimensions are not supported: " + path);
+            }
+
+            long offset = HEADER_LENGTH + 8;
+            int titleLength = readFully(ByteBuffer.allocate(4).order(order), offset).getInt(0);
+            offset += titleLength + 8;
+            ByteBuffer atoms = readFully(ByteBuffer.allocate(12).order(order), offset);
+            if ( atoms.getInt(0) != 4 ) {
+                throw new IOException("The DCD file has not the number of atoms: " + path);
+            }
+            numAtoms = atoms.getInt(4);
+            offset += 12;
+
+            firstFrameOffset = offset;
+            coordinatesOffset = hasUnitCell ? UNIT_CELL_LENGTH + 8 : 0;
+            frameSize = coordinatesOffset + 3 * (numAtoms * 4 + 8);
+            frameBuffer = ByteBuffer.allocate(frameSize).order(order);
+            // The number of frames of the header is wrong if the simulation was stopped
+            numFrames = (int) Math.min((channel.size() - firstFrameOffset) / frameSize, Integer.MAX_VALUE);
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected boolean readCoordinates(float[] positions) throws IOException {
+        if ( frame >= numFrames ) {
+            return false;
+        }
+        if ( positions != null ) {
+            frameBuffer.clear();
+            readFully(frameBuffer, firstFrameOffset + (long) frame * frameSize);
+            for ( int axis = 0; axis < 3; axis++ ) {
+                int offset = coordinatesOffset + axis * (numAtoms * 4 + 8);
+                if ( frameBuffer.getInt(offset) != numAtoms * 4 ) {
+                    throw new IOException("The frame " + frame + " of the DCD file is not valid");
+                }
+                offset += 4;
+                for ( int i = 0; i < numAtoms; i++ ) {
+                    positions[i * 3 + axis] = frameBuffer.getFloat(offset + i * 4);
+                }
+            }
+        }
+        frame++;
+        return true;
+    }
+
+    @Override
+    public void seek(int frame) throws IOException {
+        if ( frame < 0 || frame > numFrames ) {
+            throw new IOException("The frame " + frame + " is not in the trajectory");
+        }
+        this.frame = frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * This method fills the buffer with the bytes of the file from the offset
+     *
+     * @param buffer the buffer
+     * @param offset the offset in the file
+     * @return the buffer
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private ByteBuffer readFully(ByteBuffer buffer, long offset) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            int read = channel.read(buffer, offset);
+            if ( read < 0 ) {
+                throw new EOFException("The DCD file ends at the byte " + offset);
+            }
+            offset += read;
+        }
+        return buffer;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    @Override
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
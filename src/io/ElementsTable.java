@@ -0,0 +1,115 @@
+package io;
+
+import atom.AtomKind;
+
+/**
+ * This class maps the symbols of the chemical elements, as they
+ * are written in the structure files, to the AtomKind used for
+ * draw them
+ *
+ * There are only AtomKinds for a few elements. The other elements
+ * are drawn as the fallback AtomKind, unless they are registered
+ * with the AtomKind which has to represent them, for example:
+ *
+ *     ElementsTable.register("SE", AtomKind.SULFUR);
+ *
+ * The symbols are stored as an index built from its letters, so
+ * look up a symbol doesn't need to build a String
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class ElementsTable {
+
+    /**
+     * The number of values of the second letter: none or A to Z
+     */
+    private static final int SECOND_LETTERS = 27;
+
+    /**
+     * The AtomKind of each symbol
+     */
+    private static final AtomKind[] kinds = new AtomKind[26 * SECOND_LETTERS];
+
+    /**
+     * The AtomKind of the elements which are not registered
+     */
+    private static AtomKind fallbackAtomKind = AtomKind.CARBON;
+
+    static {
+        register("C", AtomKind.CARBON);
+        register("H", AtomKind.HYDROGEN);
+        register("D", AtomKind.HYDROGEN);
+        register("O", AtomKind.OXYGEN);
+        register("N", AtomKind.NITROGEN);
+        register("P", AtomKind.PHOSPHOR);
+        register("S", AtomKind.SULFUR);
+    }
+
+    /**
+     * This method calculates the index of the symbol. The letters
+     * can be upper or lower case
+     *
+     * @param first the first letter
+     * @param second the second letter, or 0 if the symbol has only one letter
+     * @return the index, or -1 if the letters are not valid
+     */
+    private static int indexOf(int first, int second) {
+        first = Character.toUpperCase(first) - 'A';
+        if ( first < 0 || first >= 26 ) {
+            return -1;
+        }
+        if ( second == 0 ) {
+            return first * SECOND_LETTERS;
+        }
+        second = Character.toUpperCase(second) - 'A';
+        if ( second < 0 || second >= 26 ) {
+            return -1;
+        }
+        return first * SECOND_LETTERS + second + 1;
+    }
+
+    /**
+     * This method sets the AtomKind which represents the element
+     *
+     * @param symbol the symbol of the element, one or two letters
+     * @param atomKind the AtomKind
+     */
+    public static void register(String symbol, AtomKind atomKind) {
+        int index = -1;
+        if ( symbol.length() == 1 ) {
+            index = indexOf(symbol.charAt(0), 0);
+        } else if ( symbol.length() == 2 ) {
+            index = indexOf(symbol.charAt(0), symbol.charAt(1));
+        }
+        if ( index < 0 ) {
+            throw new IllegalArgumentException("The symbol of an element has one or two letters: " + symbol);
+        }
+        kinds[index] = atomKind;
+    }
+
+    /**
+     * This method returns the AtomKind of the element
+     *
+     * @param first the first letter of the symbol
+     * @param second the second letter of the symbol, or 0 if it has only one letter
+     * @return the AtomKind, or null if the element is not registered
+     */
+    public static AtomKind get(int first, int second) {
+        int index = indexOf(first, second);
+        return index < 0 ? null : kinds[index];
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public static AtomKind getFallbackAtomKind() {
+        return fallbackAtomKind;
+    }
+
+    public static void setFallbackAtomKind(AtomKind fallbackAtomKind) {
+        ElementsTable.fallbackAtomKind = fallbackAtomKind;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,364 @@
+package io;
+
+import atom.AtomKind;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class reads the atoms of a mmCIF file
+ *
+ * The atoms are the rows of the loop of the _atom_site category.
+ * The names of the loop give the column of each field, and the
+ * values of the rows are split by the whitespaces (or quotes).
+ * Each value is parsed when it is found, so a row can continue
+ * in the next line
+ *
+ * As in the PdbReader, only the atoms of the first model and the
+ * first alternate location read for each atom are read. An atom is
+ * identified by its label_atom_id, label_comp_id, label_asym_id,
+ * label_seq_id and pdbx_PDB_ins_code
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class MmcifReader extends StructureReader {
+
+    /**
+     * The bytes of an _atom_site row, approximately
+     */
+    private static final int BYTES_PER_ATOM = 80;
+
+    /**
+     * The prefix of the names of the _atom_site loop
+     */
+    private static final String ATOM_SITE = "_atom_site.";
+
+    /**
+     * The states of the reader
+     */
+    private enum State {
+        OUTSIDE,
+        LOOP_NAMES,
+        ATOM_SITE_NAMES,
+        ATOM_SITE_ROWS
+    }
+
+    private State state;
+
+    /**
+     * The number of columns of the _atom_site loop
+     */
+    private int numColumns;
+
+    /**
+     * The columns of the used fields, or -1 if the file doesn't have them
+     */
+    private int columnSymbol;
+
+    private int columnAtomName;
+
+    private int columnX;
+
+    private int columnY;
+
+    private int columnZ;
+
+    private int columnAltId;
+
+    private int columnModel;
+
+    private int columnResidueName;
+
+    private int columnChain;
+
+    private int columnResidueNumber;
+
+    private int columnInsertionCode;
+
+    /**
+     * The column of the next value of the current row
+     */
+    private int column;
+
+    /**
+     * The values of the current row
+     */
+    private float x;
+
+    private float y;
+
+    private float z;
+
+    private AtomKind atomKind;
+
+    private AtomKind atomKindFromName;
+
+    /**
+     * The alternate location of the row, or 0 if it has not
+     */
+    private int altId;
+
+    /**
+     * The name and the residue of the atom of the row, for the alternate locations
+     */
+    private final StringBuilder atomName = new StringBuilder();
+
+    private int model;
+
+    /**
+     * The model of the first row, the only model which is read
+     */
+    private int firstModel;
+
+    private boolean isFirstRow;
+
+    @Override
+    protected void begin() {
+        state = State.OUTSIDE;
+    }
+
+    @Override
+    protected int estimateNumAtoms(long fileSize) {
+        return (int) Math.min(fileSize / BYTES_PER_ATOM, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void parseLine(ByteBuffer buffer, int start, int end) {
+        if ( state == State.ATOM_SITE_ROWS ) {
+            int c = start < end ? buffer.get(start) : ' ';
+            if ( c == '_' || c == '#' || startsWith(buffer, start, end, "loop_") || startsWith(buffer, start, end, "data_") ) {
+                state = State.OUTSIDE;
+            } else {
+                parseValues(buffer, start, end);
+                return;
+            }
+        }
+
+        if ( startsWith(buffer, start, end, "loop_") ) {
+            state = State.LOOP_NAMES;
+            return;
+        }
+
+        if ( state == State.LOOP_NAMES || state == State.ATOM_SITE_NAMES ) {
+            if ( startsWith(buffer, start, end, ATOM_SITE) ) {
+                if ( state == State.LOOP_NAMES ) {
+                    resetColumns();
+                    state = State.ATOM_SITE_NAMES;
+                }
+                readColumnName(buffer, start + ATOM_SITE.length(), end);
+            } else if ( state == State.ATOM_SITE_NAMES ) {
+                state = State.ATOM_SITE_ROWS;
+                column = 0;
+                isFirstRow = true;
+                parseValues(buffer, start, end);
+            } else {
+                state = State.OUTSIDE;
+            }
+        }
+    }
+
+    /**
+     * This method forgets the columns of the previous loop
+     */
+    private void resetColumns() {
+        numColumns = 0;
+        columnSymbol = -1;
+        columnAtomName = -1;
+        columnX = -1;
+        columnY = -1;
+        columnZ = -1;
+        columnAltId = -1;
+        columnModel = -1;
+        columnResidueName = -1;
+        columnChain = -1;
+        columnResidueNumber = -1;
+        columnInsertionCode = -1;
+    }
+
+    /**
+     * This method reads the name of a column of the _atom_site loop
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the name, after the prefix
+     * @param end the position after the last byte of the line
+     */
+    private void readColumnName(ByteBuffer buffer, int start, int end) {
+        int nameEnd = start;
+        while ( nameEnd < end && buffer.get(nameEnd) != ' ' && buffer.get(nameEnd) != '\t' ) {
+            nameEnd++;
+        }
+        if ( isEqual(buffer, start, nameEnd, "type_symbol") ) {
+            columnSymbol = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "label_atom_id") ) {
+            columnAtomName = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "Cartn_x") ) {
+            columnX = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "Cartn_y") ) {
+            columnY = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "Cartn_z") ) {
+            columnZ = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "label_alt_id") ) {
+            columnAltId = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "pdbx_PDB_model_num") ) {
+            columnModel = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "label_comp_id") ) {
+            columnResidueName = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "label_asym_id") ) {
+            columnChain = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "label_seq_id") ) {
+            columnResidueNumber = numColumns;
+        } else if ( isEqual(buffer, start, nameEnd, "pdbx_PDB_ins_code") ) {
+            columnInsertionCode = numColumns;
+        }
+        numColumns++;
+    }
+
+    /**
+     * This method splits the line in values, and reads the values
+     * of the used columns. When the last column of a row is read,
+     * the atom is added
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the line
+     * @param end the position after the last byte of the line
+     */
+    private void parseValues(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        while ( true ) {
+            while ( i < end && (buffer.get(i) == ' ' || buffer.get(i) == '\t') ) {
+                i++;
+            }
+            if ( i >= end ) {
+                return;
+            }
+
+            int valueStart = i;
+            int valueEnd;
+            int quote = buffer.get(i);
+            if ( quote == '\'' || quote == '"' ) {
+                // the value ends at a quote followed by a whitespace or the end of the line
+                valueStart = ++i;
+                while ( i < end && !(buffer.get(i) == quote && (i + 1 == end || buffer.get(i + 1) == ' ' || buffer.get(i + 1) == '\t')) ) {
+                    i++;
+                }
+                valueEnd = i;
+                i = Math.min(i + 1, end);
+            } else {
+                while ( i < end && buffer.get(i) != ' ' && buffer.get(i) != '\t' ) {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            readValue(buffer, valueStart, valueEnd);
+        }
+    }
+
+    /**
+     * This method reads the value of the current column
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the value
+     * @param end the position after the last byte of the value
+     */
+    private void readValue(ByteBuffer buffer, int start, int end) {
+        if ( column == 0 ) {
+            atomKind = null;
+            atomKindFromName = null;
+            altId = 0;
+            model = 0;
+            atomName.setLength(0);
+        }
+
+        if ( column == columnX ) {
+            x = parseFloat(buffer, start, end);
+        } else if ( column == columnY ) {
+            y = parseFloat(buffer, start, end);
+        } else if ( column == columnZ ) {
+            z = parseFloat(buffer, start, end);
+        } else if ( column == columnSymbol ) {
+            atomKind = readAtomKind(buffer, start, end);
+        } else if ( column == columnAtomName ) {
+            atomKindFromName = start < end ? ElementsTable.get(buffer.get(start), 0) : null;
+            appendAtomName(buffer, start, end);
+        } else if ( column == columnAltId ) {
+            altId = readAltId(buffer, start, end);
+        } else if ( column == columnModel ) {
+            model = parseInt(buffer, start, end);
+        } else if ( column == columnResidueName || column == columnChain || column == columnResidueNumber || column == columnInsertionCode ) {
+            appendAtomName(buffer, start, end);
+        }
+
+        column++;
+        if ( column == numColumns ) {
+            column = 0;
+            addRow();
+        }
+    }
+
+    /**
+     * This method adds the atom of the current row, if it is
+     * of the first model and the first alternate location
+     */
+    private void addRow() {
+        if ( isFirstRow ) {
+            firstModel = model;
+            isFirstRow = false;
+        }
+        if ( model != firstModel || !isFirstLocation(atomName, altId) ) {
+            return;
+        }
+        addAtom(x, y, z, columnSymbol >= 0 ? atomKind : atomKindFromName);
+    }
+
+    /**
+     * This method adds a value to the name of the atom of the row
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the value
+     * @param end the position after the last byte of the value
+     */
+    private void appendAtomName(ByteBuffer buffer, int start, int end) {
+        for ( int i = start; i < end; i++ ) {
+            atomName.append((char) buffer.get(i));
+        }
+        atomName.append(' ');
+    }
+
+    /**
+     * This method reads the label_alt_id value
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the value
+     * @param end the position after the last byte of the value
+     * @return 0 if the value is "." or "?" (no alternate location), or a
+     * number which is different for each value
+     */
+    private static int readAltId(ByteBuffer buffer, int start, int end) {
+        if ( end - start == 1 && (buffer.get(start) == '.' || buffer.get(start) == '?') ) {
+            return 0;
+        }
+        int altId = 1;
+        for ( int i = start; i < end; i++ ) {
+            altId = altId * 31 + (buffer.get(i) & 0xff);
+        }
+        return altId != 0 ? altId : 1;
+    }
+
+    /**
+     * This method reads the element of the type_symbol value
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the value
+     * @param end the position after the last byte of the value
+     * @return the AtomKind of the element, or null if it is not registered
+     */
+    private static AtomKind readAtomKind(ByteBuffer buffer, int start, int end) {
+        if ( end - start == 1 ) {
+            return ElementsTable.get(buffer.get(start), 0);
+        } else if ( end - start == 2 ) {
+            return ElementsTable.get(buffer.get(start), buffer.get(start + 1));
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,503 @@
+package io;
+
+import atom.AtomKind;
+import atom.Hybridization;
+import molecule.AtomsStorage;
+import molecule.BondGraph;
+import molecule.Molecule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes and reads the molecules in a binary format
+ *
+ * The file is a header followed by sections. Each section holds
+ * one array of the AtomsStorage, so read a molecule is only map
+ * the file and copy each section in its array, without parse
+ * anything. All the numbers are little-endian
+ *
+ * The header is:
+ *
+ *     int    MAGIC
+ *     int    version
+ *     int    number of atoms
+ *     int    number of sections
+ *     for each section:
+ *         int  id
+ *         int  reserved (0)
+ *         long offset from the start of the file
+ *         long length in bytes
+ *
+ * The bonds section has the first atoms of the bonds (int), the
+ * second atoms (int) and the orders (byte), so its length is
+ * 9 bytes for each bond
+ *
+ * The sections start at offsets multiple of 8. The readers skip
+ * the sections they don't know, so new sections can be added to
+ * the format without break the old readers. All the sections of
+ * REQUIRED_SECTIONS have to be in the file; without the bounding
+ * radii they are calculated, and without the bonds the molecule has
+ * none. Each section is mapped at once, so it can't be bigger than
+ * Integer.MAX_VALUE bytes
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class MoleculeFile {
+
+    /**
+     * The first bytes of the file: "MOLB"
+     */
+    public static final int MAGIC = 0x424C4F4D;
+
+    /**
+     * The version of the format which is written
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The extension of the files
+     */
+    public static final String EXTENSION = ".molb";
+
+    /**
+     * The ids of the sections
+     */
+    public static final int SECTION_POSITIONS = 1;
+    public static final int SECTION_ORBITALS = 2;
+    public static final int SECTION_ORBITALS_COUNT = 3;
+    public static final int SECTION_RADII = 4;
+    public static final int SECTION_BOUNDING_RADII = 5;
+    public static final int SECTION_KINDS = 6;
+    public static final int SECTION_HYBRIDIZATIONS = 7;
+    public static final int SECTION_COLORS = 8;
+    public static final int SECTION_ROTATIONS = 9;
+    public static final int SECTION_CONNECTIONS = 10;
+    public static final int SECTION_BONDS = 11;
+
+    /**
+     * The bytes of each bond: the two atoms and the order
+     */
+    private static final int BOND_BYTES = 2 * Integer.BYTES + 1;
+
+    /**
+     * The value of the hybridization section for the atoms without orbitals
+     */
+    public static final byte NO_HYBRIDIZATION = -1;
+
+    /**
+     * The bytes of the fixed part of the header
+     */
+    private static final int HEADER_BYTES = 16;
+
+    /**
+     * The bytes of each entry of the sections table
+     */
+    private static final int SECTION_ENTRY_BYTES = 24;
+
+    /**
+     * The ids of the sections which are written, in order
+     */
+    private static final int[] SECTIONS = {
+            SECTION_POSITIONS,
+            SECTION_ORBITALS,
+            SECTION_ORBITALS_COUNT,
+            SECTION_RADII,
+            SECTION_BOUNDING_RADII,
+            SECTION_KINDS,
+            SECTION_HYBRIDIZATIONS,
+            SECTION_COLORS,
+            SECTION_ROTATIONS,
+            SECTION_CONNECTIONS,
+            SECTION_BONDS
+    };
+
+    /**
+     * The ids of the sections which have to be in a file
+     */
+    private static final int[] REQUIRED_SECTIONS = {
+            SECTION_POSITIONS,
+            SECTION_ORBITALS,
+            SECTION_ORBITALS_COUNT,
+            SECTION_RADII,
+            SECTION_KINDS,
+            SECTION_COLORS,
+            SECTION_ROTATIONS,
+            SECTION_CONNECTIONS
+    };
+
+    /**
+     * This method calculates the bytes of a section
+     *
+     * @param section the id of the section
+     * @param numAtoms the number of atoms
+     * @param numBonds the number of bonds
+     * @return the length in bytes
+     */
+    private static long getSectionLength(int section, int numAtoms, int numBonds) {
+        switch ( section ) {
+            case SECTION_BONDS:
+                return (long) BOND_BYTES * numBonds;
+            case SECTION_POSITIONS:
+                return 3L * Float.BYTES * numAtoms;
+            case SECTION_ORBITALS:
+                return (long) AtomsStorage.ORBITALS_STRIDE * Float.BYTES * numAtoms;
+            case SECTION_ORBITALS_COUNT: case SECTION_KINDS: case SECTION_HYBRIDIZATIONS:
+                return numAtoms;
+            case SECTION_RADII: case SECTION_BOUNDING_RADII: case SECTION_ROTATIONS:
+                return (long) Float.BYTES * numAtoms;
+            case SECTION_COLORS: case SECTION_CONNECTIONS: default:
+                return (long) Integer.BYTES * numAtoms;
+        }
+    }
+
+    /**
+     * This method maps a section of the file
+     *
+     * @param channel the channel of the file
+     * @param mode the mode of the mapping
+     * @param section the id of the section
+     * @param offset the offset of the section
+     * @param length the length of the section
+     * @return the mapped section, little-endian
+     * @throws IOException if the section is bigger than Integer.MAX_VALUE bytes
+     */
+    private static MappedByteBuffer mapSection(FileChannel channel, FileChannel.MapMode mode, int section, long offset, long length) throws IOException {
+        if ( length > Integer.MAX_VALUE ) {
+            throw new IOException("The section " + section + " of the molecule file has " + length + " bytes, more than " + Integer.MAX_VALUE);
+        }
+        MappedByteBuffer buffer = channel.map(mode, offset, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    /**
+     * This method rounds the offset up to a multiple of 8
+     */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * This method returns the hybridization of an atom by its
+     * number of orbitals
+     *
+     * @param orbitalsCount the number of orbitals
+     * @return the ordinal of the Hybridization, or NO_HYBRIDIZATION
+     */
+    private static byte toHybridization(int orbitalsCount) {
+        switch ( orbitalsCount ) {
+            case 4:
+                return (byte) Hybridization.SP3.ordinal();
+            case 3:
+                return (byte) Hybridization.SP2.ordinal();
+            case 2:
+                return (byte) Hybridization.SP.ordinal();
+            default:
+                return NO_HYBRIDIZATION;
+        }
+    }
+
+    /**
+     * This method writes the molecule in the file
+     *
+     * @param molecule the molecule to write
+     * @param path the path of the file
+     * @throws IOException if the file can't be written, or a section is too big
+     */
+    public static void write(Molecule molecule, Path path) throws IOException {
+        AtomsStorage storage = molecule.getStorage();
+        int numAtoms = storage.getSize();
+        int numBonds = molecule.getBonds().getNumBonds();
+
+        long[] offsets = new long[SECTIONS.length];
+        long offset = align(HEADER_BYTES + (long) SECTIONS.length * SECTION_ENTRY_BYTES);
+        for ( int i = 0; i < SECTIONS.length; i++ ) {
+            long length = getSectionLength(SECTIONS[i], numAtoms, numBonds);
+            // it's checked before create the file, so a molecule too big doesn't truncate it
+            if ( length > Integer.MAX_VALUE ) {
+                throw new IOException("The section " + SECTIONS[i] + " of the molecule has " + length + " bytes, more than " + Integer.MAX_VALUE);
+            }
+            offsets[i] = offset;
+            offset = align(offset + length);
+        }
+
+        try ( FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE) ) {
+            ByteBuffer header = ByteBuffer.allocate((int) offsets[0]).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC);
+            header.putInt(VERSION);
+            header.putInt(numAtoms);
+            header.putInt(SECTIONS.length);
+            for ( int i = 0; i < SECTIONS.length; i++ ) {
+                header.putInt(SECTIONS[i]);
+                header.putInt(0);
+                header.putLong(offsets[i]);
+                header.putLong(getSectionLength(SECTIONS[i], numAtoms, numBonds));
+            }
+            header.clear();
+            while ( header.hasRemaining() ) {
+                channel.write(header, header.position());
+            }
+
+            for ( int i = 0; i < SECTIONS.length; i++ ) {
+                long length = getSectionLength(SECTIONS[i], numAtoms, numBonds);
+                if ( length == 0 ) {
+                    continue;
+                }
+                MappedByteBuffer buffer = mapSection(channel, FileChannel.MapMode.READ_WRITE, SECTIONS[i], offsets[i], length);
+                writeSection(SECTIONS[i], molecule, buffer);
+                buffer.force();
+            }
+        }
+    }
+
+    /**
+     * This method writes one array of the storage in the mapped section
+     *
+     * @param section the id of the section
+     * @param molecule the molecule
+     * @param buffer the mapped section
+     */
+    private static void writeSection(int section, Molecule molecule, ByteBuffer buffer) {
+        AtomsStorage storage = molecule.getStorage();
+        int numAtoms = storage.getSize();
+        switch ( section ) {
+            case SECTION_BONDS:
+                BondGraph bonds = molecule.getBonds();
+                int numBonds = bonds.getNumBonds();
+                buffer.asIntBuffer().put(bonds.getBondAtoms1(), 0, numBonds);
+                buffer.position(numBonds * Integer.BYTES);
+                buffer.asIntBuffer().put(bonds.getBondAtoms2(), 0, numBonds);
+                buffer.position(2 * numBonds * Integer.BYTES);
+                buffer.put(bonds.getBondOrders(), 0, numBonds);
+                break;
+            case SECTION_POSITIONS:
+                buffer.asFloatBuffer().put(storage.getPositions(), 0, numAtoms * 3);
+                break;
+            case SECTION_ORBITALS:
+                buffer.asFloatBuffer().put(storage.getOrbitals(), 0, numAtoms * AtomsStorage.ORBITALS_STRIDE);
+                break;
+            case SECTION_ORBITALS_COUNT:
+                buffer.put(storage.getOrbitalsCounts(), 0, numAtoms);
+                break;
+            case SECTION_RADII:
+                buffer.asFloatBuffer().put(storage.getRadii(), 0, numAtoms);
+                break;
+            case SECTION_BOUNDING_RADII:
+                buffer.asFloatBuffer().put(storage.getBoundingRadii(), 0, numAtoms);
+                break;
+            case SECTION_KINDS:
+                buffer.put(storage.getKinds(), 0, numAtoms);
+                break;
+            case SECTION_HYBRIDIZATIONS:
+                byte[] orbitalsCounts = storage.getOrbitalsCounts();
+                for ( int i = 0; i < numAtoms; i++ ) {
+                    buffer.put(toHybridization(orbitalsCounts[i]));
+                }
+                break;
+            case SECTION_COLORS:
+                buffer.asIntBuffer().put(storage.getColors(), 0, numAtoms);
+                break;
+            case SECTION_ROTATIONS:
+                buffer.asFloatBuffer().put(storage.getRotations(), 0, numAtoms);
+                break;
+            case SECTION_CONNECTIONS:
+                buffer.asIntBuffer().put(storage.getConnections(), 0, numAtoms);
+                break;
+        }
+    }
+
+    /**
+     * This method reads a molecule from the file
+     *
+     * @param path the path of the file
+     * @return the molecule
+     * @throws IOException if the file can't be read, it is not a molecule file,
+     * or a required section is missing or corrupted
+     */
+    public static Molecule read(Path path) throws IOException {
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            long fileSize = channel.size();
+            if ( fileSize < HEADER_BYTES ) {
+                throw new IOException("The file is not a molecule file: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if ( header.getInt() != MAGIC ) {
+                throw new IOException("The file is not a molecule file: " + path);
+            }
+            int version = header.getInt();
+            if ( version > VERSION ) {
+                throw new IOException("The version " + version + " of the molecule file is not supported: " + path);
+            }
+            int numAtoms = header.getInt();
+            int numSections = header.getInt();
+
+            long tableLength = (long) numSections * SECTION_ENTRY_BYTES;
+            if ( numAtoms < 0 || numSections < 0 || HEADER_BYTES + tableLength > fileSize ) {
+                throw new IOException("The molecule file is corrupted: " + path);
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, tableLength).order(ByteOrder.LITTLE_ENDIAN);
+
+            AtomsStorage storage = new AtomsStorage(numAtoms);
+            storage.setSize(numAtoms);
+            boolean[] isRead = new boolean[SECTION_BONDS + 1];
+            byte[] hybridizations = null;
+            ByteBuffer bondsBuffer = null;
+            int numBonds = 0;
+            for ( int i = 0; i < numSections; i++ ) {
+                int section = table.getInt();
+                table.getInt();
+                long offset = table.getLong();
+                long length = table.getLong();
+                if ( section < SECTION_POSITIONS || section > SECTION_BONDS || isRead[section] ) {
+                    continue;
+                }
+                if ( section == SECTION_BONDS ) {
+                    numBonds = (int) Math.min(length / BOND_BYTES, Integer.MAX_VALUE);
+                }
+                if ( length != getSectionLength(section, numAtoms, numBonds) || offset < 0 || offset + length > fileSize ) {
+                    throw new IOException("The section " + section + " of the molecule file is corrupted: " + path);
+                }
+                isRead[section] = true;
+                if ( length == 0 ) {
+                    continue;
+                }
+                MappedByteBuffer buffer = mapSection(channel, FileChannel.MapMode.READ_ONLY, section, offset, length);
+                if ( section == SECTION_BONDS ) {
+                    bondsBuffer = buffer;
+                } else if ( section == SECTION_HYBRIDIZATIONS ) {
+                    hybridizations = new byte[numAtoms];
+                    buffer.get(hybridizations);
+                } else {
+                    readSection(section, storage, buffer);
+                }
+            }
+            for ( int section : REQUIRED_SECTIONS ) {
+                if ( !isRead[section] ) {
+                    throw new IOException("The molecule file has not the section " + section + ": " + path);
+                }
+            }
+            checkValues(storage, hybridizations, path);
+            if ( !isRead[SECTION_BOUNDING_RADII] ) {
+                storage.updateBoundingRadii();
+            }
+
+            Molecule molecule = new Molecule(storage);
+            if ( bondsBuffer != null ) {
+                readBonds(bondsBuffer, numBonds, molecule.getBonds(), path);
+            }
+            return molecule;
+        }
+    }
+
+    /**
+     * This method reads the bonds section and builds the bond graph
+     *
+     * @param buffer the mapped section
+     * @param numBonds the number of bonds
+     * @param bonds the bond graph of the molecule
+     * @param path the path of the file
+     * @throws IOException if a bond is not valid
+     */
+    private static void readBonds(ByteBuffer buffer, int numBonds, BondGraph bonds, Path path) throws IOException {
+        int[] atoms1 = new int[numBonds];
+        int[] atoms2 = new int[numBonds];
+        byte[] orders = new byte[numBonds];
+        buffer.asIntBuffer().get(atoms1);
+        buffer.position(numBonds * Integer.BYTES);
+        buffer.asIntBuffer().get(atoms2);
+        buffer.position(2 * numBonds * Integer.BYTES);
+        buffer.get(orders);
+        try {
+            bonds.setBonds(atoms1, atoms2, orders, numBonds);
+        } catch ( IllegalArgumentException e ) {
+            throw new IOException("The bonds of the molecule file are corrupted: " + path, e);
+        }
+    }
+
+    /**
+     * This method checks that the kinds and the number of orbitals read
+     * are valid, because they are used as indices while rendering, and
+     * that the hybridizations, if they have been read, match the number
+     * of orbitals. The orbitals of the atoms already have the geometry of
+     * its hybridization, so the hybridizations are not kept in the storage
+     *
+     * @param storage the storage read
+     * @param hybridizations the hybridizations section, or null if it is not in the file
+     * @param path the path of the file
+     * @throws IOException if a value is not valid
+     */
+    private static void checkValues(AtomsStorage storage, byte[] hybridizations, Path path) throws IOException {
+        byte[] kinds = storage.getKinds();
+        byte[] orbitalsCounts = storage.getOrbitalsCounts();
+        int numKinds = AtomKind.values().length;
+        for ( int i = 0; i < storage.getSize(); i++ ) {
+            if ( kinds[i] < 0 || kinds[i] >= numKinds || orbitalsCounts[i] < 0 || orbitalsCounts[i] > AtomsStorage.MAX_ORBITALS ) {
+                throw new IOException("The atom " + i + " of the molecule file is corrupted: " + path);
+            }
+            if ( hybridizations != null && hybridizations[i] != toHybridization(orbitalsCounts[i]) ) {
+                throw new IOException("The hybridization of the atom " + i + " of the molecule file doesn't match its orbitals: " + path);
+            }
+        }
+    }
+
+    /**
+     * This method copies the mapped section in its array of the storage
+     *
+     * @param section the id of the section
+     * @param storage the storage of the molecule
+     * @param buffer the mapped section
+     */
+    private static void readSection(int section, AtomsStorage storage, ByteBuffer buffer) {
+        int numAtoms = storage.getSize();
+        switch ( section ) {
+            case SECTION_POSITIONS:
+                buffer.asFloatBuffer().get(storage.getPositions(), 0, numAtoms * 3);
+                break;
+            case SECTION_ORBITALS:
+                buffer.asFloatBuffer().get(storage.getOrbitals(), 0, numAtoms * AtomsStorage.ORBITALS_STRIDE);
+                break;
+            case SECTION_ORBITALS_COUNT:
+                buffer.get(storage.getOrbitalsCounts(), 0, numAtoms);
+                break;
+            case SECTION_RADII:
+                buffer.asFloatBuffer().get(storage.getRadii(), 0, numAtoms);
+                break;
+            case SECTION_BOUNDING_RADII:
+                buffer.asFloatBuffer().get(storage.getBoundingRadii(), 0, numAtoms);
+                break;
+            case SECTION_KINDS:
+                buffer.get(storage.getKinds(), 0, numAtoms);
+                break;
+            case SECTION_COLORS:
+                buffer.asIntBuffer().get(storage.getColors(), 0, numAtoms);
+                break;
+            case SECTION_ROTATIONS:
+                buffer.asFloatBuffer().get(storage.getRotations(), 0, numAtoms);
+                break;
+            case SECTION_CONNECTIONS:
+                buffer.asIntBuffer().get(storage.getConnections(), 0, numAtoms);
+                break;
+        }
+    }
+
+    public static void write(Molecule molecule, String path) throws IOException {
+        write(molecule, Paths.get(path));
+    }
+
+    public static Molecule read(String path) throws IOException {
+        return read(Paths.get(path));
+    }
+
+}
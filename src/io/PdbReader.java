@@ -0,0 +1,121 @@
+package io;
+
+import atom.AtomKind;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class reads the atoms of a PDB file
+ *
+ * Only the ATOM and HETATM records of the first model are read,
+ * and from the atoms with alternate locations only the first
+ * location read for each atom (by its name and its residue). The
+ * records have fixed columns, so the fields are parsed directly
+ * from its columns
+ *
+ * The element is read from the columns 77-78. The old files which
+ * don't have them take the element from the atom name
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class PdbReader extends StructureReader {
+
+    /**
+     * The length of an ATOM record until the Z coordinate
+     */
+    private static final int MIN_ATOM_LENGTH = 54;
+
+    /**
+     * The bytes of an ATOM record, approximately
+     */
+    private static final int BYTES_PER_ATOM = 81;
+
+    /**
+     * The flag which is set at the end of the first model
+     */
+    private boolean isFirstModelRead;
+
+    /**
+     * The name and the residue of the atom with alternate locations
+     * which is read: the columns 13-16 and 18-27 of the record
+     */
+    private final StringBuilder atomName = new StringBuilder();
+
+    @Override
+    protected void begin() {
+        isFirstModelRead = false;
+    }
+
+    @Override
+    protected int estimateNumAtoms(long fileSize) {
+        return (int) Math.min(fileSize / BYTES_PER_ATOM, Integer.MAX_VALUE);
+    }
+
+    @Override
+    protected void parseLine(ByteBuffer buffer, int start, int end) {
+        if ( isFirstModelRead ) {
+            return;
+        }
+        if ( startsWith(buffer, start, end, "ENDMDL") ) {
+            isFirstModelRead = true;
+            return;
+        }
+        if ( !startsWith(buffer, start, end, "ATOM  ") && !startsWith(buffer, start, end, "HETATM") ) {
+            return;
+        }
+        if ( end - start < MIN_ATOM_LENGTH ) {
+            return;
+        }
+
+        byte altLoc = buffer.get(start + 16);
+        if ( altLoc != ' ' ) {
+            atomName.setLength(0);
+            for ( int i = start + 12; i < start + 27; i++ ) {
+                if ( i != start + 16 ) {
+                    atomName.append((char) buffer.get(i));
+                }
+            }
+            if ( !isFirstLocation(atomName, altLoc) ) {
+                return;
+            }
+        }
+
+        float x = parseFloat(buffer, start + 30, start + 38);
+        float y = parseFloat(buffer, start + 38, start + 46);
+        float z = parseFloat(buffer, start + 46, start + 54);
+        addAtom(x, y, z, readAtomKind(buffer, start, end));
+    }
+
+    /**
+     * This method reads the element of the ATOM record
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte of the record
+     * @param end the position after the last byte of the record
+     * @return the AtomKind of the element, or null if it is not registered
+     */
+    private static AtomKind readAtomKind(ByteBuffer buffer, int start, int end) {
+        if ( end - start >= 78 ) {
+            int first = buffer.get(start + 76);
+            int second = buffer.get(start + 77);
+            if ( first == ' ' ) {
+                first = second;
+                second = 0;
+            }
+            if ( first != ' ' ) {
+                return ElementsTable.get(first, second == ' ' ? 0 : second);
+            }
+        }
+
+        // without element columns, the element is right-justified in the columns 13-14 of the name
+        int first = buffer.get(start + 12);
+        int second = buffer.get(start + 13);
+        if ( first == ' ' || Character.isDigit(first) ) {
+            return ElementsTable.get(second, 0);
+        }
+        AtomKind atomKind = ElementsTable.get(first, second);
+        return atomKind != null ? atomKind : ElementsTable.get(first, 0);
+    }
+
+}
@@ -0,0 +1,82 @@
+package io;
+
+import molecule.Molecule;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class loads a molecule from a structure file,
+ * choosing the reader by the extension of the file.
+ * The binary molecule files (MoleculeFile) are loaded too,
+ * and the trajectory files are opened for read its frames
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class StructureLoader {
+
+    /**
+     * This method builds the reader for the file
+     *
+     * @param path the path of the file
+     * @return the reader of the format of the file
+     * @throws IOException if the format is not supported
+     */
+    public static StructureReader buildReader(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if ( name.endsWith(".pdb") || name.endsWith(".ent") ) {
+            return new PdbReader();
+        }
+        if ( name.endsWith(".cif") || name.endsWith(".mmcif") ) {
+            return new MmcifReader();
+        }
+        throw new IOException("The format of the file is not supported: " + name);
+    }
+
+    /**
+     * This method loads the molecule of the file
+     *
+     * @param path the path of the file
+     * @return the molecule
+     * @throws IOException if the file can't be read
+     */
+    public static Molecule load(Path path) throws IOException {
+        if ( path.getFileName().toString().toLowerCase().endsWith(MoleculeFile.EXTENSION) ) {
+            return MoleculeFile.read(path);
+        }
+        return buildReader(path).read(path);
+    }
+
+    public static Molecule load(String path) throws IOException {
+        return load(Paths.get(path));
+    }
+
+    /**
+     * This method opens the trajectory file, choosing the
+     * reader by the extension of the file
+     *
+     * @param path the path of the file
+     * @return the reader of the trajectory
+     * @throws IOException if the format is not supported or the file can't be read
+     */
+    public static TrajectoryReader openTrajectory(Path path) throws IOException {
+        String name = path.getFileName().toString().toLowerCase();
+        if ( name.endsWith(".xyz") ) {
+            return new XyzTrajectoryReader(path);
+        }
+        if ( name.endsWith(".dcd") ) {
+            return new DcdTrajectoryReader(path);
+        }
+        if ( name.endsWith(TrajectoryFile.EXTENSION) ) {
+            return new TrajectoryFileReader(path);
+        }
+        throw new IOException("The format of the trajectory is not supported: " + name);
+    }
+
+    public static TrajectoryReader openTrajectory(String path) throws IOException {
+        return openTrajectory(Paths.get(path));
+    }
+
+}
@@ -0,0 +1,387 @@
+package io;
+
+import atom.AtomConstructor;
+import atom.AtomKind;
+import molecule.AtomsStorage;
+import molecule.Molecule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+
+/**
+ * This class is the base of the readers of structure files
+ * (PDB, mmCIF...)
+ *
+ * The file is memory-mapped and the lines are passed to the
+ * subclasses as a range of bytes of the mapped buffer, so
+ * the records are parsed without build a String for each line.
+ * The atoms are written directly into the storage of the
+ * molecule, without build an Atom object for each one
+ *
+ * The files bigger than WINDOW_SIZE are mapped by windows which
+ * always end at the end of a line
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public abstract class StructureReader {
+
+    /**
+     * The maximum number of bytes mapped at the same time
+     */
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    /**
+     * The powers of ten which can be represented exactly by a double
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * The storage where the atoms are written
+     */
+    private AtomsStorage storage;
+
+    /**
+     * The factor which multiplies the coordinates of the file
+     */
+    private float coordinatesScale = 1.0f;
+
+    /**
+     * The number of atoms of the last read whose element
+     * is not registered in the ElementsTable
+     */
+    private int numUnknownElements = 0;
+
+    /**
+     * The number of atoms of the last read which have been skipped
+     * because a coordinate is not a number, as "?" or "." in mmCIF
+     */
+    private int numInvalidAtoms = 0;
+
+    /**
+     * The first alternate location read of each atom with alternate
+     * locations, by the name of the atom and its residue
+     */
+    private final HashMap<String, Integer> firstLocations = new HashMap<>();
+
+    /**
+     * This method is called before read a file, for reset
+     * the state of the reader
+     */
+    protected abstract void begin();
+
+    /**
+     * This method parses one line of the file
+     *
+     * @param buffer the mapped buffer
+     * @param start the position of the first byte of the line
+     * @param end the position after the last byte of the line,
+     *            without the line break
+     */
+    protected abstract void parseLine(ByteBuffer buffer, int start, int end);
+
+    /**
+     * This method estimates the number of atoms of the
+     * file, for allocate the storage only once
+     *
+     * @param fileSize the size of the file in bytes
+     * @return the estimated number of atoms
+     */
+    protected abstract int estimateNumAtoms(long fileSize);
+
+    /**
+     * This method reads the structure file and builds a molecule
+     * with its atoms
+     *
+     * @param path the path of the file
+     * @return the molecule
+     * @throws IOException if the file can't be read
+     */
+    public Molecule read(Path path) throws IOException {
+        AtomsStorage storage = new AtomsStorage(0);
+        read(path, storage);
+        return new Molecule(storage);
+    }
+
+    /**
+     * This method reads the structure file and adds its atoms at
+     * the end of the storage passed by parameter
+     *
+     * @param path the path of the file
+     * @param storage the storage where the atoms are written
+     * @return the number of atoms read
+     * @throws IOException if the file can't be read
+     */
+    public int read(Path path, AtomsStorage storage) throws IOException {
+        int firstAtom = storage.getSize();
+        this.storage = storage;
+        numUnknownElements = 0;
+        numInvalidAtoms = 0;
+        firstLocations.clear();
+        begin();
+
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            long size = channel.size();
+            long estimated = (long) storage.getSize() + estimateNumAtoms(size);
+            storage.ensureCapacity((int) Math.min(estimated, Integer.MAX_VALUE - 8));
+
+            long position = 0;
+            while ( position < size ) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if ( position + length < size ) {
+                    end = lastLineEnd(buffer, end);
+                    if ( end == 0 ) {
+                        throw new IOException("The line at the byte " + position + " is longer than " + WINDOW_SIZE + " bytes");
+                    }
+                }
+                parseLines(buffer, end);
+                position += end;
+            }
+        } finally {
+            this.storage = null;
+            firstLocations.clear();
+        }
+        return storage.getSize() - firstAtom;
+    }
+
+    /**
+     * This method looks for the end of the last complete line
+     *
+     * @param buffer the mapped buffer
+     * @param end the number of bytes of the buffer
+     * @return the position after the last line break, or 0 if there is none
+     */
+    private static int lastLineEnd(ByteBuffer buffer, int end) {
+        for ( int i = end - 1; i >= 0; i-- ) {
+            if ( buffer.get(i) == '\n' ) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * This method splits the buffer in lines and parses them
+     *
+     * @param buffer the mapped buffer
+     * @param end the number of bytes to parse
+     */
+    private void parseLines(ByteBuffer buffer, int end) {
+        int start = 0;
+        for ( int i = 0; i < end; i++ ) {
+            if ( buffer.get(i) == '\n' ) {
+                parseLine(buffer, start, i > start && buffer.get(i - 1) == '\r' ? i - 1 : i);
+                start = i + 1;
+            }
+        }
+        if ( start < end ) {
+            parseLine(buffer, start, end);
+        }
+    }
+
+    /**
+     * This method checks if the alternate location of an atom is the
+     * first one read for that atom. The atoms with several locations
+     * (conformers) are read only once, by its first location, whatever
+     * its name is (A, B, 1...)
+     *
+     * @param atom the name of the atom and its residue, which identifies it
+     * @param location the alternate location, or 0 if the atom has not alternate locations
+     * @return true if the atom has to be read
+     */
+    protected boolean isFirstLocation(CharSequence atom, int location) {
+        if ( location == 0 ) {
+            return true;
+        }
+        Integer first = firstLocations.putIfAbsent(atom.toString(), location);
+        return first == null || first == location;
+    }
+
+    /**
+     * This method writes a new atom in the storage. The radius and
+     * the color are the ones of its AtomKind. The atoms whose
+     * coordinates are not finite numbers are skipped
+     *
+     * @param x the x coordinate read from the file
+     * @param y the y coordinate read from the file
+     * @param z the z coordinate read from the file
+     * @param atomKind the AtomKind of the element, or null if it is not registered
+     */
+    protected void addAtom(float x, float y, float z, AtomKind atomKind) {
+        if ( !Float.isFinite(x) || !Float.isFinite(y) || !Float.isFinite(z) ) {
+            numInvalidAtoms++;
+            return;
+        }
+        if ( atomKind == null ) {
+            numUnknownElements++;
+            atomKind = ElementsTable.getFallbackAtomKind();
+        }
+        storage.addAtom(
+                x * coordinatesScale,
+                y * coordinatesScale,
+                z * coordinatesScale,
+                AtomConstructor.getAtomRadius(atomKind),
+                atomKind,
+                AtomConstructor.getColor(atomKind)
+        );
+    }
+
+    /**
+     * This method parses a decimal number, as "-12.345" or "1.5E-3".
+     * The spaces around the number are skipped
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     * @return the number, or NaN if there is no number
+     */
+    protected static float parseFloat(ByteBuffer buffer, int start, int end) {
+        while ( start < end && buffer.get(start) == ' ' ) {
+            start++;
+        }
+        boolean isNegative = false;
+        if ( start < end && (buffer.get(start) == '-' || buffer.get(start) == '+') ) {
+            isNegative = buffer.get(start) == '-';
+            start++;
+        }
+
+        long mantissa = 0;
+        int exponent = 0;
+        int numDigits = 0;
+        boolean isDecimal = false;
+        int i = start;
+        for ( ; i < end; i++ ) {
+            int c = buffer.get(i);
+            if ( c >= '0' && c <= '9' ) {
+                numDigits++;
+                if ( mantissa < 100000000000000000L ) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if ( isDecimal ) {
+                        exponent--;
+                    }
+                } else if ( !isDecimal ) {
+                    exponent++;
+                }
+            } else if ( c == '.' && !isDecimal ) {
+                isDecimal = true;
+            } else {
+                break;
+            }
+        }
+        if ( numDigits == 0 ) {
+            return Float.NaN;
+        }
+
+        if ( i < end && (buffer.get(i) == 'e' || buffer.get(i) == 'E') ) {
+            i++;
+            boolean isNegativeExponent = false;
+            if ( i < end && (buffer.get(i) == '-' || buffer.get(i) == '+') ) {
+                isNegativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int value = 0;
+            for ( ; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++ ) {
+                value = Math.min(value * 10 + (buffer.get(i) - '0'), 1000);
+            }
+            exponent += isNegativeExponent ? -value : value;
+        }
+
+        double result = mantissa;
+        if ( exponent < 0 ) {
+            result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result * Math.pow(10, exponent);
+        } else if ( exponent > 0 ) {
+            result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+        }
+        return (float) (isNegative ? -result : result);
+    }
+
+    /**
+     * This method parses an integer number. The spaces
+     * around the number are skipped
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     * @return the number, or 0 if there is no number
+     */
+    protected static int parseInt(ByteBuffer buffer, int start, int end) {
+        while ( start < end && buffer.get(start) == ' ' ) {
+            start++;
+        }
+        boolean isNegative = false;
+        if ( start < end && (buffer.get(start) == '-' || buffer.get(start) == '+') ) {
+            isNegative = buffer.get(start) == '-';
+            start++;
+        }
+        int value = 0;
+        for ( int i = start; i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++ ) {
+            value = value * 10 + (buffer.get(i) - '0');
+        }
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * This method checks if the bytes of the range start with the text
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     * @param text the text, only ASCII characters
+     * @return true if the range starts with the text
+     */
+    protected static boolean startsWith(ByteBuffer buffer, int start, int end, String text) {
+        if ( end - start < text.length() ) {
+            return false;
+        }
+        for ( int i = 0; i < text.length(); i++ ) {
+            if ( buffer.get(start + i) != text.charAt(i) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method checks if the bytes of the range are the text
+     *
+     * @param buffer the buffer
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     * @param text the text, only ASCII characters
+     * @return true if the range is equal to the text
+     */
+    protected static boolean isEqual(ByteBuffer buffer, int start, int end, String text) {
+        return end - start == text.length() && startsWith(buffer, start, end, text);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public float getCoordinatesScale() {
+        return coordinatesScale;
+    }
+
+    public int getNumUnknownElements() {
+        return numUnknownElements;
+    }
+
+    public int getNumInvalidAtoms() {
+        return numInvalidAtoms;
+    }
+
+    public void setCoordinatesScale(float coordinatesScale) {
+        this.coordinatesScale = coordinatesScale;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
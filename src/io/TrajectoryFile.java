@@ -0,0 +1,265 @@
+package io;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * This class defines the compressed trajectory format, which
+ * is written by TrajectoryFileWriter and read by TrajectoryFileReader
+ *
+ * The coordinates are quantized to a fixed precision (each coordinate
+ * is stored as the integer round(x / precision)), and the frames are
+ * grouped in chunks of framesPerChunk frames. The first frame of each
+ * chunk is stored as it is and the next ones as the difference with
+ * the previous frame, so each chunk can be decoded without the others.
+ * The atoms are split in slices of atomsPerSlice atoms, and each chunk
+ * of each slice is a block compressed by deflate on its own, so the
+ * blocks are compressed and decompressed in parallel
+ *
+ * Inside a block, for each frame and for each atom of the slice, the
+ * x, y and z values are written as zigzag varints (1 byte for the
+ * values between -64 and 63). All the numbers of the header and the
+ * table are little-endian. The header is:
+ *
+ *     int    MAGIC
+ *     int    version
+ *     int    number of atoms
+ *     int    number of frames
+ *     float  precision
+ *     int    frames per chunk
+ *     int    atoms per slice
+ *     int    reserved (0)
+ *     long   offset of the table
+ *
+ * The table is at the end of the file, because it is known when all the
+ * frames are written. It has an entry for each chunk and slice, ordered
+ * by chunk and by slice:
+ *
+ *     long   offset of the block
+ *     int    length of the compressed block
+ *     int    length of the block decompressed
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class TrajectoryFile {
+
+    /**
+     * The first bytes of the file: "MTRJ"
+     */
+    public static final int MAGIC = 0x4A52544D;
+
+    /**
+     * The version of the format which is written
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The extension of the files
+     */
+    public static final String EXTENSION = ".mtrj";
+
+    /**
+     * The bytes of the header
+     */
+    static final int HEADER_BYTES = 40;
+
+    /**
+     * The bytes of each entry of the table
+     */
+    static final int TABLE_ENTRY_BYTES = 16;
+
+    /**
+     * The default number of frames of each chunk. The longer the
+     * chunks, the better the compression and the slower the seek
+     */
+    public static final int DEFAULT_FRAMES_PER_CHUNK = 16;
+
+    /**
+     * The default number of atoms of each slice
+     */
+    public static final int DEFAULT_ATOMS_PER_SLICE = 16384;
+
+    /**
+     * The biggest absolute value of a quantized coordinate, so the
+     * difference of two of them fits in an int
+     */
+    static final int MAX_QUANTIZED = Integer.MAX_VALUE / 2;
+
+    /**
+     * This method writes all the frames of a trajectory in a compressed trajectory file
+     *
+     * @param reader the reader of the trajectory, from its next frame
+     * @param path the path of the file
+     * @param precision the precision of the coordinates, as 0.001
+     * @return the number of frames written
+     * @throws IOException if the trajectory can't be read or the file can't be written
+     */
+    public static int convert(TrajectoryReader reader, Path path, float precision) throws IOException {
+        float[] positions = new float[reader.getNumAtoms() * 3];
+        try ( TrajectoryFileWriter writer = new TrajectoryFileWriter(path, reader.getNumAtoms(), precision) ) {
+            while ( reader.readFrame(positions) ) {
+                writer.writeFrame(positions);
+            }
+            return writer.getNumFrames();
+        }
+    }
+
+    /**
+     * This method checks that the coordinates can be quantized with the
+     * precision passed by parameter: they are numbers, and the quantized
+     * values are not bigger than MAX_QUANTIZED
+     *
+     * @param positions the positions of the frame
+     * @param length the number of coordinates
+     * @param precision the precision of the coordinates
+     */
+    static void checkQuantizable(float[] positions, int length, float precision) {
+        for ( int i = 0; i < length; i++ ) {
+            if ( !(Math.abs(positions[i] / precision) <= MAX_QUANTIZED) ) {
+                throw new IllegalArgumentException("The coordinate " + positions[i] + " can't be stored with the precision " + precision);
+            }
+        }
+    }
+
+    /**
+     * This method quantizes the coordinates of a range of atoms and writes
+     * them as zigzag varints: as they are if it is the first frame of the
+     * chunk, or as the difference with the previous frame
+     *
+     * @param positions the positions of the frame
+     * @param previous the quantized coordinates of the previous frame, updated with the new ones
+     * @param from the first coordinate of the range (3 for each atom)
+     * @param to the end of the range (exclusive)
+     * @param precision the precision of the coordinates
+     * @param isFirst if it is the first frame of the chunk
+     * @param block the block where the values are written
+     * @param length the number of bytes of the block
+     * @return the block, bigger if it was full
+     */
+    static byte[] encodeFrame(float[] positions, int[] previous, int from, int to, float precision, boolean isFirst, byte[] block, int[] length) {
+        int size = length[0];
+        if ( block.length < size + (to - from) * 5 ) {
+            block = Arrays.copyOf(block, Math.max(size + (to - from) * 5, block.length * 2));
+        }
+        for ( int i = from; i < to; i++ ) {
+            int value = Math.round(positions[i] / precision);
+            int delta = isFirst ? value : value - previous[i];
+            previous[i] = value;
+
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            while ( (zigzag & ~0x7F) != 0 ) {
+                block[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            block[size++] = (byte) zigzag;
+        }
+        length[0] = size;
+        return block;
+    }
+
+    /**
+     * This method reads the zigzag varints of a range of atoms of one frame,
+     * and adds them to the quantized coordinates of the previous frame
+     *
+     * @param block the decompressed block
+     * @param cursor the position of the first value of the frame in the block
+     * @param current the quantized coordinates, updated with the new frame
+     * @param from the first coordinate of the range (3 for each atom)
+     * @param to the end of the range (exclusive)
+     * @param isFirst if it is the first frame of the chunk
+     * @param positions the array where the positions are written, or null
+     * @param precision the precision of the coordinates
+     * @return the position after the last value of the frame
+     * @throws IOException if the block ends before the frame
+     */
+    static int decodeFrame(byte[] block, int cursor, int[] current, int from, int to, boolean isFirst, float[] positions, float precision) throws IOException {
+        try {
+            for ( int i = from; i < to; i++ ) {
+                int zigzag = 0;
+                int shift = 0;
+                int b;
+                do {
+                    b = block[cursor++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ( b < 0 );
+                int delta = (zigzag >>> 1) ^ -(zigzag & 1);
+                int value = isFirst ? delta : current[i] + delta;
+                current[i] = value;
+                if ( positions != null ) {
+                    positions[i] = value * precision;
+                }
+            }
+        } catch ( ArrayIndexOutOfBoundsException e ) {
+            throw new IOException("The block of the trajectory file is corrupted");
+        }
+        return cursor;
+    }
+
+    /**
+     * This method compresses a block by deflate
+     *
+     * @param block the block
+     * @param length the number of bytes of the block
+     * @return the compressed block, with the exact length
+     */
+    static byte[] compress(byte[] block, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(block, 0, length);
+            deflater.finish();
+            byte[] compressed = new byte[Math.max(64, length / 2)];
+            int size = 0;
+            while ( !deflater.finished() ) {
+                if ( size == compressed.length ) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                size += deflater.deflate(compressed, size, compressed.length - size);
+            }
+            return Arrays.copyOf(compressed, size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * This method decompresses a block
+     *
+     * @param compressed the compressed block
+     * @param block the array where the block is decompressed, or null
+     * @param length the length of the block decompressed
+     * @return the array with the block, a new one if the one passed was too small
+     * @throws IOException if the block is corrupted
+     */
+    static byte[] decompress(byte[] compressed, byte[] block, int length) throws IOException {
+        if ( block == null || block.length < length ) {
+            block = new byte[length];
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            int size = 0;
+            while ( size < length && !inflater.finished() ) {
+                int inflated = inflater.inflate(block, size, length - size);
+                if ( inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()) ) {
+                    break;
+                }
+                size += inflated;
+            }
+            if ( size != length ) {
+                throw new IOException("The block of the trajectory file is corrupted");
+            }
+            return block;
+        } catch ( DataFormatException e ) {
+            throw new IOException("The block of the trajectory file is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+}
@@ -0,0 +1,445 @@
+package io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class reads the frames of a compressed trajectory file
+ * (see TrajectoryFile)
+ *
+ * When a frame of a new chunk is read, the blocks of all the slices
+ * of the chunk are read and decompressed in parallel, and they are
+ * kept until other chunk is needed. Meanwhile the blocks of the next
+ * chunk are read and decompressed on the pool, so when the frames are
+ * read in order the next chunk is ready when it's needed, even if the
+ * frame has only one slice. Each frame is decoded from the blocks,
+ * also by slices in parallel. Seek only moves to the frame:
+ * the next read decompresses its chunk, if it is not the current one,
+ * and decodes the frames of the chunk until the one requested, so a
+ * seek costs at most one chunk, whatever the length of the trajectory
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class TrajectoryFileReader extends TrajectoryReader {
+
+    private final FileChannel channel;
+
+    private final int numAtoms;
+
+    private final int numFrames;
+
+    private final float precision;
+
+    private final int framesPerChunk;
+
+    private final int atomsPerSlice;
+
+    private final int numSlices;
+
+    /**
+     * The table of the blocks: offset, compressed length and length,
+     * for each chunk and slice
+     */
+    private final long[] offsets;
+
+    private final int[] compressedLengths;
+
+    private final int[] lengths;
+
+    /**
+     * The decompressed blocks of the slices of the current chunk
+     */
+    private byte[][] blocks;
+
+    /**
+     * The blocks of the chunk which is read ahead, swapped with
+     * the blocks of the current chunk when it's needed
+     */
+    private byte[][] nextBlocks;
+
+    /**
+     * The chunk which is read ahead, or -1, and the task which
+     * reads and decompresses its blocks on the pool
+     */
+    private int nextChunk = -1;
+
+    private ForkJoinTask<?> nextChunkTask;
+
+    /**
+     * The position of the next frame in the block of each slice
+     */
+    private final int[] cursors;
+
+    /**
+     * The quantized coordinates of the last frame decoded
+     */
+    private final int[] current;
+
+    /**
+     * The chunk whose blocks are decompressed, or -1
+     */
+    private int currentChunk = -1;
+
+    /**
+     * The index in the current chunk of the next frame which is decoded
+     */
+    private int decodedFrames = 0;
+
+    /**
+     * The index of the next frame which is read
+     */
+    private int frame = 0;
+
+    /**
+     * The positions where the DecodingTask writes the frame, or null
+     */
+    private float[] decodedPositions;
+
+    /**
+     * The flag to decompress and decode the slices in parallel,
+     * and to read ahead the next chunk
+     */
+    private boolean isParallel = true;
+
+    /**
+     * The minimum number of atoms to decode the slices of the frames in
+     * parallel. The next chunk is read ahead whatever the number of atoms
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * The pool of threads which decompresses and decodes the slices
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The constructor opens the file and reads its header and its table
+     *
+     * @param path the path of the file
+     * @throws IOException if the file can't be read or it is not a trajectory file
+     */
+    public TrajectoryFileReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if ( fileSize < TrajectoryFile.HEADER_BYTES ) {
+                throw new IOException("The file is not a trajectory file: " + path);
+            }
+            ByteBuffer header = readFully(ByteBuffer.allocate(TrajectoryFile.HEADER_BYTES), 0);
+            header.order(ByteOrder.LITTLE_ENDIAN).flip();
+            if ( header.getInt() != TrajectoryFile.MAGIC ) {
+                throw new IOException("The file is not a trajectory file: " + path);
+            }
+            int version = header.getInt();
+            if ( version > TrajectoryFile.VERSION ) {
+                throw new IOException("The version " + version + " of the trajectory file is not supported: " + path);
+            }
+            numAtoms = header.getInt();
+            numFrames = header.getInt();
+            precision = header.getFloat();
+            framesPerChunk = header.getInt();
+            atomsPerSlice = header.getInt();
+            header.getInt();
+            long tableOffset = header.getLong();
+            if ( numAtoms < 0 || numFrames < 0 || framesPerChunk < 1 || atomsPerSlice < 1 || tableOffset < TrajectoryFile.HEADER_BYTES ) {
+                throw new IOException("The trajectory file is corrupted or it was not closed: " + path);
+            }
+
+            numSlices = Math.max((numAtoms + atomsPerSlice - 1) / atomsPerSlice, 1);
+            int numChunks = (numFrames + framesPerChunk - 1) / framesPerChunk;
+            long tableLength = (long) numChunks * numSlices * TrajectoryFile.TABLE_ENTRY_BYTES;
+            if ( tableOffset + tableLength > fileSize || tableLength > Integer.MAX_VALUE ) {
+                throw new IOException("The trajectory file is corrupted: " + path);
+            }
+            ByteBuffer table = readFully(ByteBuffer.allocate((int) tableLength), tableOffset);
+            table.order(ByteOrder.LITTLE_ENDIAN).flip();
+            offsets = new long[numChunks * numSlices];
+            compressedLengths = new int[numChunks * numSlices];
+            lengths = new int[numChunks * numSlices];
+            for ( int i = 0; i < offsets.length; i++ ) {
+                offsets[i] = table.getLong();
+                compressedLengths[i] = table.getInt();
+                lengths[i] = table.getInt();
+                if ( offsets[i] < 0 || compressedLengths[i] < 0 || lengths[i] < 0 || offsets[i] + compressedLengths[i] > tableOffset ) {
+                    throw new IOException("The trajectory file is corrupted: " + path);
+                }
+            }
+
+            blocks = new byte[numSlices][];
+            nextBlocks = new byte[numSlices][];
+            cursors = new int[numSlices];
+            current = new int[numAtoms * 3];
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected boolean readCoordinates(float[] positions) throws IOException {
+        if ( frame >= numFrames ) {
+            return false;
+        }
+        int chunk = frame / framesPerChunk;
+        int target = frame % framesPerChunk;
+        if ( chunk != currentChunk ) {
+            loadChunk(chunk);
+        }
+        if ( target < decodedFrames ) {
+            decodedFrames = 0;
+            Arrays.fill(cursors, 0);
+        }
+        while ( decodedFrames < target ) {
+            decodeFrame(null);
+        }
+        decodeFrame(positions);
+        frame++;
+        return true;
+    }
+
+    @Override
+    public void seek(int frame) throws IOException {
+        if ( frame < 0 || frame > numFrames ) {
+            throw new IOException("The frame " + frame + " is not in the trajectory");
+        }
+        this.frame = frame;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The chunk read ahead is discarded, the task ends when the channel is closed
+        nextChunk = -1;
+        nextChunkTask = null;
+        channel.close();
+    }
+
+    /**
+     * This method reads and decompresses the blocks of all the slices of
+     * the chunk, or takes them if they have been read ahead, and starts
+     * to read ahead the next chunk
+     *
+     * @param chunk the index of the chunk
+     * @throws IOException if the blocks can't be read or they are corrupted
+     */
+    private void loadChunk(int chunk) throws IOException {
+        currentChunk = -1;
+        boolean isReadAhead = false;
+        if ( nextChunkTask != null ) {
+            ForkJoinTask<?> task = nextChunkTask;
+            boolean isNeeded = nextChunk == chunk;
+            nextChunkTask = null;
+            nextChunk = -1;
+            if ( isNeeded ) {
+                join(task);
+                byte[][] swapped = blocks;
+                blocks = nextBlocks;
+                nextBlocks = swapped;
+                isReadAhead = true;
+            } else {
+                // The blocks read ahead are not needed, but they can't be reused until the task ends
+                task.quietlyJoin();
+            }
+        }
+        if ( !isReadAhead ) {
+            if ( isParallel && numAtoms >= parallelThreshold && numSlices > 1 ) {
+                join(pool.submit(new DecodingTask(chunk, blocks, 0, numSlices)));
+            } else {
+                for ( int s = 0; s < numSlices; s++ ) {
+                    loadBlock(chunk, s, blocks);
+                }
+            }
+        }
+        Arrays.fill(cursors, 0);
+        decodedFrames = 0;
+        currentChunk = chunk;
+
+        int numChunks = (numFrames + framesPerChunk - 1) / framesPerChunk;
+        if ( isParallel && chunk + 1 < numChunks ) {
+            nextChunk = chunk + 1;
+            nextChunkTask = pool.submit(new DecodingTask(nextChunk, nextBlocks, 0, numSlices));
+        }
+    }
+
+    /**
+     * This method reads and decompresses the block of a slice of the chunk
+     *
+     * @param chunk the index of the chunk
+     * @param slice the index of the slice
+     * @param target the blocks where the block is decompressed
+     * @throws IOException if the block can't be read or it is corrupted
+     */
+    private void loadBlock(int chunk, int slice, byte[][] target) throws IOException {
+        int entry = chunk * numSlices + slice;
+        byte[] compressed = new byte[compressedLengths[entry]];
+        readFully(ByteBuffer.wrap(compressed), offsets[entry]);
+        target[slice] = TrajectoryFile.decompress(compressed, target[slice], lengths[entry]);
+    }
+
+    /**
+     * This method decodes the next frame of the current chunk
+     *
+     * @param positions the array where the positions are written, or null
+     * @throws IOException if the blocks are corrupted
+     */
+    private void decodeFrame(float[] positions) throws IOException {
+        if ( isParallel && numAtoms >= parallelThreshold && numSlices > 1 ) {
+            decodedPositions = positions;
+            try {
+                join(pool.submit(new DecodingTask(-1, null, 0, numSlices)));
+            } finally {
+                decodedPositions = null;
+            }
+        } else {
+            for ( int s = 0; s < numSlices; s++ ) {
+                decodeSlice(s, positions);
+            }
+        }
+        decodedFrames++;
+    }
+
+    /**
+     * This method decodes the next frame of the current chunk in a slice
+     *
+     * @param slice the index of the slice
+     * @param positions the array where the positions are written, or null
+     * @throws IOException if the block is corrupted
+     */
+    private void decodeSlice(int slice, float[] positions) throws IOException {
+        int from = slice * atomsPerSlice * 3;
+        int to = Math.min((slice + 1) * atomsPerSlice, numAtoms) * 3;
+        cursors[slice] = TrajectoryFile.decodeFrame(blocks[slice], cursors[slice], current, from, to, decodedFrames == 0, positions, precision);
+    }
+
+    /**
+     * This method waits until the task of the pool ends, and
+     * throws the IOException of the task if it has failed
+     */
+    private void join(ForkJoinTask<?> task) throws IOException {
+        try {
+            task.join();
+        } catch ( UncheckedIOException e ) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * This method fills the buffer with the bytes of the file from the offset
+     *
+     * @param buffer the buffer
+     * @param offset the offset in the file
+     * @return the buffer
+     * @throws IOException if the file ends before the buffer is full
+     */
+    private ByteBuffer readFully(ByteBuffer buffer, long offset) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            int read = channel.read(buffer, offset);
+            if ( read < 0 ) {
+                throw new IOException("The trajectory file ends at the byte " + offset);
+            }
+            offset += read;
+        }
+        return buffer;
+    }
+
+    /**
+     * This class decompresses the blocks of a chunk into the target
+     * blocks, or decodes the next frame, of a range of slices. If the range has more than one slice,
+     * it's split in two halves which are processed in parallel by the
+     * fork join pool
+     */
+    private class DecodingTask extends RecursiveAction {
+
+        /**
+         * The chunk to decompress, or -1 to decode the next frame
+         */
+        private final int chunk;
+
+        private final byte[][] target;
+
+        private final int from;
+
+        private final int to;
+
+        DecodingTask(int chunk, byte[][] target, int from, int to) {
+            this.chunk = chunk;
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from == 1 ) {
+                try {
+                    if ( chunk >= 0 ) {
+                        loadBlock(chunk, from, target);
+                    } else {
+                        decodeSlice(from, decodedPositions);
+                    }
+                } catch ( IOException e ) {
+                    throw new UncheckedIOException(e);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new DecodingTask(chunk, target, from, middle),
+                        new DecodingTask(chunk, target, middle, to)
+                );
+            }
+        }
+
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    @Override
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    public float getPrecision() {
+        return precision;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setParallel(boolean parallel) {
+        isParallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,437 @@
+package io;
+
+import molecule.Molecule;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class writes a trajectory in the compressed trajectory
+ * format (see TrajectoryFile), frame by frame
+ *
+ * Each frame is quantized and encoded into the blocks of its slices
+ * when it's written. When a chunk is complete, its blocks are compressed
+ * on the pool while the frames of the next chunk are encoded, so the
+ * compression runs beside the encoding even if the frame has only one
+ * slice, and the blocks of all the slices are compressed in parallel.
+ * The compressed blocks are written in order when the next chunk is
+ * complete. Only the blocks of two chunks are kept in memory. The table
+ * and the header are written when the writer is closed, so the file is
+ * not valid until then
+ *
+ *     try ( TrajectoryFileWriter writer = new TrajectoryFileWriter(path, numAtoms, 0.001f) ) {
+ *         writer.writeFrame(molecule);
+ *         ...
+ *     }
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class TrajectoryFileWriter implements Closeable {
+
+    private final FileChannel channel;
+
+    private final int numAtoms;
+
+    private final float precision;
+
+    private final int framesPerChunk;
+
+    private final int atomsPerSlice;
+
+    private final int numSlices;
+
+    private int numFrames = 0;
+
+    /**
+     * The quantized coordinates of the last frame written
+     */
+    private final int[] previous;
+
+    /**
+     * The block of each slice of the current chunk, not compressed,
+     * and the number of bytes of each one
+     */
+    private byte[][] blocks;
+
+    private int[][] blocksLengths;
+
+    /**
+     * The blocks of the chunk which is compressed, and the number of
+     * bytes of each one. They are swapped with the blocks of the
+     * current chunk when it is complete
+     */
+    private byte[][] pendingBlocks;
+
+    private int[][] pendingLengths;
+
+    /**
+     * The compressed blocks of each slice of the chunk which is compressed
+     */
+    private final byte[][] compressed;
+
+    /**
+     * The task which compresses the pending blocks, or null
+     * if they are not compressed in the pool
+     */
+    private ForkJoinTask<?> pendingChunk;
+
+    /**
+     * If there are pending blocks which are not written yet
+     */
+    private boolean isChunkPending = false;
+
+    /**
+     * The table of the blocks written: offset, compressed length and
+     * length, for each chunk and slice
+     */
+    private long[] offsets = new long[16];
+
+    private int[] compressedLengths = new int[16];
+
+    private int[] lengths = new int[16];
+
+    private int numBlocks = 0;
+
+    /**
+     * The offset in the file where the next block is written
+     */
+    private long offset = TrajectoryFile.HEADER_BYTES;
+
+    /**
+     * The frame which is encoded by the EncodingTask
+     */
+    private float[] encodedPositions;
+
+    private boolean isClosed = false;
+
+    /**
+     * The flag to encode and compress the slices in parallel, and
+     * to compress each chunk while the next one is encoded
+     */
+    private boolean isParallel = true;
+
+    /**
+     * The minimum number of atoms to encode the slices of the frames in
+     * parallel. The chunks are compressed beside the encoding whatever
+     * the number of atoms
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * The pool of threads which encodes and compresses the slices
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The constructor creates the file, with the default
+     * frames per chunk and atoms per slice
+     *
+     * @param path the path of the file
+     * @param numAtoms the number of atoms of each frame
+     * @param precision the precision of the coordinates, as 0.001
+     * @throws IOException if the file can't be created
+     */
+    public TrajectoryFileWriter(Path path, int numAtoms, float precision) throws IOException {
+        this(path, numAtoms, precision, TrajectoryFile.DEFAULT_FRAMES_PER_CHUNK, TrajectoryFile.DEFAULT_ATOMS_PER_SLICE);
+    }
+
+    /**
+     * The constructor creates the file
+     *
+     * @param path the path of the file
+     * @param numAtoms the number of atoms of each frame
+     * @param precision the precision of the coordinates, as 0.001
+     * @param framesPerChunk the number of frames of each chunk
+     * @param atomsPerSlice the number of atoms of each slice
+     * @throws IOException if the file can't be created
+     */
+    public TrajectoryFileWriter(Path path, int numAtoms, float precision, int framesPerChunk, int atomsPerSlice) throws IOException {
+        if ( numAtoms < 0 || !(precision > 0.0f) || framesPerChunk < 1 || atomsPerSlice < 1 ) {
+            throw new IllegalArgumentException("The parameters of the trajectory file are not valid");
+        }
+        this.numAtoms = numAtoms;
+        this.precision = precision;
+        this.framesPerChunk = framesPerChunk;
+        this.atomsPerSlice = atomsPerSlice;
+        numSlices = Math.max((numAtoms + atomsPerSlice - 1) / atomsPerSlice, 1);
+        previous = new int[numAtoms * 3];
+        blocks = new byte[numSlices][64];
+        blocksLengths = new int[numSlices][1];
+        pendingBlocks = new byte[numSlices][64];
+        pendingLengths = new int[numSlices][1];
+        compressed = new byte[numSlices][];
+        channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    /**
+     * This method writes the next frame
+     *
+     * @param positions the positions of the atoms, 3 floats for each atom
+     * @throws IOException if the file can't be written
+     */
+    public void writeFrame(float[] positions) throws IOException {
+        if ( isClosed ) {
+            throw new IOException("The trajectory file is closed");
+        }
+        // The frame is checked before encode it, so a wrong frame doesn't break the chunk
+        TrajectoryFile.checkQuantizable(positions, numAtoms * 3, precision);
+        encodedPositions = positions;
+        try {
+            if ( isParallel && numAtoms >= parallelThreshold && numSlices > 1 ) {
+                pool.invoke(new EncodingTask(0, numSlices, false));
+            } else {
+                for ( int s = 0; s < numSlices; s++ ) {
+                    encodeSlice(s);
+                }
+            }
+        } finally {
+            encodedPositions = null;
+        }
+        numFrames++;
+        if ( numFrames % framesPerChunk == 0 ) {
+            writeChunk();
+        }
+    }
+
+    /**
+     * This method writes the positions of the molecule as the next frame
+     *
+     * @param molecule the molecule, with the atoms of the trajectory
+     * @throws IOException if the file can't be written
+     */
+    public void writeFrame(Molecule molecule) throws IOException {
+        if ( molecule.getStorage().getSize() != numAtoms ) {
+            throw new IllegalArgumentException("The molecule has " + molecule.getStorage().getSize() + " atoms and the trajectory " + numAtoms);
+        }
+        writeFrame(molecule.getStorage().getPositions());
+    }
+
+    /**
+     * This method encodes the current frame into the block of the slice
+     *
+     * @param slice the index of the slice
+     */
+    private void encodeSlice(int slice) {
+        int from = slice * atomsPerSlice * 3;
+        int to = Math.min((slice + 1) * atomsPerSlice, numAtoms) * 3;
+        blocks[slice] = TrajectoryFile.encodeFrame(
+                encodedPositions,
+                previous,
+                from,
+                to,
+                precision,
+                numFrames % framesPerChunk == 0,
+                blocks[slice],
+                blocksLengths[slice]
+        );
+    }
+
+    /**
+     * This method ends the current chunk: the pending chunk is written,
+     * and the blocks of the current one become the pending blocks, which
+     * are compressed on the pool while the next chunk is encoded. If the
+     * writer is not parallel, they are compressed and written here
+     *
+     * @throws IOException if the file can't be written
+     */
+    private void writeChunk() throws IOException {
+        writePendingChunk();
+
+        byte[][] swappedBlocks = pendingBlocks;
+        pendingBlocks = blocks;
+        blocks = swappedBlocks;
+        int[][] swappedLengths = pendingLengths;
+        pendingLengths = blocksLengths;
+        blocksLengths = swappedLengths;
+        isChunkPending = true;
+
+        if ( isParallel ) {
+            pendingChunk = pool.submit(new EncodingTask(0, numSlices, true));
+        } else {
+            for ( int s = 0; s < numSlices; s++ ) {
+                compressed[s] = TrajectoryFile.compress(pendingBlocks[s], pendingLengths[s][0]);
+            }
+            writePendingChunk();
+        }
+    }
+
+    /**
+     * This method waits until the pending blocks are compressed, and
+     * writes them. The errors of the compression are thrown here
+     *
+     * @throws IOException if the file can't be written
+     */
+    private void writePendingChunk() throws IOException {
+        if ( !isChunkPending ) {
+            return;
+        }
+        if ( pendingChunk != null ) {
+            ForkJoinTask<?> task = pendingChunk;
+            pendingChunk = null;
+            task.join();
+        }
+        if ( offsets.length < numBlocks + numSlices ) {
+            int capacity = Math.max(numBlocks + numSlices, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, capacity);
+            compressedLengths = Arrays.copyOf(compressedLengths, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        for ( int s = 0; s < numSlices; s++ ) {
+            offsets[numBlocks] = offset;
+            compressedLengths[numBlocks] = compressed[s].length;
+            lengths[numBlocks] = pendingLengths[s][0];
+            numBlocks++;
+            offset = write(ByteBuffer.wrap(compressed[s]), offset);
+            compressed[s] = null;
+            pendingLengths[s][0] = 0;
+        }
+        isChunkPending = false;
+    }
+
+    /**
+     * This method writes the buffer in the file at the offset
+     *
+     * @return the offset after the buffer
+     */
+    private long write(ByteBuffer buffer, long offset) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            offset += channel.write(buffer, offset);
+        }
+        return offset;
+    }
+
+    /**
+     * This method writes the last chunk, the table and the header, and closes the file
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        if ( isClosed ) {
+            return;
+        }
+        isClosed = true;
+        try {
+            if ( numFrames % framesPerChunk != 0 ) {
+                writeChunk();
+            }
+            writePendingChunk();
+            long tableOffset = offset;
+            ByteBuffer table = ByteBuffer.allocate(numBlocks * TrajectoryFile.TABLE_ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for ( int i = 0; i < numBlocks; i++ ) {
+                table.putLong(offsets[i]);
+                table.putInt(compressedLengths[i]);
+                table.putInt(lengths[i]);
+            }
+            table.flip();
+            write(table, tableOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(TrajectoryFile.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(TrajectoryFile.MAGIC);
+            header.putInt(TrajectoryFile.VERSION);
+            header.putInt(numAtoms);
+            header.putInt(numFrames);
+            header.putFloat(precision);
+            header.putInt(framesPerChunk);
+            header.putInt(atomsPerSlice);
+            header.putInt(0);
+            header.putLong(tableOffset);
+            header.flip();
+            write(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * This class encodes the current frame, or compresses the pending
+     * blocks, of a range of slices. If the range has more than one slice, it's
+     * split in two halves which are processed in parallel by the fork join pool
+     */
+    private class EncodingTask extends RecursiveAction {
+
+        private final int from;
+
+        private final int to;
+
+        private final boolean isCompressing;
+
+        EncodingTask(int from, int to, boolean isCompressing) {
+            this.from = from;
+            this.to = to;
+            this.isCompressing = isCompressing;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from == 1 ) {
+                if ( isCompressing ) {
+                    compressed[from] = TrajectoryFile.compress(pendingBlocks[from], pendingLengths[from][0]);
+                } else {
+                    encodeSlice(from);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new EncodingTask(from, middle, isCompressing),
+                        new EncodingTask(middle, to, isCompressing)
+                );
+            }
+        }
+
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    public float getPrecision() {
+        return precision;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setParallel(boolean parallel) {
+        isParallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,309 @@
+package io;
+
+import molecule.AtomsStorage;
+import molecule.Molecule;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This class plays a trajectory on a molecule: each call to
+ * applyNextFrame copies the positions of the next frame into the
+ * storage of the molecule, in place, without build any Atom
+ *
+ * The frames are read ahead by a prefetch thread into a bounded ring
+ * of buffers, so the render loop only copies a frame which is already
+ * in memory. Only the frames of the ring are kept in memory, never
+ * the whole trajectory. If the prefetch thread is behind, no frame is
+ * applied and the molecule keeps the last one, so the render loop is
+ * never blocked by the file
+ *
+ * The reader is only used by the prefetch thread after start, and it's
+ * closed with the player. The positions are written in the molecule by
+ * the thread which calls applyNextFrame, so they must not be read by
+ * other thread at the same time (the pipelined frames of the
+ * AtomsPipeLine only read them inside renderMolecule)
+ *
+ *     TrajectoryPlayer player = new TrajectoryPlayer(StructureLoader.openTrajectory(path), 8);
+ *     player.start();
+ *     ...
+ *     player.applyNextFrame(molecule); // in the update of each frame
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class TrajectoryPlayer implements Closeable {
+
+    /**
+     * The reader of the trajectory, only used by the prefetch thread
+     */
+    private final TrajectoryReader reader;
+
+    /**
+     * The ring of buffers with the positions of the frames read ahead
+     */
+    private final float[][] buffers;
+
+    /**
+     * The index of the frame held in each buffer
+     */
+    private final int[] bufferFrames;
+
+    /**
+     * The number of frames written in the ring and the number of
+     * frames taken from it. The buffer of the frame n is n % size
+     */
+    private long numWritten = 0;
+
+    private long numRead = 0;
+
+    /**
+     * The number of seeks requested. The frames read before the
+     * last seek are discarded
+     */
+    private long numSeeks = 0;
+
+    /**
+     * The buffer which is copied by applyNextFrame, or -1. The prefetch
+     * thread doesn't write in it until the copy ends, even after a seek
+     */
+    private int readingBuffer = -1;
+
+    /**
+     * The frame which the prefetch thread has to go to, or -1
+     */
+    private int seekFrame = -1;
+
+    /**
+     * The flag to go back to the first frame at the end of the trajectory
+     */
+    private boolean isLooping = true;
+
+    /**
+     * The flag which is set when the prefetch thread has read all the frames
+     */
+    private boolean isEnded = false;
+
+    private boolean isClosed = false;
+
+    /**
+     * The error of the prefetch thread, thrown by applyNextFrame
+     */
+    private IOException error;
+
+    /**
+     * The index of the last frame applied, or -1
+     */
+    private int currentFrame = -1;
+
+    private final Thread prefetcher;
+
+    /**
+     * The constructor
+     *
+     * @param reader the reader of the trajectory
+     * @param capacity the number of frames which are read ahead
+     */
+    public TrajectoryPlayer(TrajectoryReader reader, int capacity) {
+        if ( capacity < 1 ) {
+            throw new IllegalArgumentException("The capacity has to be positive: " + capacity);
+        }
+        this.reader = reader;
+        buffers = new float[capacity][reader.getNumAtoms() * 3];
+        bufferFrames = new int[capacity];
+        prefetcher = new Thread(this::prefetch, "trajectory-prefetcher");
+        prefetcher.setDaemon(true);
+    }
+
+    /**
+     * This method starts the prefetch thread
+     */
+    public void start() {
+        prefetcher.start();
+    }
+
+    /**
+     * This method reads the frames ahead while there is a free buffer
+     * in the ring. It's the body of the prefetch thread
+     */
+    private void prefetch() {
+        int nextFrame = 0;
+        while ( true ) {
+            int frame;
+            long seeks;
+            boolean isLooping;
+            float[] buffer;
+            synchronized ( this ) {
+                while ( !isClosed && (readingBuffer == (int) (numWritten % buffers.length) ||
+                        (seekFrame < 0 && (isEnded || numWritten - numRead == buffers.length))) ) {
+                    try {
+                        wait();
+                    } catch ( InterruptedException e ) {
+                        return;
+                    }
+                }
+                if ( isClosed ) {
+                    return;
+                }
+                frame = seekFrame;
+                seekFrame = -1;
+                seeks = numSeeks;
+                isLooping = this.isLooping;
+                buffer = buffers[(int) (numWritten % buffers.length)];
+            }
+
+            boolean isRead;
+            try {
+                if ( frame >= 0 ) {
+                    reader.seek(frame);
+                    nextFrame = frame;
+                }
+                isRead = reader.readFrame(buffer);
+                if ( !isRead && isLooping && nextFrame > 0 ) {
+                    reader.seek(0);
+                    nextFrame = 0;
+                    isRead = reader.readFrame(buffer);
+                }
+            } catch ( IOException e ) {
+                synchronized ( this ) {
+                    if ( seeks == numSeeks ) {
+                        error = e;
+                        isEnded = true;
+                    }
+                }
+                continue;
+            }
+
+            synchronized ( this ) {
+                if ( seeks != numSeeks ) {
+                    continue;
+                }
+                if ( isRead ) {
+                    bufferFrames[(int) (numWritten % buffers.length)] = nextFrame++;
+                    numWritten++;
+                } else {
+                    isEnded = true;
+                }
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * This method copies the positions of the next frame in the storage
+     * of the molecule. If the next frame is not read yet, the molecule
+     * is not modified. The molecule has to have the atoms of the trajectory
+     *
+     * @param molecule the molecule
+     * @return true if a frame has been applied
+     * @throws IOException if the prefetch thread couldn't read the trajectory
+     */
+    public boolean applyNextFrame(Molecule molecule) throws IOException {
+        AtomsStorage storage = molecule.getStorage();
+        if ( storage.getSize() != reader.getNumAtoms() ) {
+            throw new IllegalArgumentException("The molecule has " + storage.getSize() + " atoms and the trajectory " + reader.getNumAtoms());
+        }
+        float[] buffer;
+        long seeks;
+        synchronized ( this ) {
+            if ( numRead == numWritten ) {
+                if ( error != null ) {
+                    throw error;
+                }
+                return false;
+            }
+            readingBuffer = (int) (numRead % buffers.length);
+            buffer = buffers[readingBuffer];
+            currentFrame = bufferFrames[readingBuffer];
+            seeks = numSeeks;
+        }
+        // The buffer is not written while readingBuffer points to it
+        System.arraycopy(buffer, 0, storage.getPositions(), 0, buffer.length);
+        synchronized ( this ) {
+            readingBuffer = -1;
+            // After a seek during the copy, numRead already skips the frames read ahead
+            if ( seeks == numSeeks ) {
+                numRead++;
+            }
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * This method discards the frames read ahead, and the next
+     * frame applied will be the frame passed by parameter
+     *
+     * @param frame the index of the frame
+     */
+    public synchronized void seek(int frame) {
+        numSeeks++;
+        numRead = numWritten;
+        seekFrame = frame;
+        isEnded = false;
+        error = null;
+        notifyAll();
+    }
+
+    /**
+     * This method stops the prefetch thread and closes the reader
+     *
+     * @throws IOException if the reader can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized ( this ) {
+            isClosed = true;
+            notifyAll();
+        }
+        if ( prefetcher.isAlive() ) {
+            try {
+                prefetcher.join();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        reader.close();
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public TrajectoryReader getReader() {
+        return reader;
+    }
+
+    public int getCapacity() {
+        return buffers.length;
+    }
+
+    public synchronized int getNumBufferedFrames() {
+        return (int) (numWritten - numRead);
+    }
+
+    public synchronized int getCurrentFrame() {
+        return currentFrame;
+    }
+
+    /**
+     * The trajectory is ended when it's not looping, all
+     * the frames have been read and all have been applied
+     */
+    public synchronized boolean isEnded() {
+        return isEnded && numRead == numWritten;
+    }
+
+    public synchronized boolean isLooping() {
+        return isLooping;
+    }
+
+    public synchronized void setLooping(boolean looping) {
+        isLooping = looping;
+        if ( looping && isEnded && error == null ) {
+            isEnded = false;
+            notifyAll();
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
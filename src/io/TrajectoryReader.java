@@ -0,0 +1,86 @@
+package io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * This class is the base of the readers of trajectory files
+ * (multi-frame XYZ, DCD...), which hold the positions of the
+ * same atoms at many steps of a simulation
+ *
+ * The frames are read one by one from the file, so the whole
+ * trajectory is never loaded in memory. The positions of a frame
+ * are written in an array with the layout of the positions of
+ * AtomsStorage (x, y, z for each atom), so they can be copied to
+ * the storage of the molecule without build any object
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public abstract class TrajectoryReader implements Closeable {
+
+    /**
+     * The factor which multiplies the coordinates of the file
+     */
+    private float coordinatesScale = 1.0f;
+
+    /**
+     * This method reads the coordinates of the next frame, as they
+     * are in the file. If the array is null, the frame is skipped
+     *
+     * @param positions the array where the coordinates are written, or null
+     * @return false if there are no more frames
+     * @throws IOException if the frame can't be read
+     */
+    protected abstract boolean readCoordinates(float[] positions) throws IOException;
+
+    /**
+     * This method moves the reader to the frame passed by parameter,
+     * so it will be the next frame read
+     *
+     * @param frame the index of the frame
+     * @throws IOException if the frame can't be reached
+     */
+    public abstract void seek(int frame) throws IOException;
+
+    /**
+     * This method reads the next frame of the trajectory
+     *
+     * @param positions the array where the positions are written, 3 floats
+     *                  for each atom, or null for skip the frame
+     * @return false if there are no more frames
+     * @throws IOException if the frame can't be read
+     */
+    public boolean readFrame(float[] positions) throws IOException {
+        if ( !readCoordinates(positions) ) {
+            return false;
+        }
+        if ( positions != null && coordinatesScale != 1.0f ) {
+            for ( int i = 0; i < getNumAtoms() * 3; i++ ) {
+                positions[i] *= coordinatesScale;
+            }
+        }
+        return true;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public abstract int getNumAtoms();
+
+    /**
+     * The number of frames is -1 while it's not known,
+     * as in the text files which are not read until the end
+     */
+    public abstract int getNumFrames();
+
+    public float getCoordinatesScale() {
+        return coordinatesScale;
+    }
+
+    public void setCoordinatesScale(float coordinatesScale) {
+        this.coordinatesScale = coordinatesScale;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
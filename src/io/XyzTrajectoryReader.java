@@ -0,0 +1,284 @@
+package io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class reads the frames of a multi-frame XYZ file
+ *
+ * Each frame is a line with the number of atoms, a comment line
+ * and a line for each atom with its element and its coordinates:
+ *
+ *     3
+ *     water, step 0
+ *     O   0.000  0.000  0.000
+ *     H   0.757  0.586  0.000
+ *     H  -0.757  0.586  0.000
+ *
+ * The file is read by blocks of BUFFER_SIZE bytes and the lines are
+ * parsed directly from the block, as in StructureReader. The frames
+ * can have different lengths, so the offset of each frame is kept
+ * when it's read, and seek goes to the nearest known frame and skips
+ * the frames until the one requested. The number of frames is known
+ * when the file has been read until the end
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class XyzTrajectoryReader extends TrajectoryReader {
+
+    /**
+     * The size of the blocks read from the file. A line can't be longer
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+
+    /**
+     * The block of the file which is parsed. The bytes between its
+     * position and its limit are the ones which are not parsed yet
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The offset in the file of the first byte of the buffer
+     */
+    private long bufferOffset = 0;
+
+    /**
+     * The position of the buffer until where a line break has been looked for
+     */
+    private int scanned = 0;
+
+    private boolean isEndOfFile = false;
+
+    /**
+     * The range of the last line read, without the line break
+     */
+    private int lineStart;
+
+    private int lineEnd;
+
+    private final int numAtoms;
+
+    private int numFrames = -1;
+
+    /**
+     * The index of the next frame which is read
+     */
+    private int frame = 0;
+
+    /**
+     * The offset in the file of each frame found
+     */
+    private long[] frameOffsets = new long[16];
+
+    private int numFrameOffsets = 0;
+
+    /**
+     * The constructor opens the file and reads the number of atoms of the first frame
+     *
+     * @param path the path of the file
+     * @throws IOException if the file can't be read or it is not a XYZ file
+     */
+    public XyzTrajectoryReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            goTo(0L);
+            if ( !nextLine() ) {
+                throw new IOException("The file is empty: " + path);
+            }
+            numAtoms = StructureReader.parseInt(buffer, lineStart, lineEnd);
+            if ( numAtoms <= 0 ) {
+                throw new IOException("The file is not a XYZ file: " + path);
+            }
+            goTo(0L);
+        } catch ( IOException e ) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected boolean readCoordinates(float[] positions) throws IOException {
+        long offset = bufferOffset + buffer.position();
+        if ( !nextLine() || isBlank(lineStart, lineEnd) ) {
+            numFrames = frame;
+            return false;
+        }
+        int count = StructureReader.parseInt(buffer, lineStart, lineEnd);
+        if ( count != numAtoms ) {
+            throw new IOException("The frame " + frame + " has " + count + " atoms instead of " + numAtoms);
+        }
+        if ( !nextLine() ) {
+            throw new IOException("The frame " + frame + " is incomplete");
+        }
+        for ( int i = 0; i < numAtoms; i++ ) {
+            if ( !nextLine() ) {
+                throw new IOException("The frame " + frame + " is incomplete");
+            }
+            if ( positions != null ) {
+                // The element is the first field, skip it
+                int start = skipField(nextField(lineStart, lineEnd), lineEnd);
+                positions[i * 3] = StructureReader.parseFloat(buffer, start, fieldEnd(start, lineEnd));
+                start = skipField(start, lineEnd);
+                positions[i * 3 + 1] = StructureReader.parseFloat(buffer, start, fieldEnd(start, lineEnd));
+                start = skipField(start, lineEnd);
+                positions[i * 3 + 2] = StructureReader.parseFloat(buffer, start, fieldEnd(start, lineEnd));
+            }
+        }
+        if ( frame == numFrameOffsets ) {
+            if ( numFrameOffsets == frameOffsets.length ) {
+                frameOffsets = Arrays.copyOf(frameOffsets, frameOffsets.length * 2);
+            }
+            frameOffsets[numFrameOffsets++] = offset;
+        }
+        frame++;
+        return true;
+    }
+
+    @Override
+    public void seek(int frame) throws IOException {
+        if ( frame < 0 || (numFrames >= 0 && frame > numFrames) ) {
+            throw new IOException("The frame " + frame + " is not in the trajectory");
+        }
+        if ( frame < numFrameOffsets ) {
+            goTo(frameOffsets[frame]);
+            this.frame = frame;
+            return;
+        }
+        if ( numFrameOffsets > 0 ) {
+            goTo(frameOffsets[numFrameOffsets - 1]);
+            this.frame = numFrameOffsets - 1;
+        } else {
+            goTo(0L);
+            this.frame = 0;
+        }
+        while ( this.frame < frame ) {
+            if ( !readCoordinates(null) ) {
+                throw new IOException("The frame " + frame + " is not in the trajectory");
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * This method empties the buffer and moves the channel to the offset
+     *
+     * @param offset the offset in the file
+     * @throws IOException if the channel can't be moved
+     */
+    private void goTo(long offset) throws IOException {
+        channel.position(offset);
+        buffer.clear();
+        buffer.limit(0);
+        bufferOffset = offset;
+        scanned = 0;
+        isEndOfFile = false;
+    }
+
+    /**
+     * This method looks for the next line in the buffer, reading
+     * the next block of the file when the buffer has no line break
+     *
+     * @return false if there are no more lines
+     * @throws IOException if the file can't be read or the line is too long
+     */
+    private boolean nextLine() throws IOException {
+        while ( true ) {
+            for ( int i = scanned; i < buffer.limit(); i++ ) {
+                if ( buffer.get(i) == '\n' ) {
+                    setLine(buffer.position(), i);
+                    buffer.position(i + 1);
+                    scanned = i + 1;
+                    return true;
+                }
+            }
+            if ( isEndOfFile ) {
+                if ( !buffer.hasRemaining() ) {
+                    return false;
+                }
+                setLine(buffer.position(), buffer.limit());
+                buffer.position(buffer.limit());
+                scanned = buffer.limit();
+                return true;
+            }
+            int numPending = buffer.remaining();
+            bufferOffset += buffer.position();
+            buffer.compact();
+            if ( !buffer.hasRemaining() ) {
+                throw new IOException("The line at the byte " + bufferOffset + " is longer than " + BUFFER_SIZE + " bytes");
+            }
+            if ( channel.read(buffer) < 0 ) {
+                isEndOfFile = true;
+            }
+            buffer.flip();
+            scanned = numPending;
+        }
+    }
+
+    private void setLine(int start, int end) {
+        lineStart = start;
+        lineEnd = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    private boolean isBlank(int start, int end) {
+        return nextField(start, end) == end;
+    }
+
+    /**
+     * This method skips the spaces and tabs from the position passed by parameter
+     *
+     * @return the position of the first byte of the next field, or end
+     */
+    private int nextField(int start, int end) {
+        while ( start < end && (buffer.get(start) == ' ' || buffer.get(start) == '\t') ) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * This method looks for the end of the field which starts at the position passed by parameter
+     *
+     * @return the position after the last byte of the field
+     */
+    private int fieldEnd(int start, int end) {
+        while ( start < end && buffer.get(start) != ' ' && buffer.get(start) != '\t' ) {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * This method skips the field which starts at the position passed by parameter
+     *
+     * @return the position of the first byte of the next field, or end
+     */
+    private int skipField(int start, int end) {
+        return nextField(fieldEnd(start, end), end);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    @Override
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    @Override
+    public int getNumFrames() {
+        return numFrames;
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
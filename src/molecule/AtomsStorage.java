@@ -0,0 +1,539 @@
+package molecule;
+
+import atom.Atom;
+import atom.AtomKind;
+import atom.AtomTemplate;
+import engine3d.Vec4df;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the data of all the atoms of a molecule
+ * in flat primitive arrays (structure of arrays)
+ *
+ * Each atom is identified by its index. The centre of the atom
+ * is stored in the positions array, and the orbitals are stored
+ * as offsets from the centre, so translate an atom only needs
+ * to modify three floats
+ *
+ * The radius bone (the bone with index 0) is not stored, because
+ * it can be always calculated from the centre and the radius
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class AtomsStorage {
+
+    /**
+     * The maximum number of orbitals an atom can have
+     * (the sp3 hybridization has four)
+     */
+    public static final int MAX_ORBITALS = 4;
+
+    /**
+     * The number of floats used by the orbitals of one atom
+     */
+    public static final int ORBITALS_STRIDE = MAX_ORBITALS * 3;
+
+    /**
+     * The default capacity
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The number of atoms stored
+     */
+    private int size = 0;
+
+    /**
+     * The centres of the atoms: x, y, z for each atom
+     */
+    private float[] positions;
+
+    /**
+     * The orbitals of the atoms, stored as offsets from the centre.
+     * Each atom has ORBITALS_STRIDE floats
+     */
+    private float[] orbitals;
+
+    /**
+     * The number of orbitals of each atom
+     */
+    private byte[] orbitalsCount;
+
+    /**
+     * The radius of each atom
+     */
+    private float[] radius;
+
+    /**
+     * The radius of the sphere which bounds each atom: the
+     * biggest of its radius and the length of its orbitals
+     */
+    private float[] boundingRadius;
+
+    /**
+     * The ordinal of the AtomKind of each atom
+     */
+    private byte[] kinds;
+
+    /**
+     * The color of each atom
+     */
+    private int[] colors;
+
+    /**
+     * The rotation of each atom, in degrees
+     */
+    private float[] rotations;
+
+    /**
+     * The connected flags of the point B of the bones of each atom.
+     * The bit i is the flag of the bone with index i
+     */
+    private int[] connections;
+
+    /**
+     * Null constructor
+     */
+    public AtomsStorage() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param capacity the initial number of atoms which can be stored
+     *                 without growing the arrays
+     */
+    public AtomsStorage(int capacity) {
+        capacity = Math.max(capacity, 1);
+        positions = new float[capacity * 3];
+        orbitals = new float[capacity * ORBITALS_STRIDE];
+        orbitalsCount = new byte[capacity];
+        radius = new float[capacity];
+        boundingRadius = new float[capacity];
+        kinds = new byte[capacity];
+        colors = new int[capacity];
+        rotations = new float[capacity];
+        connections = new int[capacity];
+    }
+
+    /**
+     * This method grows the arrays if it is needed to store
+     * the number of atoms passed by parameter
+     *
+     * @param capacity the number of atoms
+     */
+    public void ensureCapacity(int capacity) {
+        if ( capacity <= radius.length ) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, radius.length * 2);
+        positions = Arrays.copyOf(positions, newCapacity * 3);
+        orbitals = Arrays.copyOf(orbitals, newCapacity * ORBITALS_STRIDE);
+        orbitalsCount = Arrays.copyOf(orbitalsCount, newCapacity);
+        radius = Arrays.copyOf(radius, newCapacity);
+        boundingRadius = Arrays.copyOf(boundingRadius, newCapacity);
+        kinds = Arrays.copyOf(kinds, newCapacity);
+        colors = Arrays.copyOf(colors, newCapacity);
+        rotations = Arrays.copyOf(rotations, newCapacity);
+        connections = Arrays.copyOf(connections, newCapacity);
+    }
+
+    /**
+     * This method sets the number of atoms, growing the arrays if it
+     * is needed. The data of the new atoms has to be written
+     * directly in the arrays, as when a molecule file is read
+     *
+     * @param size the number of atoms
+     */
+    public void setSize(int size) {
+        ensureCapacity(size);
+        this.size = size;
+    }
+
+    /**
+     * This method removes all the atoms. The arrays are kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * This method copies the data of the atom passed by parameter
+     * at the end of the storage
+     *
+     * @param atom the atom to store
+     * @return the index of the stored atom
+     */
+    public int addAtom(Atom atom) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        radius[index] = atom.getRadius();
+        kinds[index] = (byte) atom.getAtomKind().ordinal();
+        colors[index] = atom.getColor();
+        rotations[index] = atom.getRotation();
+        if ( atom.isUsingTemplate() ) {
+            setTemplate(index, atom.getTemplate());
+        } else {
+            setBones(index, atom.getBones());
+        }
+        return index;
+    }
+
+    /**
+     * This method writes the orbitals of the template passed by
+     * parameter into the storage, with the centre on the origin
+     * and without connections. The radius is not modified
+     *
+     * @param index the index of the atom
+     * @param template the template of the atom
+     */
+    public void setTemplate(int index, AtomTemplate template) {
+        positions[index * 3] = 0.0f;
+        positions[index * 3 + 1] = 0.0f;
+        positions[index * 3 + 2] = 0.0f;
+        template.copyOrbitals(orbitals, index * ORBITALS_STRIDE);
+        orbitalsCount[index] = (byte) template.getOrbitalsCount();
+        connections[index] = 0;
+        if ( radius[index] == template.getRadius() ) {
+            boundingRadius[index] = template.getBoundingRadius();
+        } else {
+            updateBoundingRadius(index);
+        }
+    }
+
+    /**
+     * This method adds at the end of the storage an atom without
+     * orbitals, as the atoms read from a structure file, where only
+     * the position and the element are known
+     *
+     * @param x the x coordinate of the centre
+     * @param y the y coordinate of the centre
+     * @param z the z coordinate of the centre
+     * @param radius the radius of the atom
+     * @param atomKind the AtomKind of the atom
+     * @param color the color of the atom
+     * @return the index of the stored atom
+     */
+    public int addAtom(float x, float y, float z, float radius, AtomKind atomKind, int color) {
+        ensureCapacity(size + 1);
+        int index = size++;
+        positions[index * 3] = x;
+        positions[index * 3 + 1] = y;
+        positions[index * 3 + 2] = z;
+        this.radius[index] = radius;
+        boundingRadius[index] = radius;
+        kinds[index] = (byte) atomKind.ordinal();
+        colors[index] = color;
+        rotations[index] = 0.0f;
+        orbitalsCount[index] = 0;
+        connections[index] = 0;
+        return index;
+    }
+
+    /**
+     * This method writes the bones passed by parameter into the
+     * storage. The centre is taken from the point A of the first bone
+     *
+     * @param index the index of the atom
+     * @param bones the bones of the atom, the first one is the radius bone
+     */
+    public void setBones(int index, Bone[] bones) {
+        if ( bones.length - 1 > MAX_ORBITALS ) {
+            throw new IllegalArgumentException("An atom can not have more than " + MAX_ORBITALS + " orbitals");
+        }
+        Vec4df centre = bones[0].getPointA();
+        positions[index * 3] = centre.getX();
+        positions[index * 3 + 1] = centre.getY();
+        positions[index * 3 + 2] = centre.getZ();
+
+        int connected = bones[0].isPointBConnected() ? 1 : 0;
+        int offset = index * ORBITALS_STRIDE;
+        for ( int i = 1; i < bones.length; i++ ) {
+            Vec4df end = bones[i].getPointB();
+            orbitals[offset++] = end.getX() - centre.getX();
+            orbitals[offset++] = end.getY() - centre.getY();
+            orbitals[offset++] = end.getZ() - centre.getZ();
+            if ( bones[i].isPointBConnected() ) {
+                connected |= 1 << i;
+            }
+        }
+        orbitalsCount[index] = (byte) (bones.length - 1);
+        connections[index] = connected;
+        updateBoundingRadius(index);
+    }
+
+    /**
+     * This method calculates the radius of the sphere which bounds
+     * the atom, with its orbitals
+     *
+     * @param index the index of the atom
+     */
+    private void updateBoundingRadius(int index) {
+        float max = radius[index] * radius[index];
+        int offset = index * ORBITALS_STRIDE;
+        for ( int i = 0; i < orbitalsCount[index]; i++ ) {
+            float x = orbitals[offset++];
+            float y = orbitals[offset++];
+            float z = orbitals[offset++];
+            max = Math.max(max, x * x + y * y + z * z);
+        }
+        boundingRadius[index] = (float) Math.sqrt(max);
+    }
+
+    /**
+     * This method calculates the bounding radius of all the atoms,
+     * after its data has been written directly in the arrays
+     */
+    public void updateBoundingRadii() {
+        for ( int i = 0; i < size; i++ ) {
+            updateBoundingRadius(i);
+        }
+    }
+
+    /**
+     * This method calculates the sphere which bounds all the atoms:
+     * its centre is the centre of the box of the atoms, and it
+     * contains the bounding sphere of each atom
+     *
+     * @param out the array where write the x, y, z of the centre and the radius
+     * @return the array passed by parameter
+     */
+    public float[] computeBoundingSphere(float[] out) {
+        if ( size == 0 ) {
+            Arrays.fill(out, 0, 4, 0.0f);
+            return out;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for ( int i = 0; i < size; i++ ) {
+            minX = Math.min(minX, positions[i * 3]);
+            minY = Math.min(minY, positions[i * 3 + 1]);
+            minZ = Math.min(minZ, positions[i * 3 + 2]);
+            maxX = Math.max(maxX, positions[i * 3]);
+            maxY = Math.max(maxY, positions[i * 3 + 1]);
+            maxZ = Math.max(maxZ, positions[i * 3 + 2]);
+        }
+        out[0] = (minX + maxX) * 0.5f;
+        out[1] = (minY + maxY) * 0.5f;
+        out[2] = (minZ + maxZ) * 0.5f;
+
+        float max = 0.0f;
+        for ( int i = 0; i < size; i++ ) {
+            float dx = positions[i * 3] - out[0];
+            float dy = positions[i * 3 + 1] - out[1];
+            float dz = positions[i * 3 + 2] - out[2];
+            max = Math.max(max, (float) Math.sqrt(dx * dx + dy * dy + dz * dz) + boundingRadius[i]);
+        }
+        out[3] = max;
+        return out;
+    }
+
+    /**
+     * This method builds a new set of bones with the data of the atom.
+     * The bones are a copy, so modify them does not modify the storage
+     *
+     * @param index the index of the atom
+     * @return a new set of bones
+     */
+    public Bone[] getBones(int index) {
+        Bone[] bones = new Bone[orbitalsCount[index] + 1];
+        float x = positions[index * 3];
+        float y = positions[index * 3 + 1];
+        float z = positions[index * 3 + 2];
+
+        bones[0] = new Bone(new Vec4df(x, y, z), new Vec4df(x + radius[index], y, z), true, isConnected(index, 0));
+
+        int offset = index * ORBITALS_STRIDE;
+        for ( int i = 1; i < bones.length; i++ ) {
+            bones[i] = new Bone(
+                    new Vec4df(x, y, z),
+                    new Vec4df(x + orbitals[offset], y + orbitals[offset + 1], z + orbitals[offset + 2]),
+                    true,
+                    isConnected(index, i)
+            );
+            offset += 3;
+        }
+        return bones;
+    }
+
+    /**
+     * This method moves the atom the amount passed by parameter
+     *
+     * @param index the index of the atom
+     * @param x the translation on X
+     * @param y the translation on Y
+     * @param z the translation on Z
+     */
+    public void translate(int index, float x, float y, float z) {
+        positions[index * 3] += x;
+        positions[index * 3 + 1] += y;
+        positions[index * 3 + 2] += z;
+    }
+
+    /**
+     * This method transforms the atom by the matrix passed by parameter.
+     * The centre is transformed as a point and the orbitals as directions
+     *
+     * @param index the index of the atom
+     * @param m the matrix as an array (see MatrixMathAtom.matrixToArray)
+     */
+    public void transform(int index, float[] m) {
+        int p = index * 3;
+        float x = positions[p];
+        float y = positions[p + 1];
+        float z = positions[p + 2];
+        positions[p] = m[0] * x + m[1] * y + m[2] * z + m[3];
+        positions[p + 1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+        positions[p + 2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+
+        int offset = index * ORBITALS_STRIDE;
+        for ( int i = 0; i < orbitalsCount[index]; i++ ) {
+            x = orbitals[offset];
+            y = orbitals[offset + 1];
+            z = orbitals[offset + 2];
+            orbitals[offset++] = m[0] * x + m[1] * y + m[2] * z;
+            orbitals[offset++] = m[4] * x + m[5] * y + m[6] * z;
+            orbitals[offset++] = m[8] * x + m[9] * y + m[10] * z;
+        }
+        updateBoundingRadius(index);
+    }
+
+    /**
+     * This method checks if the point B of the bone is connected
+     *
+     * @param index the index of the atom
+     * @param bone the index of the bone
+     * @return true if the point B of the bone is connected
+     */
+    public boolean isConnected(int index, int bone) {
+        return (connections[index] & (1 << bone)) != 0;
+    }
+
+    /**
+     * This method sets if the point B of the bone is connected
+     *
+     * @param index the index of the atom
+     * @param bone the index of the bone
+     * @param isConnected the new value
+     */
+    public void setConnected(int index, int bone, boolean isConnected) {
+        if ( isConnected ) {
+            connections[index] |= 1 << bone;
+        } else {
+            connections[index] &= ~(1 << bone);
+        }
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getSize() {
+        return size;
+    }
+
+    public float getX(int index) {
+        return positions[index * 3];
+    }
+
+    public float getY(int index) {
+        return positions[index * 3 + 1];
+    }
+
+    public float getZ(int index) {
+        return positions[index * 3 + 2];
+    }
+
+    public float getRadius(int index) {
+        return radius[index];
+    }
+
+    public float getBoundingRadius(int index) {
+        return boundingRadius[index];
+    }
+
+    public AtomKind getAtomKind(int index) {
+        return AtomKind.get(kinds[index]);
+    }
+
+    public int getColor(int index) {
+        return colors[index];
+    }
+
+    public float getRotation(int index) {
+        return rotations[index];
+    }
+
+    public int getOrbitalsCount(int index) {
+        return orbitalsCount[index];
+    }
+
+    public void setPosition(int index, float x, float y, float z) {
+        positions[index * 3] = x;
+        positions[index * 3 + 1] = y;
+        positions[index * 3 + 2] = z;
+    }
+
+    public void setRadius(int index, float radius) {
+        this.radius[index] = radius;
+        updateBoundingRadius(index);
+    }
+
+    public void setAtomKind(int index, AtomKind atomKind) {
+        kinds[index] = (byte) atomKind.ordinal();
+    }
+
+    public void setColor(int index, int color) {
+        colors[index] = color;
+    }
+
+    public void setRotation(int index, float rotation) {
+        rotations[index] = rotation;
+    }
+
+    /*
+     * The arrays are returned directly (not a copy) for iterate them
+     * in the pipeline. They can be replaced when the storage grows,
+     * so don't keep the reference between frames
+     */
+
+    public float[] getPositions() {
+        return positions;
+    }
+
+    public float[] getOrbitals() {
+        return orbitals;
+    }
+
+    public byte[] getOrbitalsCounts() {
+        return orbitalsCount;
+    }
+
+    public float[] getRadii() {
+        return radius;
+    }
+
+    public float[] getBoundingRadii() {
+        return boundingRadius;
+    }
+
+    public byte[] getKinds() {
+        return kinds;
+    }
+
+    public int[] getColors() {
+        return colors;
+    }
+
+    public float[] getRotations() {
+        return rotations;
+    }
+
+    public int[] getConnections() {
+        return connections;
+    }
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,418 @@
+package molecule;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the bonds of a molecule as an adjacency index
+ * in compressed sparse row (CSR) form
+ *
+ * The neighbours of all the atoms are stored in one array, and each
+ * atom has the start of its block and its degree, so iterate the
+ * neighbours of an atom is O(degree) over contiguous memory:
+ *
+ *     for ( int k = 0; k < graph.getDegree(i); k++ ) {
+ *         int j = graph.getNeighbour(i, k);
+ *     }
+ *
+ * For keep the index up to date while the atoms and the bonds are
+ * added, each block has some free room. When the block of an atom
+ * is full, it's moved to the end of the array with the double of
+ * room, and when the moved blocks leave too much free space, the
+ * array is compacted. So add a bond is O(1) amortized and the
+ * index never needs to be rebuilt for answer a query
+ *
+ * Each bond is stored once, with its two atoms and its order,
+ * and the blocks of the atoms store the index of the bond too
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class BondGraph {
+
+    /**
+     * The room of the block of an atom when its first bond is added
+     */
+    private static final int INITIAL_DEGREE = 4;
+
+    /**
+     * The number of atoms
+     */
+    private int numAtoms = 0;
+
+    /**
+     * The start of the block of each atom in the neighbours array
+     */
+    private int[] starts = new int[16];
+
+    /**
+     * The number of neighbours of each atom
+     */
+    private int[] degrees = new int[16];
+
+    /**
+     * The room of the block of each atom
+     */
+    private int[] capacities = new int[16];
+
+    /**
+     * The neighbours of the atoms, by blocks
+     */
+    private int[] neighbours = new int[64];
+
+    /**
+     * The index of the bond of each neighbour
+     */
+    private int[] neighbourBonds = new int[64];
+
+    /**
+     * The end of the used part of the neighbours array
+     */
+    private int used = 0;
+
+    /**
+     * The free room left by the blocks which have been moved
+     */
+    private int holes = 0;
+
+    /**
+     * The number of bonds
+     */
+    private int numBonds = 0;
+
+    /**
+     * The first atom of each bond
+     */
+    private int[] bondAtoms1 = new int[16];
+
+    /**
+     * The second atom of each bond
+     */
+    private int[] bondAtoms2 = new int[16];
+
+    /**
+     * The order of each bond: 1 single, 2 double, 3 triple
+     */
+    private byte[] bondOrders = new byte[16];
+
+    /**
+     * This method sets the number of atoms of the graph. The new
+     * atoms have no bonds
+     *
+     * @param numAtoms the number of atoms
+     */
+    public void setNumAtoms(int numAtoms) {
+        if ( numAtoms > starts.length ) {
+            int capacity = Math.max(numAtoms, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+            capacities = Arrays.copyOf(capacities, capacity);
+        }
+        for ( int i = this.numAtoms; i < numAtoms; i++ ) {
+            starts[i] = used;
+            degrees[i] = 0;
+            capacities[i] = 0;
+        }
+        this.numAtoms = numAtoms;
+    }
+
+    /**
+     * This method adds an atom without bonds
+     *
+     * @return the index of the atom
+     */
+    public int addAtom() {
+        setNumAtoms(numAtoms + 1);
+        return numAtoms - 1;
+    }
+
+    /**
+     * This method removes all the atoms and the bonds
+     */
+    public void clear() {
+        numAtoms = 0;
+        numBonds = 0;
+        used = 0;
+        holes = 0;
+    }
+
+    /**
+     * This method adds a bond between two atoms. If they are
+     * already bonded, only the order of the bond is changed
+     *
+     * @param atom1 the index of the first atom
+     * @param atom2 the index of the second atom
+     * @param order the order of the bond
+     * @return the index of the bond
+     */
+    public int addBond(int atom1, int atom2, int order) {
+        if ( atom1 == atom2 || atom1 < 0 || atom2 < 0 || atom1 >= numAtoms || atom2 >= numAtoms ) {
+            throw new IllegalArgumentException("The bond " + atom1 + "-" + atom2 + " is not valid");
+        }
+        int bond = findBond(atom1, atom2);
+        if ( bond >= 0 ) {
+            bondOrders[bond] = (byte) order;
+            return bond;
+        }
+
+        if ( numBonds == bondOrders.length ) {
+            int capacity = numBonds * 2;
+            bondAtoms1 = Arrays.copyOf(bondAtoms1, capacity);
+            bondAtoms2 = Arrays.copyOf(bondAtoms2, capacity);
+            bondOrders = Arrays.copyOf(bondOrders, capacity);
+        }
+        bond = numBonds++;
+        bondAtoms1[bond] = atom1;
+        bondAtoms2[bond] = atom2;
+        bondOrders[bond] = (byte) order;
+
+        addNeighbour(atom1, atom2, bond);
+        addNeighbour(atom2, atom1, bond);
+        return bond;
+    }
+
+    /**
+     * This method adds the neighbour at the end of the block of the
+     * atom, moving the block if it is full
+     *
+     * @param atom the index of the atom
+     * @param neighbour the index of the neighbour
+     * @param bond the index of the bond
+     */
+    private void addNeighbour(int atom, int neighbour, int bond) {
+        if ( degrees[atom] == capacities[atom] ) {
+            moveBlock(atom, Math.max(INITIAL_DEGREE, capacities[atom] * 2));
+        }
+        int position = starts[atom] + degrees[atom]++;
+        neighbours[position] = neighbour;
+        neighbourBonds[position] = bond;
+    }
+
+    /**
+     * This method moves the block of the atom to the end of the
+     * neighbours array, with the room passed by parameter
+     *
+     * @param atom the index of the atom
+     * @param capacity the new room of the block
+     */
+    private void moveBlock(int atom, int capacity) {
+        if ( holes > used / 2 ) {
+            compact();
+            if ( degrees[atom] < capacities[atom] ) {
+                return;
+            }
+        }
+        ensureNeighboursCapacity(used + capacity);
+        System.arraycopy(neighbours, starts[atom], neighbours, used, degrees[atom]);
+        System.arraycopy(neighbourBonds, starts[atom], neighbourBonds, used, degrees[atom]);
+        holes += capacities[atom];
+        starts[atom] = used;
+        capacities[atom] = capacity;
+        used += capacity;
+    }
+
+    /**
+     * This method rebuilds the neighbours array without the free room
+     * left by the moved blocks. Each block keeps a room of one more
+     * neighbour than its degree
+     */
+    private void compact() {
+        int size = 0;
+        for ( int i = 0; i < numAtoms; i++ ) {
+            size += degrees[i] > 0 ? degrees[i] + 1 : 0;
+        }
+        int[] newNeighbours = new int[Math.max(size * 2, 64)];
+        int[] newNeighbourBonds = new int[newNeighbours.length];
+        int position = 0;
+        for ( int i = 0; i < numAtoms; i++ ) {
+            int capacity = degrees[i] > 0 ? degrees[i] + 1 : 0;
+            System.arraycopy(neighbours, starts[i], newNeighbours, position, degrees[i]);
+            System.arraycopy(neighbourBonds, starts[i], newNeighbourBonds, position, degrees[i]);
+            starts[i] = position;
+            capacities[i] = capacity;
+            position += capacity;
+        }
+        neighbours = newNeighbours;
+        neighbourBonds = newNeighbourBonds;
+        used = position;
+        holes = 0;
+    }
+
+    /**
+     * This method grows the neighbours arrays if it is needed
+     *
+     * @param capacity the number of neighbours
+     */
+    private void ensureNeighboursCapacity(int capacity) {
+        if ( capacity > neighbours.length ) {
+            int newCapacity = Math.max(capacity, neighbours.length * 2);
+            neighbours = Arrays.copyOf(neighbours, newCapacity);
+            neighbourBonds = Arrays.copyOf(neighbourBonds, newCapacity);
+        }
+    }
+
+    /**
+     * This method replaces all the bonds by the bonds passed by
+     * parameter, building the index at once in O(atoms + bonds).
+     * The pairs which are repeated are not checked
+     *
+     * @param atoms1 the first atom of each bond
+     * @param atoms2 the second atom of each bond
+     * @param orders the order of each bond, or null for single bonds
+     * @param numBonds the number of bonds
+     */
+    public void setBonds(int[] atoms1, int[] atoms2, byte[] orders, int numBonds) {
+        bondAtoms1 = Arrays.copyOf(atoms1, Math.max(numBonds, 16));
+        bondAtoms2 = Arrays.copyOf(atoms2, Math.max(numBonds, 16));
+        if ( orders != null ) {
+            bondOrders = Arrays.copyOf(orders, Math.max(numBonds, 16));
+        } else {
+            bondOrders = new byte[Math.max(numBonds, 16)];
+            Arrays.fill(bondOrders, (byte) 1);
+        }
+        this.numBonds = numBonds;
+
+        Arrays.fill(degrees, 0, numAtoms, 0);
+        for ( int b = 0; b < numBonds; b++ ) {
+            int atom1 = bondAtoms1[b];
+            int atom2 = bondAtoms2[b];
+            if ( atom1 == atom2 || atom1 < 0 || atom2 < 0 || atom1 >= numAtoms || atom2 >= numAtoms ) {
+                throw new IllegalArgumentException("The bond " + atom1 + "-" + atom2 + " is not valid");
+            }
+            degrees[atom1]++;
+            degrees[atom2]++;
+        }
+
+        int position = 0;
+        for ( int i = 0; i < numAtoms; i++ ) {
+            starts[i] = position;
+            capacities[i] = degrees[i];
+            position += degrees[i];
+            degrees[i] = 0;
+        }
+        neighbours = new int[Math.max(position, 64)];
+        neighbourBonds = new int[neighbours.length];
+        used = position;
+        holes = 0;
+
+        for ( int b = 0; b < numBonds; b++ ) {
+            int atom1 = bondAtoms1[b];
+            int atom2 = bondAtoms2[b];
+            int p1 = starts[atom1] + degrees[atom1]++;
+            neighbours[p1] = atom2;
+            neighbourBonds[p1] = b;
+            int p2 = starts[atom2] + degrees[atom2]++;
+            neighbours[p2] = atom1;
+            neighbourBonds[p2] = b;
+        }
+    }
+
+    /**
+     * This method looks for the bond between two atoms, in O(degree)
+     *
+     * @param atom1 the index of the first atom
+     * @param atom2 the index of the second atom
+     * @return the index of the bond, or -1 if they are not bonded
+     */
+    public int findBond(int atom1, int atom2) {
+        if ( degrees[atom1] > degrees[atom2] ) {
+            int aux = atom1;
+            atom1 = atom2;
+            atom2 = aux;
+        }
+        int start = starts[atom1];
+        for ( int k = 0; k < degrees[atom1]; k++ ) {
+            if ( neighbours[start + k] == atom2 ) {
+                return neighbourBonds[start + k];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This method checks if two atoms are bonded
+     *
+     * @param atom1 the index of the first atom
+     * @param atom2 the index of the second atom
+     * @return true if they are bonded
+     */
+    public boolean isBonded(int atom1, int atom2) {
+        return findBond(atom1, atom2) >= 0;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    public int getNumBonds() {
+        return numBonds;
+    }
+
+    public int getDegree(int atom) {
+        return degrees[atom];
+    }
+
+    public int getNeighbour(int atom, int k) {
+        return neighbours[starts[atom] + k];
+    }
+
+    public int getNeighbourBond(int atom, int k) {
+        return neighbourBonds[starts[atom] + k];
+    }
+
+    public int getBondAtom1(int bond) {
+        return bondAtoms1[bond];
+    }
+
+    public int getBondAtom2(int bond) {
+        return bondAtoms2[bond];
+    }
+
+    public int getBondOrder(int bond) {
+        return bondOrders[bond];
+    }
+
+    public void setBondOrder(int bond, int order) {
+        bondOrders[bond] = (byte) order;
+    }
+
+    /*
+     * The arrays are returned directly for iterate them in the
+     * hot loops: the neighbours of the atom i are in the range
+     * [starts[i], starts[i] + degrees[i]) of the neighbours array.
+     * They can be replaced when a bond is added, so don't keep
+     * the reference
+     */
+
+    public int[] getStarts() {
+        return starts;
+    }
+
+    public int[] getDegrees() {
+        return degrees;
+    }
+
+    public int[] getNeighbours() {
+        return neighbours;
+    }
+
+    public int[] getNeighbourBonds() {
+        return neighbourBonds;
+    }
+
+    public int[] getBondAtoms1() {
+        return bondAtoms1;
+    }
+
+    public int[] getBondAtoms2() {
+        return bondAtoms2;
+    }
+
+    public byte[] getBondOrders() {
+        return bondOrders;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,352 @@
+package molecule;
+
+import atom.AtomKind;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class infers the bonds of a molecule from the distances
+ * between its atoms, for the structures which are read without bonds
+ *
+ * Two atoms are bonded when the distance between them is between
+ * the minimum distance and the sum of its covalent radii plus the
+ * tolerance of the pair of AtomKinds. The candidate pairs are found
+ * with a SpatialGrid whose cells are as big as the longest possible
+ * bond, so the perception is O(n). The cells are split in ranges
+ * which are processed in parallel by a fork join pool
+ *
+ * The bonds found replace the bonds of the molecule, and the
+ * orbitals of the atoms are marked as connected: each bond takes
+ * the free orbital which points closer to the bonded atom
+ *
+ * The distances are in Angstroms. If the coordinates of the molecule
+ * are scaled, unitsPerAngstrom has to be set to the same scale
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class BondPerceiver {
+
+    /**
+     * The number of chunks for each thread of the pool, more than one
+     * for balance the work between the threads
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The default tolerance added to the sum of the covalent radii
+     */
+    private static final float DEFAULT_TOLERANCE = 0.45f;
+
+    /**
+     * The covalent radius of each AtomKind, in Angstroms
+     */
+    private final float[] covalentRadii = new float[AtomKind.values().length];
+
+    /**
+     * The tolerance of each pair of AtomKinds, in Angstroms
+     */
+    private final float[][] tolerances = new float[AtomKind.values().length][AtomKind.values().length];
+
+    /**
+     * The minimum distance of a bond, in Angstroms. The closer
+     * atoms are overlapped atoms, not bonded atoms
+     */
+    private float minDistance = 0.4f;
+
+    /**
+     * The units of the coordinates for each Angstrom
+     */
+    private float unitsPerAngstrom = 1.0f;
+
+    /**
+     * The flag for find the bonds in parallel
+     */
+    private boolean isParallel = true;
+
+    /**
+     * The minimum number of atoms to find the bonds in parallel
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * The pool of threads which finds the bonds in parallel
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The bonds found in a range of atoms
+     */
+    private static class Pairs {
+
+        private int[] atoms1 = new int[64];
+
+        private int[] atoms2 = new int[64];
+
+        private int size = 0;
+
+        private void add(int atom1, int atom2) {
+            if ( size == atoms1.length ) {
+                atoms1 = Arrays.copyOf(atoms1, size * 2);
+                atoms2 = Arrays.copyOf(atoms2, size * 2);
+            }
+            atoms1[size] = atom1;
+            atoms2[size] = atom2;
+            size++;
+        }
+
+    }
+
+    /**
+     * The constructor. The covalent radii are the single bond radii
+     * of Pyykkö and Atsumi, and the tolerance of the pairs of
+     * hydrogens is smaller, because they are rarely bonded
+     */
+    public BondPerceiver() {
+        setCovalentRadius(AtomKind.CARBON, 0.75f);
+        setCovalentRadius(AtomKind.HYDROGEN, 0.32f);
+        setCovalentRadius(AtomKind.OXYGEN, 0.63f);
+        setCovalentRadius(AtomKind.NITROGEN, 0.71f);
+        setCovalentRadius(AtomKind.PHOSPHOR, 1.11f);
+        setCovalentRadius(AtomKind.SULFUR, 1.03f);
+        for ( float[] row : tolerances ) {
+            Arrays.fill(row, DEFAULT_TOLERANCE);
+        }
+        setTolerance(AtomKind.HYDROGEN, AtomKind.HYDROGEN, 0.1f);
+    }
+
+    /**
+     * This method finds the bonds of the molecule, and replaces
+     * with them the bonds of the molecule
+     *
+     * @param molecule the molecule
+     * @return the number of bonds found
+     */
+    public int perceiveBonds(Molecule molecule) {
+        AtomsStorage storage = molecule.getStorage();
+        int size = storage.getSize();
+
+        float maxRadius = 0.0f;
+        float maxTolerance = 0.0f;
+        for ( int k = 0; k < covalentRadii.length; k++ ) {
+            maxRadius = Math.max(maxRadius, covalentRadii[k]);
+            for ( int l = 0; l < covalentRadii.length; l++ ) {
+                maxTolerance = Math.max(maxTolerance, tolerances[k][l]);
+            }
+        }
+        float cutoff = (2 * maxRadius + maxTolerance) * unitsPerAngstrom;
+        SpatialGrid grid = new SpatialGrid(storage, Math.max(cutoff, Float.MIN_NORMAL));
+
+        int numChunks = 1;
+        if ( isParallel && size >= parallelThreshold ) {
+            numChunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, grid.getNumCells());
+        }
+        Pairs[] pairs = new Pairs[numChunks];
+        if ( numChunks == 1 ) {
+            pairs[0] = findBonds(grid, cutoff, 0, grid.getNumCells());
+        } else {
+            pool.invoke(new PerceptionTask(grid, cutoff, pairs, 0, numChunks));
+        }
+
+        int numBonds = 0;
+        for ( Pairs chunk : pairs ) {
+            numBonds += chunk.size;
+        }
+        int[] atoms1 = new int[numBonds];
+        int[] atoms2 = new int[numBonds];
+        int position = 0;
+        for ( Pairs chunk : pairs ) {
+            System.arraycopy(chunk.atoms1, 0, atoms1, position, chunk.size);
+            System.arraycopy(chunk.atoms2, 0, atoms2, position, chunk.size);
+            position += chunk.size;
+        }
+
+        BondGraph bonds = molecule.getBonds();
+        bonds.setNumAtoms(size);
+        bonds.setBonds(atoms1, atoms2, null, numBonds);
+        connectOrbitals(storage, bonds);
+        return numBonds;
+    }
+
+    /**
+     * This method finds the bonds which are found from a range of cells
+     * of the grid (see SpatialGrid.forEachPairWithin)
+     *
+     * @param grid the spatial grid of the atoms
+     * @param cutoff the longest possible bond
+     * @param from the first cell of the range
+     * @param to the end of the range (exclusive)
+     * @return the bonds found
+     */
+    private Pairs findBonds(SpatialGrid grid, float cutoff, int from, int to) {
+        AtomsStorage storage = grid.getStorage();
+        byte[] kinds = storage.getKinds();
+        float minDistanceSquared = minDistance * unitsPerAngstrom * minDistance * unitsPerAngstrom;
+        Pairs pairs = new Pairs();
+        grid.forEachPairWithin(cutoff, from, to, (atom1, atom2, distanceSquared) -> {
+            int kind1 = kinds[atom1];
+            int kind2 = kinds[atom2];
+            float maxDistance = (covalentRadii[kind1] + covalentRadii[kind2] + tolerances[kind1][kind2]) * unitsPerAngstrom;
+            if ( distanceSquared >= minDistanceSquared && distanceSquared <= maxDistance * maxDistance ) {
+                pairs.add(atom1, atom2);
+            }
+        });
+        return pairs;
+    }
+
+    /**
+     * This class finds the bonds of a range of chunks of cells. If the
+     * range has more than one chunk, it's split in two halves which are
+     * processed in parallel by the fork join pool
+     */
+    private class PerceptionTask extends RecursiveAction {
+
+        private final SpatialGrid grid;
+
+        private final float cutoff;
+
+        private final Pairs[] pairs;
+
+        private final int fromChunk;
+
+        private final int toChunk;
+
+        PerceptionTask(SpatialGrid grid, float cutoff, Pairs[] pairs, int fromChunk, int toChunk) {
+            this.grid = grid;
+            this.cutoff = cutoff;
+            this.pairs = pairs;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if ( toChunk - fromChunk == 1 ) {
+                long numCells = grid.getNumCells();
+                int from = (int) (numCells * fromChunk / pairs.length);
+                int to = (int) (numCells * toChunk / pairs.length);
+                pairs[fromChunk] = findBonds(grid, cutoff, from, to);
+            } else {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(
+                        new PerceptionTask(grid, cutoff, pairs, fromChunk, middle),
+                        new PerceptionTask(grid, cutoff, pairs, middle, toChunk)
+                );
+            }
+        }
+
+    }
+
+    /**
+     * This method marks as connected the orbitals of the bonded atoms.
+     * Each bond takes the free orbital of the atom which points closer
+     * to the bonded atom. The atoms without free orbitals are not marked
+     *
+     * @param storage the storage of the atoms
+     * @param bonds the bonds of the atoms
+     */
+    private static void connectOrbitals(AtomsStorage storage, BondGraph bonds) {
+        float[] positions = storage.getPositions();
+        float[] orbitals = storage.getOrbitals();
+        byte[] orbitalsCounts = storage.getOrbitalsCounts();
+        for ( int i = 0; i < storage.getSize(); i++ ) {
+            for ( int o = 1; o <= orbitalsCounts[i]; o++ ) {
+                storage.setConnected(i, o, false);
+            }
+            for ( int k = 0; k < bonds.getDegree(i); k++ ) {
+                int j = bonds.getNeighbour(i, k);
+                float dx = positions[j * 3] - positions[i * 3];
+                float dy = positions[j * 3 + 1] - positions[i * 3 + 1];
+                float dz = positions[j * 3 + 2] - positions[i * 3 + 2];
+
+                int best = -1;
+                float bestCos = -Float.MAX_VALUE;
+                for ( int o = 0; o < orbitalsCounts[i]; o++ ) {
+                    if ( storage.isConnected(i, o + 1) ) {
+                        continue;
+                    }
+                    int offset = i * AtomsStorage.ORBITALS_STRIDE + o * 3;
+                    float ox = orbitals[offset];
+                    float oy = orbitals[offset + 1];
+                    float oz = orbitals[offset + 2];
+                    float length = (float) Math.sqrt(ox * ox + oy * oy + oz * oz);
+                    float cos = (ox * dx + oy * dy + oz * dz) / Math.max(length, Float.MIN_NORMAL);
+                    if ( cos > bestCos ) {
+                        bestCos = cos;
+                        best = o;
+                    }
+                }
+                if ( best >= 0 ) {
+                    storage.setConnected(i, best + 1, true);
+                }
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public float getCovalentRadius(AtomKind atomKind) {
+        return covalentRadii[atomKind.ordinal()];
+    }
+
+    public float getTolerance(AtomKind atomKind1, AtomKind atomKind2) {
+        return tolerances[atomKind1.ordinal()][atomKind2.ordinal()];
+    }
+
+    public float getMinDistance() {
+        return minDistance;
+    }
+
+    public float getUnitsPerAngstrom() {
+        return unitsPerAngstrom;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setCovalentRadius(AtomKind atomKind, float covalentRadius) {
+        covalentRadii[atomKind.ordinal()] = covalentRadius;
+    }
+
+    /**
+     * The tolerance is set for the two orders of the pair
+     */
+    public void setTolerance(AtomKind atomKind1, AtomKind atomKind2, float tolerance) {
+        tolerances[atomKind1.ordinal()][atomKind2.ordinal()] = tolerance;
+        tolerances[atomKind2.ordinal()][atomKind1.ordinal()] = tolerance;
+    }
+
+    public void setMinDistance(float minDistance) {
+        this.minDistance = minDistance;
+    }
+
+    public void setUnitsPerAngstrom(float unitsPerAngstrom) {
+        this.unitsPerAngstrom = unitsPerAngstrom;
+    }
+
+    public void setParallel(boolean parallel) {
+        isParallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
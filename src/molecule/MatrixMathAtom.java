@@ -25,4 +25,49 @@ public class MatrixMathAtom extends MatrixMath {
         return bonesTransformed;
     }
 
+    /**
+     * This method writes the matrix passed by parameter into a flat array
+     * of 16 floats, row by row, where the column j is the result of
+     * multiply the matrix by the unit vector j. In this way, the array
+     * works with column vectors: out_i = sum_j m[i * 4 + j] * in_j
+     *
+     * The matrix multiplies row vectors (out_i = sum_j in_j * m[j][i]),
+     * so the array is its transpose, and the array transforms the points
+     * exactly as matrixMultiplyVector does. Nothing is allocated
+     *
+     * @param mat4x4 the matrix
+     * @param m the array where write the matrix, it needs 16 floats
+     * @return the array passed by parameter
+     */
+    public static float[] matrixToArray(Mat4x4 mat4x4, float[] m) {
+        float[][] elements = mat4x4.getM();
+        for ( int i = 0; i < 4; i++ ) {
+            for ( int j = 0; j < 4; j++ ) {
+                m[i * 4 + j] = elements[j][i];
+            }
+        }
+        return m;
+    }
+
+    /**
+     * This method multiplies two matrices stored as arrays
+     * (see matrixToArray). The result transforms a point as
+     * if it were transformed first by b and after by a
+     *
+     * @param a the second transformation
+     * @param b the first transformation
+     * @param out the array where write the result, it can't be a or b
+     */
+    public static void matrixMultiplyArrays(float[] a, float[] b, float[] out) {
+        for ( int i = 0; i < 4; i++ ) {
+            for ( int j = 0; j < 4; j++ ) {
+                out[i * 4 + j] =
+                        a[i * 4] * b[j] +
+                        a[i * 4 + 1] * b[4 + j] +
+                        a[i * 4 + 2] * b[8 + j] +
+                        a[i * 4 + 3] * b[12 + j];
+            }
+        }
+    }
+
 }
@@ -1,7 +1,6 @@
 package molecule;
 
 import atom.Atom;
-import engine3d.Vec4df;
 import engine3d.matrix.Mat4x4;
 import engine3d.matrix.MatrixMath;
 
@@ -11,6 +10,14 @@ import java.util.ArrayList;
  * This class represents a Molecule
  * A molecule is a set of joined atoms
  *
+ * The data of the atoms is held in an AtomsStorage (flat arrays),
+ * and the Atom objects of the molecule are views over the storage
+ *
+ * The bonds are held in a BondGraph, which is updated each time
+ * an atom is joined to other
+ *
+ * For add many atoms at once, see MoleculeBuilder
+ *
  * @author Sergio Martí Torregrosa. sMartiTo97
  * @date 22/09/2020
  */
@@ -18,9 +25,25 @@ public class Molecule {
 
     /**
      * The atoms which conform the molecule
+     * They are views over the storage
      */
     private ArrayList<Atom> atoms;
 
+    /**
+     * The storage which holds the data of all atoms
+     */
+    private AtomsStorage storage;
+
+    /**
+     * The bonds between the atoms, by its indices in the storage
+     */
+    private final BondGraph bonds = new BondGraph();
+
+    /**
+     * The rotation matrix, reused for all the insertions
+     */
+    private final float[] matRotZ = new float[16];
+
     /**
      * The constructor
      *
@@ -31,9 +54,23 @@ public class Molecule {
      */
     public Molecule(Atom atom) {
         atoms = new ArrayList<>();
+        storage = new AtomsStorage();
         addAtom(atom);
     }
 
+    /**
+     * The constructor for the molecules whose atoms are already
+     * written in a storage, as the molecules read from a file.
+     * The views of the atoms are built when they are requested
+     *
+     * @param storage the storage which holds the atoms
+     */
+    public Molecule(AtomsStorage storage) {
+        atoms = new ArrayList<>();
+        this.storage = storage;
+        bonds.setNumAtoms(storage.getSize());
+    }
+
     /**
      * This method only adds the atom passed by parameter
      * to the ArrayList of atoms and sets its id
@@ -41,10 +78,25 @@ public class Molecule {
      * @param atom the new atom for the molecule
      */
     public void addAtom(Atom atom) {
-        atom.setId(atoms.size());
+        getAtoms();
+        int index = storage.addAtom(atom);
+        bonds.addAtom();
+        atom.setId(index);
+        atom.attach(storage, index);
         atoms.add(atom);
     }
 
+    /**
+     * This method reserves room for the number of atoms passed by
+     * parameter, so they can be added without grow the arrays
+     *
+     * @param capacity the number of atoms
+     */
+    public void ensureCapacity(int capacity) {
+        storage.ensureCapacity(capacity);
+        atoms.ensureCapacity(capacity);
+    }
+
     /**
      * This method adds the atom passed by parameter to
      * the link of a present atom on molecule which matches with
@@ -53,17 +105,25 @@ public class Molecule {
      * @param idAtom the id of a present atom in the molecule
      * @param atom the atom which is wanted to join
      * @param linkAtom1 the link of the present atom, where join the new atom
+     * @throws IndexOutOfBoundsException if the present atom or its link don't exist.
+     * The molecule is not modified
      */
     public void addAtom(int idAtom, Atom atom, int linkAtom1) {
-        Atom presentAtom = atoms.get(idAtom);
-
-        rotateAtom(presentAtom, atom);
-        translateAtom(atom, presentAtom.getBones()[linkAtom1].getPointB());
+        if ( idAtom < 0 || idAtom >= getNumAtoms() ) {
+            throw new IndexOutOfBoundsException("The atom " + idAtom + " is not in the molecule");
+        }
+        if ( linkAtom1 < 1 || linkAtom1 > storage.getOrbitalsCount(idAtom) || linkAtom1 > getOrbitalsCount(atom) ) {
+            throw new IndexOutOfBoundsException("The atoms can not be joined by the orbital " + linkAtom1 + " of the atom " + idAtom);
+        }
+        addAtom(atom);
+        int index = atom.getIndex();
 
-        presentAtom.getBones()[linkAtom1].setPointBConnected(true);
-        atom.getBones()[linkAtom1].setPointBConnected(true);
+        rotateAtom(idAtom, index);
+        translateAtom(index, idAtom, linkAtom1);
 
-        addAtom(atom);
+        storage.setConnected(idAtom, linkAtom1, true);
+        storage.setConnected(index, linkAtom1, true);
+        bonds.addBond(idAtom, index, 1);
         /*if ( !presentAtom.getBones()[linkAtom1].isPointBConnected() ) {
             rotateAtom(presentAtom, atom);
             translateAtom(atom, presentAtom.getBones()[linkAtom1].getPointB());
@@ -75,57 +135,115 @@ public class Molecule {
         }*/
     }
 
+    /**
+     * This method returns the number of orbitals of an atom without build
+     * its bones, so an atom which uses its template keeps using it
+     *
+     * @param atom the atom
+     * @return the number of orbitals
+     */
+    private static int getOrbitalsCount(Atom atom) {
+        if ( atom.isUsingTemplate() ) {
+            return atom.getTemplate().getOrbitalsCount();
+        }
+        if ( atom.isStored() ) {
+            return atom.getStorage().getOrbitalsCount(atom.getIndex());
+        }
+        return atom.getBones().length - 1;
+    }
+
     /**
      * This method rotates the atom2 the amount of rotation
      * of atom1. After, sets the value of rotation field of the
-     * atom2 to the value of rotation from atom1 increased in 180 degrees
+     * atom2 to the value of rotation from atom1 increased in 180 degrees,
+     * kept under 360 degrees for not lose precision in the long chains
      *
      * The rotation is stored as degrees, for this reason, is needed
      * the conversion to radians ( degrees x Pi / 180 = radians )
      *
-     * @param atom1 the first atom
-     * @param atom2 the second atom
+     * @param atom1 the index of the first atom
+     * @param atom2 the index of the second atom
      */
-    private void rotateAtom(Atom atom1, Atom atom2) {
-        rotateAtomZ(atom2, (float)(atom1.getRotation() * (Math.PI / 180.0f)));
-        atom2.setRotation(atom1.getRotation() + 180.0f);
+    private void rotateAtom(int atom1, int atom2) {
+        rotateAtomZ(atom2, (float)(storage.getRotation(atom1) * (Math.PI / 180.0f)));
+        storage.setRotation(atom2, (storage.getRotation(atom1) + 180.0f) % 360.0f);
     }
 
     /**
-     * This method transforms the all the bones which conform the atom
-     * (the radius bone and normal bones) by the angle in radians
-     * passed by parameter
+     * This method transforms the centre and the orbitals of the atom
+     * by the angle in radians passed by parameter
      *
-     * @param atom the atom to rotate
+     * @param atom the index of the atom to rotate
      * @param angleRadZ the angle of rotation
      */
-    private void rotateAtomZ(Atom atom, float angleRadZ) {
+    private void rotateAtomZ(int atom, float angleRadZ) {
         Mat4x4 rotZ = MatrixMath.matrixMakeRotationZ((float)(Math.PI - angleRadZ));
-        atom.setBones(MatrixMathAtom.matrixMultiplyBones(rotZ, atom.getBones()));
+        storage.transform(atom, MatrixMathAtom.matrixToArray(rotZ, matRotZ));
     }
 
     /**
-     * This method translates all the bones of the atom by the
-     * position passed by parameter
+     * This method translates the atom to the end of the orbital
+     * of the present atom where it is joined
      *
-     * @param atom the atom to translate
-     * @param translate the position to translate
+     * @param atom the index of the atom to translate
+     * @param presentAtom the index of the present atom
+     * @param link the orbital of the present atom
      */
-    private void translateAtom(Atom atom, Vec4df translate) {
-        for (int i = 0; i < atom.getBones().length; i++ ) {
-            atom.getBones()[i].setPointA(MatrixMathAtom.vectorAdd(atom.getBones()[i].getPointA(), translate));
-            atom.getBones()[i].setPointB(MatrixMathAtom.vectorAdd(atom.getBones()[i].getPointB(), translate));
-        }
+    private void translateAtom(int atom, int presentAtom, int link) {
+        int offset = presentAtom * AtomsStorage.ORBITALS_STRIDE + (link - 1) * 3;
+        float[] orbitals = storage.getOrbitals();
+        storage.translate(
+                atom,
+                storage.getX(presentAtom) + orbitals[offset],
+                storage.getY(presentAtom) + orbitals[offset + 1],
+                storage.getZ(presentAtom) + orbitals[offset + 2]
+        );
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////////////////
 
+    /**
+     * The atoms which have been written directly in the storage
+     * don't have a view yet, so they are built here
+     *
+     * @return the atoms of the molecule
+     */
     public ArrayList<Atom> getAtoms() {
+        for ( int i = atoms.size(); i < storage.getSize(); i++ ) {
+            atoms.add(new Atom(storage, i));
+        }
         return atoms;
     }
 
+    public AtomsStorage getStorage() {
+        return storage;
+    }
+
+    public BondGraph getBonds() {
+        return bonds;
+    }
+
+    public int getNumAtoms() {
+        return storage.getSize();
+    }
+
+    /**
+     * The bonds are removed, because the atoms passed
+     * by parameter don't know to which atoms are bonded
+     *
+     * @param atoms the new atoms of the molecule
+     */
     public void setAtoms(ArrayList<Atom> atoms) {
-        this.atoms = atoms;
+        ArrayList<Atom> copy = new ArrayList<>();
+        for ( Atom atom : atoms ) {
+            copy.add(atom.isStored() ? new Atom(atom) : atom);
+        }
+        this.atoms = new ArrayList<>();
+        storage.clear();
+        bonds.clear();
+        for ( Atom atom : copy ) {
+            addAtom(atom);
+        }
     }
 
 
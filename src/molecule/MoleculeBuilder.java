@@ -0,0 +1,339 @@
+package molecule;
+
+import atom.AtomTemplate;
+import engine3d.matrix.MatrixMath;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class adds atoms to a molecule in batches. Each atom is an
+ * attachment instruction: the atom to which it's joined, the orbital
+ * of that atom and the template of the new atom, as in
+ * Molecule.addAtom(idAtom, atom, linkAtom1)
+ *
+ * The instructions are recorded by addAtom and applied by build in
+ * one pass: the storage and the bonds are grown only once, the atoms
+ * are written from its templates directly in the storage arrays, and
+ * the rotation matrices are reused by the atoms with the same rotation.
+ * The atoms are placed in the same way as Molecule.addAtom, so the
+ * result is the same as join the atoms one by one
+ *
+ * The orientation of an atom only depends on the rotation of the atom
+ * to which it's joined, so the rotations are calculated first in order,
+ * then the orbitals of all the atoms are written and rotated in
+ * parallel, and finally each atom is moved to the end of the orbital
+ * of its parent in order
+ *
+ *     MoleculeBuilder builder = new MoleculeBuilder(molecule);
+ *     int next = builder.addAtom(0, 1, template);
+ *     builder.addAtom(next, 2, template);
+ *     builder.build();
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class MoleculeBuilder {
+
+    /**
+     * The number of chunks for each thread of the pool, more than one
+     * for balance the work between the threads
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The number of rotation matrices which are kept while the atoms
+     * are written. The rotations are kept between 0 and 360 degrees,
+     * so usually there are only a few different rotations
+     */
+    private static final int MATRICES_CACHE_SIZE = 8;
+
+    /**
+     * The molecule where the atoms are added
+     */
+    private final Molecule molecule;
+
+    /**
+     * The number of instructions recorded
+     */
+    private int size = 0;
+
+    /**
+     * The index of the atom to which each new atom is joined
+     */
+    private int[] parents = new int[16];
+
+    /**
+     * The orbital of the parent where each new atom is joined
+     */
+    private byte[] links = new byte[16];
+
+    /**
+     * The template of each new atom
+     */
+    private AtomTemplate[] templates = new AtomTemplate[16];
+
+    /**
+     * The flag to write the atoms in parallel
+     */
+    private boolean isParallel = true;
+
+    /**
+     * The minimum number of atoms to write them in parallel
+     */
+    private int parallelThreshold = 4096;
+
+    /**
+     * The pool of threads which writes the atoms in parallel
+     */
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    /**
+     * The constructor
+     *
+     * @param molecule the molecule where the atoms are added
+     */
+    public MoleculeBuilder(Molecule molecule) {
+        this.molecule = molecule;
+    }
+
+    /**
+     * This method grows the instructions arrays if it is needed
+     * to record the number of atoms passed by parameter
+     *
+     * @param capacity the number of atoms
+     */
+    public void ensureCapacity(int capacity) {
+        if ( capacity <= parents.length ) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, parents.length * 2);
+        parents = Arrays.copyOf(parents, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+        templates = Arrays.copyOf(templates, newCapacity);
+    }
+
+    /**
+     * This method records an atom which will be joined to the orbital
+     * of other atom when build is called. The atom to which it's joined
+     * can be an atom of the molecule or an atom recorded before
+     *
+     * @param parent the index of the atom to which the new atom is joined
+     * @param link the orbital of the parent, and of the new atom, where they are joined
+     * @param template the template of the new atom
+     * @return the index which the new atom will have in the molecule
+     */
+    public int addAtom(int parent, int link, AtomTemplate template) {
+        int index = molecule.getStorage().getSize() + size;
+        if ( parent < 0 || parent >= index ) {
+            throw new IllegalArgumentException("The atom " + parent + " is not in the molecule");
+        }
+        int parentOrbitals = parent < index - size
+                ? molecule.getStorage().getOrbitalsCount(parent)
+                : templates[parent - (index - size)].getOrbitalsCount();
+        if ( link < 1 || link > template.getOrbitalsCount() || link > parentOrbitals ) {
+            throw new IllegalArgumentException("The atoms " + parent + " and " + index + " can not be joined by the orbital " + link);
+        }
+        ensureCapacity(size + 1);
+        parents[size] = parent;
+        links[size] = (byte) link;
+        templates[size] = template;
+        size++;
+        return index;
+    }
+
+    /**
+     * This method adds to the molecule all the atoms recorded,
+     * and removes the instructions
+     *
+     * @return the number of atoms added
+     */
+    public int build() {
+        AtomsStorage storage = molecule.getStorage();
+        int first = storage.getSize();
+        storage.setSize(first + size);
+
+        float[] rotations = storage.getRotations();
+        for ( int k = 0; k < size; k++ ) {
+            rotations[first + k] = (rotations[parents[k]] + 180.0f) % 360.0f;
+        }
+
+        int numChunks = 1;
+        if ( isParallel && size >= parallelThreshold ) {
+            numChunks = Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, size);
+        }
+        if ( numChunks == 1 ) {
+            writeAtoms(storage, first, 0, size);
+        } else {
+            pool.invoke(new WritingTask(storage, first, numChunks, 0, numChunks));
+        }
+
+        float[] positions = storage.getPositions();
+        float[] orbitals = storage.getOrbitals();
+        for ( int k = 0; k < size; k++ ) {
+            int parent = parents[k];
+            int offset = parent * AtomsStorage.ORBITALS_STRIDE + (links[k] - 1) * 3;
+            storage.translate(
+                    first + k,
+                    positions[parent * 3] + orbitals[offset],
+                    positions[parent * 3 + 1] + orbitals[offset + 1],
+                    positions[parent * 3 + 2] + orbitals[offset + 2]
+            );
+            storage.setConnected(parent, links[k], true);
+            storage.setConnected(first + k, links[k], true);
+        }
+
+        addBonds(first);
+
+        int added = size;
+        Arrays.fill(templates, 0, size, null);
+        size = 0;
+        return added;
+    }
+
+    /**
+     * This method writes the atoms of a range of instructions from its
+     * templates, and rotates them by the rotation of its parents
+     *
+     * @param storage the storage of the molecule
+     * @param first the index of the first atom of the batch
+     * @param from the first instruction of the range
+     * @param to the end of the range (exclusive)
+     */
+    private void writeAtoms(AtomsStorage storage, int first, int from, int to) {
+        float[] radii = storage.getRadii();
+        byte[] kinds = storage.getKinds();
+        int[] colors = storage.getColors();
+        float[] rotations = storage.getRotations();
+        int[] matricesRotations = new int[MATRICES_CACHE_SIZE];
+        float[][] matrices = new float[MATRICES_CACHE_SIZE][16];
+        int numMatrices = 0;
+        for ( int k = from; k < to; k++ ) {
+            int index = first + k;
+            AtomTemplate template = templates[k];
+            radii[index] = template.getRadius();
+            kinds[index] = (byte) template.getAtomKind().ordinal();
+            colors[index] = template.getColor();
+            storage.setTemplate(index, template);
+
+            float parentRotation = rotations[parents[k]];
+            int bits = Float.floatToIntBits(parentRotation);
+            int m = 0;
+            while ( m < numMatrices && matricesRotations[m] != bits ) {
+                m++;
+            }
+            if ( m == MATRICES_CACHE_SIZE ) {
+                m = k % MATRICES_CACHE_SIZE;
+            }
+            if ( m == numMatrices || matricesRotations[m] != bits ) {
+                float angleRadZ = (float) (parentRotation * (Math.PI / 180.0f));
+                MatrixMathAtom.matrixToArray(MatrixMath.matrixMakeRotationZ((float) (Math.PI - angleRadZ)), matrices[m]);
+                matricesRotations[m] = bits;
+                numMatrices = Math.max(numMatrices, m + 1);
+            }
+            storage.transform(index, matrices[m]);
+        }
+    }
+
+    /**
+     * This method adds the bonds of the new atoms to the bonds of the
+     * molecule, rebuilding the index of the bonds only once
+     *
+     * @param first the index of the first atom of the batch
+     */
+    private void addBonds(int first) {
+        BondGraph bonds = molecule.getBonds();
+        int oldBonds = bonds.getNumBonds();
+        int numBonds = oldBonds + size;
+        int[] atoms1 = Arrays.copyOf(bonds.getBondAtoms1(), numBonds);
+        int[] atoms2 = Arrays.copyOf(bonds.getBondAtoms2(), numBonds);
+        byte[] orders = Arrays.copyOf(bonds.getBondOrders(), numBonds);
+        for ( int k = 0; k < size; k++ ) {
+            atoms1[oldBonds + k] = parents[k];
+            atoms2[oldBonds + k] = first + k;
+            orders[oldBonds + k] = 1;
+        }
+        bonds.setNumAtoms(first + size);
+        bonds.setBonds(atoms1, atoms2, orders, numBonds);
+    }
+
+    /**
+     * This class writes the atoms of a range of chunks of instructions.
+     * If the range has more than one chunk, it's split in two halves
+     * which are processed in parallel by the fork join pool
+     */
+    private class WritingTask extends RecursiveAction {
+
+        private final AtomsStorage storage;
+
+        private final int first;
+
+        private final int numChunks;
+
+        private final int fromChunk;
+
+        private final int toChunk;
+
+        WritingTask(AtomsStorage storage, int first, int numChunks, int fromChunk, int toChunk) {
+            this.storage = storage;
+            this.first = first;
+            this.numChunks = numChunks;
+            this.fromChunk = fromChunk;
+            this.toChunk = toChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if ( toChunk - fromChunk == 1 ) {
+                int from = (int) ((long) size * fromChunk / numChunks);
+                int to = (int) ((long) size * toChunk / numChunks);
+                writeAtoms(storage, first, from, to);
+            } else {
+                int middle = (fromChunk + toChunk) >>> 1;
+                invokeAll(
+                        new WritingTask(storage, first, numChunks, fromChunk, middle),
+                        new WritingTask(storage, first, numChunks, middle, toChunk)
+                );
+            }
+        }
+
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public Molecule getMolecule() {
+        return molecule;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isParallel() {
+        return isParallel;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public void setParallel(boolean parallel) {
+        isParallel = parallel;
+    }
+
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,156 @@
+package molecule;
+
+import engine3d.matrix.Mat4x4;
+
+import java.util.Arrays;
+
+/**
+ * This class represents many copies of the same molecule at different
+ * poses, as the molecules of a solvent box or a crystal lattice
+ *
+ * The atoms are stored only once, in the base molecule, and each
+ * instance only has its transformation matrix (16 floats, see
+ * MatrixMathAtom.matrixToArray), so the memory grows with the number
+ * of instances and not with the number of atoms of all the copies.
+ * The AtomsPipeLine transforms and culls each instance by its matrix
+ * when the instances are rendered
+ *
+ * The pipeline culls first the whole instances by the sphere which
+ * bounds the base molecule. If the base molecule is modified, the
+ * sphere has to be updated by updateBounds
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class MoleculeInstances {
+
+    /**
+     * The molecule which is repeated
+     */
+    private final Molecule molecule;
+
+    /**
+     * The number of instances
+     */
+    private int size = 0;
+
+    /**
+     * The transformation matrix of each instance, 16 floats for each one
+     */
+    private float[] transforms = new float[16 * 16];
+
+    /**
+     * The sphere which bounds the base molecule: x, y, z of the centre and radius
+     */
+    private final float[] bounds = new float[4];
+
+    /**
+     * The constructor
+     *
+     * @param molecule the molecule which is repeated
+     */
+    public MoleculeInstances(Molecule molecule) {
+        this.molecule = molecule;
+        updateBounds();
+    }
+
+    /**
+     * This method calculates the sphere which bounds the base molecule
+     */
+    public void updateBounds() {
+        molecule.getStorage().computeBoundingSphere(bounds);
+    }
+
+    /**
+     * This method adds an instance of the molecule
+     *
+     * @param transform the transformation matrix of the instance
+     * @return the index of the instance
+     */
+    public int addInstance(Mat4x4 transform) {
+        ensureCapacity(size + 1);
+        setTransform(size, transform);
+        return size++;
+    }
+
+    /**
+     * This method adds an instance of the molecule
+     *
+     * @param transform the transformation matrix of the instance, as
+     *                  an array (see MatrixMathAtom.matrixToArray)
+     * @return the index of the instance
+     */
+    public int addInstance(float[] transform) {
+        ensureCapacity(size + 1);
+        setTransform(size, transform);
+        return size++;
+    }
+
+    /**
+     * This method grows the array of the transformations if it is
+     * needed to hold the number of instances passed by parameter
+     *
+     * @param capacity the number of instances
+     */
+    public void ensureCapacity(int capacity) {
+        if ( capacity * 16 > transforms.length ) {
+            transforms = Arrays.copyOf(transforms, Math.max(capacity * 16, transforms.length * 2));
+        }
+    }
+
+    /**
+     * This method removes all the instances
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public Molecule getMolecule() {
+        return molecule;
+    }
+
+    public int getNumInstances() {
+        return size;
+    }
+
+    /**
+     * The transformation of the instance is written in the
+     * array passed by parameter, which needs 16 floats
+     */
+    public float[] getTransform(int instance, float[] m) {
+        System.arraycopy(transforms, instance * 16, m, 0, 16);
+        return m;
+    }
+
+    /*
+     * The array is returned directly for read it in the pipeline:
+     * the matrix of the instance i is in the range [i * 16, i * 16 + 16).
+     * It can be replaced when an instance is added, so don't keep
+     * the reference
+     */
+
+    public float[] getTransforms() {
+        return transforms;
+    }
+
+    /**
+     * The sphere is returned as x, y, z of the centre and radius
+     */
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    public void setTransform(int instance, Mat4x4 transform) {
+        float[] m = MatrixMathAtom.matrixToArray(transform, new float[16]);
+        System.arraycopy(m, 0, transforms, instance * 16, 16);
+    }
+
+    public void setTransform(int instance, float[] transform) {
+        System.arraycopy(transform, 0, transforms, instance * 16, 16);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
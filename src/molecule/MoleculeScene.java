@@ -0,0 +1,135 @@
+package molecule;
+
+import engine3d.matrix.Mat4x4;
+import engine3d.matrix.MatrixMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class holds a set of molecules, each one with its own
+ * transformation matrix, which are rendered together in one frame:
+ * the AtomsPipeLine culls and projects all the molecules in one pass
+ * and sorts all its atoms together, so the molecules which overlap,
+ * as a protein and its ligand, are drawn in the right order
+ *
+ * The matrices are stored as arrays (see MatrixMathAtom.matrixToArray),
+ * 16 floats for each molecule, and for each molecule is kept the
+ * sphere which bounds its atoms, for cull the whole molecule at once.
+ * If a molecule is modified, its sphere has to be updated by updateBounds
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class MoleculeScene {
+
+    /**
+     * The molecules of the scene
+     */
+    private final ArrayList<Molecule> molecules = new ArrayList<>();
+
+    /**
+     * The transformation matrix of each molecule, 16 floats for each one
+     */
+    private float[] transforms = new float[16 * 16];
+
+    /**
+     * The sphere which bounds each molecule: x, y, z of the centre and radius
+     */
+    private float[] bounds = new float[16 * 4];
+
+    /**
+     * This method adds a molecule to the scene
+     *
+     * @param molecule the molecule
+     * @param transform the transformation matrix of the molecule
+     * @return the index of the molecule in the scene
+     */
+    public int addMolecule(Molecule molecule, Mat4x4 transform) {
+        int index = molecules.size();
+        molecules.add(molecule);
+        if ( transforms.length < molecules.size() * 16 ) {
+            transforms = Arrays.copyOf(transforms, transforms.length * 2);
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        setTransform(index, transform);
+        updateBounds(index);
+        return index;
+    }
+
+    public int addMolecule(Molecule molecule) {
+        return addMolecule(molecule, MatrixMath.matrixMakeIdentity());
+    }
+
+    /**
+     * This method calculates the sphere which bounds the molecule
+     *
+     * @param index the index of the molecule in the scene
+     */
+    public void updateBounds(int index) {
+        float[] sphere = molecules.get(index).getStorage().computeBoundingSphere(new float[4]);
+        System.arraycopy(sphere, 0, bounds, index * 4, 4);
+    }
+
+    /**
+     * This method calculates the sphere which bounds each molecule
+     */
+    public void updateBounds() {
+        for ( int i = 0; i < molecules.size(); i++ ) {
+            updateBounds(i);
+        }
+    }
+
+    /**
+     * This method removes all the molecules
+     */
+    public void clear() {
+        molecules.clear();
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public Molecule getMolecule(int index) {
+        return molecules.get(index);
+    }
+
+    public int getNumMolecules() {
+        return molecules.size();
+    }
+
+    /**
+     * The transformation of the molecule is written in the
+     * array passed by parameter, which needs 16 floats
+     */
+    public float[] getTransform(int index, float[] m) {
+        System.arraycopy(transforms, index * 16, m, 0, 16);
+        return m;
+    }
+
+    /*
+     * The arrays are returned directly for read them in the pipeline:
+     * the matrix of the molecule i is in the range [i * 16, i * 16 + 16)
+     * and its bounding sphere in the range [i * 4, i * 4 + 4). They can
+     * be replaced when a molecule is added, so don't keep the reference
+     */
+
+    public float[] getTransforms() {
+        return transforms;
+    }
+
+    public float[] getBounds() {
+        return bounds;
+    }
+
+    public void setTransform(int index, Mat4x4 transform) {
+        float[] m = MatrixMathAtom.matrixToArray(transform, new float[16]);
+        System.arraycopy(m, 0, transforms, index * 16, 16);
+    }
+
+    public void setTransform(int index, float[] transform) {
+        System.arraycopy(transform, 0, transforms, index * 16, 16);
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
@@ -0,0 +1,637 @@
+package molecule;
+
+import java.util.Arrays;
+
+/**
+ * This class is a spatial index over the centres of the atoms
+ * of a storage, for answer proximity queries without test all
+ * the atoms
+ *
+ * The bounding box of the atoms is divided in cubic cells, and
+ * each cell has a list of the atoms whose centre is inside it.
+ * A query only tests the atoms of the cells which touch the
+ * sphere of the query, so when the cells are about the size of
+ * the query radius, a query is O(1) and the enumeration of all
+ * the pairs of atoms closer than a cutoff is O(n)
+ *
+ * The lists of the cells are linked lists over arrays, so an atom
+ * which moves to other cell is moved in O(1) by update. When an
+ * atom goes out of the bounding box, the grid is rebuilt with a
+ * bigger box
+ *
+ * The atoms whose centre is not a finite number (NaN or infinite)
+ * are left out of the grid: they don't count in the bounding box
+ * and they are not in any cell, so the queries never find them
+ *
+ * The queries only read the grid, so they can be run from many
+ * threads at the same time, while the atoms are not updated. The
+ * enumeration of the pairs uses a copy of the atoms sorted by cells,
+ * which is made again when the atoms have been updated
+ *
+ * @author Sergio Martí Torregrosa. sMartiTo97
+ * @date 18/10/2026
+ */
+public class SpatialGrid {
+
+    /**
+     * This interface receives the atoms found by a query
+     */
+    public interface AtomVisitor {
+        void visit(int atom, float distanceSquared);
+    }
+
+    /**
+     * This interface receives the pairs of atoms found by a query
+     */
+    public interface PairVisitor {
+        void visit(int atom1, int atom2, float distanceSquared);
+    }
+
+    /**
+     * The maximum number of cells for each atom. If the cell size makes
+     * more cells, the cells are made bigger
+     */
+    private static final int MAX_CELLS_PER_ATOM = 4;
+
+    /**
+     * The number of cells added around the bounding box when the grid
+     * is built, so the atoms can move a bit without rebuild the grid
+     */
+    private static final int MARGIN_CELLS = 1;
+
+    /**
+     * The value of the links which point to no atom
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The storage which holds the atoms
+     */
+    private final AtomsStorage storage;
+
+    /**
+     * The size of the cells wanted
+     */
+    private final float wantedCellSize;
+
+    /**
+     * The size of the cells used
+     */
+    private float cellSize;
+
+    private float invCellSize;
+
+    /**
+     * The corner of the grid with the minimum coordinates
+     */
+    private float minX;
+
+    private float minY;
+
+    private float minZ;
+
+    /**
+     * The number of cells on each axis
+     */
+    private int dimX;
+
+    private int dimY;
+
+    private int dimZ;
+
+    /**
+     * The first atom of the list of each cell
+     */
+    private int[] cellHeads = new int[0];
+
+    /**
+     * The next and the previous atoms of the list of the cell of each atom
+     */
+    private int[] next = new int[0];
+
+    private int[] previous = new int[0];
+
+    /**
+     * The cell of each atom, or NONE if it is left out of the grid
+     */
+    private int[] cells = new int[0];
+
+    /**
+     * The number of atoms in the grid
+     */
+    private int numAtoms = 0;
+
+    /**
+     * The atoms sorted by its cells, for enumerate the pairs: the atoms
+     * of the cell c are in the range [sortedStarts[c], sortedStarts[c + 1])
+     * of sortedAtoms, and its positions in the same order in sortedPositions
+     */
+    private int[] sortedStarts = new int[0];
+
+    private int[] sortedAtoms = new int[0];
+
+    private float[] sortedPositions = new float[0];
+
+    /**
+     * The flag which is set when the atoms change, for sort them again
+     */
+    private boolean isSortedDirty = true;
+
+    /**
+     * The constructor. The grid is built with the atoms which
+     * are in the storage now
+     *
+     * @param storage the storage which holds the atoms
+     * @param cellSize the size of the cells, usually the radius of the queries
+     */
+    public SpatialGrid(AtomsStorage storage, float cellSize) {
+        if ( !(cellSize > 0.0f) ) {
+            throw new IllegalArgumentException("The cell size has to be positive: " + cellSize);
+        }
+        this.storage = storage;
+        this.wantedCellSize = cellSize;
+        rebuild();
+    }
+
+    /**
+     * This method builds the grid again with all the atoms of the storage
+     */
+    public void rebuild() {
+        numAtoms = storage.getSize();
+        float[] positions = storage.getPositions();
+
+        float maxX, maxY, maxZ;
+        minX = minY = minZ = Float.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Float.NEGATIVE_INFINITY;
+        for ( int i = 0; i < numAtoms; i++ ) {
+            float x = positions[i * 3];
+            float y = positions[i * 3 + 1];
+            float z = positions[i * 3 + 2];
+            if ( isFinite(x, y, z) ) {
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                minZ = Math.min(minZ, z);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+                maxZ = Math.max(maxZ, z);
+            }
+        }
+        if ( minX > maxX ) {
+            // there are no atoms with finite positions
+            minX = minY = minZ = 0.0f;
+            maxX = maxY = maxZ = 0.0f;
+        }
+
+        cellSize = wantedCellSize;
+        // the margin alone makes (2 * MARGIN_CELLS + 1)^3 cells, even without atoms
+        long minCells = (long) (2 * MARGIN_CELLS + 1) * (2 * MARGIN_CELLS + 1) * (2 * MARGIN_CELLS + 1);
+        long maxCells = Math.max((long) numAtoms * MAX_CELLS_PER_ATOM, minCells);
+        while ( countCells(maxX - minX, maxY - minY, maxZ - minZ) > maxCells ) {
+            cellSize *= 1.5f;
+        }
+        invCellSize = 1.0f / cellSize;
+
+        float margin = MARGIN_CELLS * cellSize;
+        minX -= margin;
+        minY -= margin;
+        minZ -= margin;
+        dimX = (int) ((maxX - minX + margin) * invCellSize) + 1;
+        dimY = (int) ((maxY - minY + margin) * invCellSize) + 1;
+        dimZ = (int) ((maxZ - minZ + margin) * invCellSize) + 1;
+
+        int numCells = dimX * dimY * dimZ;
+        if ( cellHeads.length < numCells ) {
+            cellHeads = new int[numCells];
+        }
+        Arrays.fill(cellHeads, 0, numCells, NONE);
+        if ( next.length < numAtoms ) {
+            int capacity = Math.max(numAtoms, next.length * 2);
+            next = new int[capacity];
+            previous = new int[capacity];
+            cells = new int[capacity];
+        }
+        for ( int i = 0; i < numAtoms; i++ ) {
+            int cell = cellOf(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+            if ( cell != NONE ) {
+                insert(i, cell);
+            } else {
+                leaveOut(i);
+            }
+        }
+        isSortedDirty = true;
+    }
+
+    /**
+     * This method calculates the number of cells of a box, with the margin
+     */
+    private long countCells(float sizeX, float sizeY, float sizeZ) {
+        float extra = 2 * MARGIN_CELLS * cellSize;
+        return ((long) ((sizeX + extra) / cellSize) + 1)
+                * ((long) ((sizeY + extra) / cellSize) + 1)
+                * ((long) ((sizeZ + extra) / cellSize) + 1);
+    }
+
+    /**
+     * This method checks if the coordinates of a point are finite numbers
+     */
+    private static boolean isFinite(float x, float y, float z) {
+        return Float.isFinite(x) && Float.isFinite(y) && Float.isFinite(z);
+    }
+
+    /**
+     * This method calculates the cell of a point inside the grid
+     *
+     * @return the index of the cell, or -1 if the point is out of the grid
+     */
+    private int cellOf(float x, float y, float z) {
+        float fx = (x - minX) * invCellSize;
+        float fy = (y - minY) * invCellSize;
+        float fz = (z - minZ) * invCellSize;
+        if ( !(fx >= 0 && fy >= 0 && fz >= 0 && fx < dimX && fy < dimY && fz < dimZ) ) {
+            return NONE;
+        }
+        return ((int) fz * dimY + (int) fy) * dimX + (int) fx;
+    }
+
+    /**
+     * This method adds the atom at the beginning of the list of the cell
+     */
+    private void insert(int atom, int cell) {
+        cells[atom] = cell;
+        previous[atom] = NONE;
+        next[atom] = cellHeads[cell];
+        if ( cellHeads[cell] != NONE ) {
+            previous[cellHeads[cell]] = atom;
+        }
+        cellHeads[cell] = atom;
+    }
+
+    /**
+     * This method marks the atom as out of the grid, in no cell
+     */
+    private void leaveOut(int atom) {
+        cells[atom] = NONE;
+        previous[atom] = NONE;
+        next[atom] = NONE;
+    }
+
+    /**
+     * This method removes the atom from the list of its cell.
+     * The atom has to be in a cell
+     */
+    private void remove(int atom) {
+        if ( previous[atom] != NONE ) {
+            next[previous[atom]] = next[atom];
+        } else {
+            cellHeads[cells[atom]] = next[atom];
+        }
+        if ( next[atom] != NONE ) {
+            previous[next[atom]] = previous[atom];
+        }
+    }
+
+    /**
+     * This method updates the cell of an atom which has moved. The atoms
+     * added to the storage after the grid was built are added here. If
+     * the atom is out of the grid, the grid is rebuilt. If its position
+     * is not finite, the atom is left out of the grid
+     *
+     * @param atom the index of the atom
+     */
+    public void update(int atom) {
+        float[] positions = storage.getPositions();
+        float x = positions[atom * 3];
+        float y = positions[atom * 3 + 1];
+        float z = positions[atom * 3 + 2];
+        boolean isFinite = isFinite(x, y, z);
+        int cell = isFinite ? cellOf(x, y, z) : NONE;
+        isSortedDirty = true;
+        if ( (isFinite && cell == NONE) || atom > numAtoms ) {
+            rebuild();
+            return;
+        }
+        if ( atom == numAtoms ) {
+            if ( next.length <= atom ) {
+                int capacity = Math.max(atom + 1, next.length * 2);
+                next = Arrays.copyOf(next, capacity);
+                previous = Arrays.copyOf(previous, capacity);
+                cells = Arrays.copyOf(cells, capacity);
+            }
+            numAtoms++;
+            if ( cell != NONE ) {
+                insert(atom, cell);
+            } else {
+                leaveOut(atom);
+            }
+            return;
+        }
+        if ( cells[atom] != cell ) {
+            if ( cells[atom] != NONE ) {
+                remove(atom);
+            }
+            if ( cell != NONE ) {
+                insert(atom, cell);
+            } else {
+                leaveOut(atom);
+            }
+        }
+    }
+
+    /**
+     * This method updates the cells of all the atoms, after many of them have moved
+     */
+    public void updateAll() {
+        if ( numAtoms != storage.getSize() ) {
+            rebuild();
+            return;
+        }
+        for ( int i = 0; i < numAtoms; i++ ) {
+            update(i);
+        }
+    }
+
+    /**
+     * This method calculates the cell coordinate of a value on an axis,
+     * clamped to the grid
+     */
+    private int clampCell(float value, float min, int dim) {
+        float f = (value - min) * invCellSize;
+        if ( !(f >= 0) ) {
+            return 0;
+        }
+        return f >= dim ? dim - 1 : (int) f;
+    }
+
+    /**
+     * This method visits all the atoms whose centre is at a
+     * distance smaller or equal than the radius from the point
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param radius the radius of the query
+     * @param visitor the visitor of the atoms found
+     */
+    public void forEachWithin(float x, float y, float z, float radius, AtomVisitor visitor) {
+        float[] positions = storage.getPositions();
+        float radiusSquared = radius * radius;
+        int x0 = clampCell(x - radius, minX, dimX);
+        int x1 = clampCell(x + radius, minX, dimX);
+        int y0 = clampCell(y - radius, minY, dimY);
+        int y1 = clampCell(y + radius, minY, dimY);
+        int z0 = clampCell(z - radius, minZ, dimZ);
+        int z1 = clampCell(z + radius, minZ, dimZ);
+        for ( int cz = z0; cz <= z1; cz++ ) {
+            for ( int cy = y0; cy <= y1; cy++ ) {
+                int row = (cz * dimY + cy) * dimX;
+                for ( int cx = x0; cx <= x1; cx++ ) {
+                    for ( int atom = cellHeads[row + cx]; atom != NONE; atom = next[atom] ) {
+                        float dx = positions[atom * 3] - x;
+                        float dy = positions[atom * 3 + 1] - y;
+                        float dz = positions[atom * 3 + 2] - z;
+                        float distanceSquared = dx * dx + dy * dy + dz * dz;
+                        if ( distanceSquared <= radiusSquared ) {
+                            visitor.visit(atom, distanceSquared);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method counts the atoms whose centre is at a distance
+     * smaller or equal than the radius from the point
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param radius the radius of the query
+     * @return the number of atoms
+     */
+    public int countWithin(float x, float y, float z, float radius) {
+        int[] count = new int[1];
+        forEachWithin(x, y, z, radius, (atom, distanceSquared) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * This method looks for the k atoms nearest to the point. The
+     * cells are visited by rings around the cell of the point, until
+     * the next ring can't have an atom nearer than the found ones
+     *
+     * @param x the x coordinate of the point
+     * @param y the y coordinate of the point
+     * @param z the z coordinate of the point
+     * @param k the number of atoms wanted
+     * @param atoms the array where the atoms are written, from the nearest
+     * @param distancesSquared the array where the squared distances are written,
+     *                         or null if they are not needed
+     * @return the number of atoms found, k or less if the grid has less atoms
+     */
+    public int findNearest(float x, float y, float z, int k, int[] atoms, float[] distancesSquared) {
+        float[] distances = distancesSquared != null ? distancesSquared : new float[k];
+        float[] positions = storage.getPositions();
+        k = Math.min(k, numAtoms);
+        if ( k <= 0 ) {
+            return 0;
+        }
+
+        int cx = (int) Math.floor((x - minX) * invCellSize);
+        int cy = (int) Math.floor((y - minY) * invCellSize);
+        int cz = (int) Math.floor((z - minZ) * invCellSize);
+        int maxRing = Math.max(Math.max(
+                Math.max(Math.abs(cx), Math.abs(cx - dimX + 1)),
+                Math.max(Math.abs(cy), Math.abs(cy - dimY + 1))),
+                Math.max(Math.abs(cz), Math.abs(cz - dimZ + 1)));
+
+        int found = 0;
+        for ( int ring = 0; ring <= maxRing; ring++ ) {
+            for ( int gz = Math.max(cz - ring, 0); gz <= Math.min(cz + ring, dimZ - 1); gz++ ) {
+                for ( int gy = Math.max(cy - ring, 0); gy <= Math.min(cy + ring, dimY - 1); gy++ ) {
+                    boolean isShell = Math.abs(gz - cz) == ring || Math.abs(gy - cy) == ring;
+                    int row = (gz * dimY + gy) * dimX;
+                    for ( int gx = Math.max(cx - ring, 0); gx <= Math.min(cx + ring, dimX - 1); gx++ ) {
+                        if ( !isShell && Math.abs(gx - cx) != ring ) {
+                            continue;
+                        }
+                        for ( int atom = cellHeads[row + gx]; atom != NONE; atom = next[atom] ) {
+                            float dx = positions[atom * 3] - x;
+                            float dy = positions[atom * 3 + 1] - y;
+                            float dz = positions[atom * 3 + 2] - z;
+                            float distanceSquared = dx * dx + dy * dy + dz * dz;
+                            if ( found < k ) {
+                                found++;
+                            } else if ( distanceSquared >= distances[k - 1] ) {
+                                continue;
+                            }
+                            // insertion in the sorted list, the last one is dropped if it is full
+                            int position = found - 1;
+                            while ( position > 0 && distances[position - 1] > distanceSquared ) {
+                                distances[position] = distances[position - 1];
+                                atoms[position] = atoms[position - 1];
+                                position--;
+                            }
+                            distances[position] = distanceSquared;
+                            atoms[position] = atom;
+                        }
+                    }
+                }
+            }
+            // the atoms of the next rings are at least ring cells away
+            float reach = ring * cellSize;
+            if ( found == k && distances[k - 1] <= reach * reach ) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * This method copies the atoms sorted by its cells, with its
+     * positions, so the atoms of each cell are contiguous in memory.
+     * It's done only if the atoms have changed since the last time
+     */
+    private synchronized void sortByCells() {
+        if ( !isSortedDirty ) {
+            return;
+        }
+        int numCells = dimX * dimY * dimZ;
+        if ( sortedStarts.length < numCells + 1 ) {
+            sortedStarts = new int[numCells + 1];
+        }
+        if ( sortedAtoms.length < numAtoms ) {
+            sortedAtoms = new int[numAtoms];
+            sortedPositions = new float[numAtoms * 3];
+        }
+
+        Arrays.fill(sortedStarts, 0, numCells + 1, 0);
+        for ( int i = 0; i < numAtoms; i++ ) {
+            if ( cells[i] != NONE ) {
+                sortedStarts[cells[i] + 1]++;
+            }
+        }
+        for ( int c = 0; c < numCells; c++ ) {
+            sortedStarts[c + 1] += sortedStarts[c];
+        }
+        float[] positions = storage.getPositions();
+        int[] ends = Arrays.copyOf(sortedStarts, numCells);
+        for ( int i = 0; i < numAtoms; i++ ) {
+            if ( cells[i] == NONE ) {
+                continue;
+            }
+            int position = ends[cells[i]]++;
+            sortedAtoms[position] = i;
+            sortedPositions[position * 3] = positions[i * 3];
+            sortedPositions[position * 3 + 1] = positions[i * 3 + 1];
+            sortedPositions[position * 3 + 2] = positions[i * 3 + 2];
+        }
+        isSortedDirty = false;
+    }
+
+    /**
+     * This method visits all the pairs of atoms whose centres are at
+     * a distance smaller or equal than the cutoff. Each pair is
+     * visited once, with the smaller index first
+     *
+     * @param cutoff the maximum distance
+     * @param visitor the visitor of the pairs
+     */
+    public void forEachPairWithin(float cutoff, PairVisitor visitor) {
+        forEachPairWithin(cutoff, 0, getNumCells(), visitor);
+    }
+
+    /**
+     * This method visits the pairs of atoms closer than the cutoff
+     * whose first atom, in the order of the cells, is in a cell of
+     * the range [fromCell, toCell). Splitting the cells in ranges,
+     * the pairs can be enumerated by many threads
+     *
+     * Each pair is found only from one of its two cells: the atoms of
+     * a cell are tested with the next atoms of the same cell and with
+     * the atoms of the neighbour cells which are after it (half of
+     * the neighbour cells)
+     *
+     * @param cutoff the maximum distance
+     * @param fromCell the first cell of the range
+     * @param toCell the end of the range (exclusive)
+     * @param visitor the visitor of the pairs
+     */
+    public void forEachPairWithin(float cutoff, int fromCell, int toCell, PairVisitor visitor) {
+        sortByCells();
+        float cutoffSquared = cutoff * cutoff;
+        int reach = (int) Math.ceil(cutoff * invCellSize);
+        int[] starts = sortedStarts;
+        int[] atoms = sortedAtoms;
+        float[] positions = sortedPositions;
+
+        for ( int cell = fromCell; cell < toCell; cell++ ) {
+            int start = starts[cell];
+            int end = starts[cell + 1];
+            if ( start == end ) {
+                continue;
+            }
+            int cx = cell % dimX;
+            int cy = (cell / dimX) % dimY;
+            int cz = cell / (dimX * dimY);
+
+            for ( int gz = cz; gz <= Math.min(cz + reach, dimZ - 1); gz++ ) {
+                for ( int gy = Math.max(cy - reach, 0); gy <= Math.min(cy + reach, dimY - 1); gy++ ) {
+                    if ( gz == cz && gy < cy ) {
+                        continue;
+                    }
+                    int row = (gz * dimY + gy) * dimX;
+                    for ( int gx = Math.max(cx - reach, 0); gx <= Math.min(cx + reach, dimX - 1); gx++ ) {
+                        if ( gz == cz && gy == cy && gx < cx ) {
+                            continue;
+                        }
+                        int other = row + gx;
+                        boolean isSameCell = other == cell;
+                        int otherEnd = starts[other + 1];
+                        for ( int a = start; a < end; a++ ) {
+                            float x = positions[a * 3];
+                            float y = positions[a * 3 + 1];
+                            float z = positions[a * 3 + 2];
+                            for ( int b = isSameCell ? a + 1 : starts[other]; b < otherEnd; b++ ) {
+                                float dx = positions[b * 3] - x;
+                                float dy = positions[b * 3 + 1] - y;
+                                float dz = positions[b * 3 + 2] - z;
+                                float distanceSquared = dx * dx + dy * dy + dz * dz;
+                                if ( distanceSquared <= cutoffSquared ) {
+                                    int atom1 = atoms[a];
+                                    int atom2 = atoms[b];
+                                    if ( atom1 < atom2 ) {
+                                        visitor.visit(atom1, atom2, distanceSquared);
+                                    } else {
+                                        visitor.visit(atom2, atom1, distanceSquared);
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+    public AtomsStorage getStorage() {
+        return storage;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    public int getNumAtoms() {
+        return numAtoms;
+    }
+
+    public int getNumCells() {
+        return dimX * dimY * dimZ;
+    }
+
+    /////////////////////////////////////////////////////////////////////////////////////////
+
+}
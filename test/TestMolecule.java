@@ -4,6 +4,7 @@ import atom.AtomsPipeLine;
 import atom.Hybridization;
 import engine.AbstractGame;
 import engine.GameContainer;
+import engine.gfx.HexColors;
 import engine.gfx.Renderer;
 import engine3d.Vec4df;
 import engine3d.matrix.Mat4x4;
@@ -150,6 +151,22 @@ public class TestMolecule extends AbstractGame {
         }
     }
 
+    public void updatePipeLine(GameContainer gc) {
+        if ( gc.getInput().isKeyDown(KeyEvent.VK_F) ) {
+            pipeLine.setReusingBuffers(!pipeLine.isReusingBuffers());
+        }
+        if ( gc.getInput().isKeyDown(KeyEvent.VK_P) ) {
+            pipeLine.setPicking(!pipeLine.isPicking());
+        }
+        if ( gc.getInput().isKeyDown(KeyEvent.VK_L) ) {
+            pipeLine.setPipelined(!pipeLine.isPipelined());
+        }
+        if ( gc.getInput().isKeyDown(KeyEvent.VK_M) ) {
+            pipeLine.setMeasuring(!pipeLine.isMeasuring());
+            pipeLine.getRenderer().setDrawingMetrics(pipeLine.isMeasuring());
+        }
+    }
+
     private void transformMolecule() {
         Mat4x4 matIdentity = MatrixMath.matrixMakeIdentity();
         Mat4x4 matRotX = MatrixMath.matrixMakeRotationX(moleculeRotation.getX());
@@ -168,12 +185,17 @@ public class TestMolecule extends AbstractGame {
         updateCamera(gc, dt);
         updateMolecule(gc, dt);
         updateAtomsRenderer(gc);
+        updatePipeLine(gc);
         transformMolecule();
     }
 
     @Override
     public void render(GameContainer gc, Renderer r) {
         pipeLine.renderMolecule(molecule);
+        int picked = pipeLine.pickAtom(gc.getInput().getMouseX(), gc.getInput().getMouseY());
+        if ( picked >= 0 ) {
+            r.drawText(String.format("@%d", picked), gc.getInput().getMouseX() + 8, gc.getInput().getMouseY(), HexColors.LIGHT_BLUE);
+        }
     }
 
     public static void main(String[] args) {